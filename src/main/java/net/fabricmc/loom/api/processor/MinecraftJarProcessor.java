@@ -26,9 +26,12 @@ package net.fabricmc.loom.api.processor;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Set;
 
 import org.gradle.api.Named;
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassVisitor;
 
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
@@ -38,6 +41,22 @@ public interface MinecraftJarProcessor<S extends MinecraftJarProcessor.Spec> ext
 
 	void processJar(Path jar, S spec, ProcessorContext context) throws IOException;
 
+	/**
+	 * Return a {@link ClassTransformer} that applies this processor's changes to individual classes.
+	 *
+	 * <p>When a transformer is returned {@link #processJar(Path, Spec, ProcessorContext)} is not called, instead the
+	 * transformers of consecutive processors are fused so that each targeted class is only read and written once.
+	 *
+	 * @param spec The spec returned from {@link #buildSpec(SpecContext)}
+	 * @param context The processor context
+	 * @return A {@link ClassTransformer}, or {@code null} if the processor must process the whole jar.
+	 */
+	@Nullable
+	@ApiStatus.Experimental
+	default ClassTransformer createClassTransformer(S spec, ProcessorContext context) throws IOException {
+		return null;
+	}
+
 	@Nullable
 	default MappingsProcessor<S> processMappings() {
 		return null;
@@ -45,6 +64,67 @@ public interface MinecraftJarProcessor<S extends MinecraftJarProcessor.Spec> ext
 
 	interface Spec {
 		// Must make sure hashCode is correctly implemented.
+
+		/**
+		 * Write the values that identify this spec to the hasher, these are used to decide if a processed jar can be reused.
+		 *
+		 * <p>The values must be stable across JVMs and machines, so they must not contain identity hash codes or absolute paths.
+		 * The default implementation only writes {@link #hashCode()}, override this when the spec contains anything other than simple values.
+		 *
+		 * @param hasher The hasher to write to
+		 */
+		@ApiStatus.Experimental
+		default void fingerprint(SpecHasher hasher) {
+			hasher.putInt(hashCode());
+		}
+	}
+
+	@ApiStatus.Experimental
+	interface ClassTransformer {
+		/**
+		 * A transformer that does not modify any classes.
+		 */
+		ClassTransformer NONE = new ClassTransformer() {
+			@Override
+			public Set<String> getTargets() {
+				return Set.of();
+			}
+
+			@Override
+			public ClassVisitor insertVisitor(String className, ClassVisitor classVisitor) {
+				return classVisitor;
+			}
+		};
+
+		/**
+		 * @return The internal names of the classes that this transformer modifies.
+		 */
+		Set<String> getTargets();
+
+		/**
+		 * Return a {@link ClassVisitor} that will be used when transforming the given class.
+		 *
+		 * <p>This may be called concurrently for different classes.
+		 *
+		 * @param className The internal name of the class being transformed
+		 * @param classVisitor The parent class visitor
+		 * @return A {@link ClassVisitor} that delegates to the given {@code classVisitor}
+		 */
+		ClassVisitor insertVisitor(String className, ClassVisitor classVisitor);
+
+		/**
+		 * Return a fingerprint of the parts of the spec that affect the given class.
+		 *
+		 * <p>When all the transformers targeting a class provide a fingerprint, the transformed class may be reused
+		 * from a previous run that used the same input class and fingerprints, without calling {@link #insertVisitor(String, ClassVisitor)}.
+		 *
+		 * @param className The internal name of the class being transformed
+		 * @return A fingerprint that changes whenever the transformation of the class would change, or {@code null} to always transform the class.
+		 */
+		@Nullable
+		default String getFingerprint(String className) {
+			return null;
+		}
 	}
 
 	interface MappingsProcessor<S> {
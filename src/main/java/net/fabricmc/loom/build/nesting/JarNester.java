@@ -26,23 +26,24 @@ package net.fabricmc.loom.build.nesting;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.util.Collection;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import com.google.common.base.Preconditions;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import org.gradle.api.UncheckedIOException;
+import org.gradle.api.tasks.bundling.ZipEntryCompression;
 import org.slf4j.Logger;
 
-import net.fabricmc.loom.util.Pair;
+import net.fabricmc.loom.util.ZipAssembler;
 import net.fabricmc.loom.util.ZipUtils;
 import net.fabricmc.loom.util.fmj.FabricModJsonFactory;
 
 public class JarNester {
+	/**
+	 * Nests the jars into an existing mod jar, the mod jar is rewritten once with the existing entries kept in order.
+	 */
 	public static void nestJars(Collection<File> jars, File modJar, Logger logger) {
 		if (jars.isEmpty()) {
 			logger.debug("Nothing to nest into " + modJar.getName());
@@ -51,49 +52,70 @@ public class JarNester {
 
 		Preconditions.checkArgument(FabricModJsonFactory.isModJar(modJar), "Cannot nest jars into none mod jar " + modJar.getName());
 
-		try {
-			ZipUtils.add(modJar.toPath(), jars.stream().map(file -> {
-				try {
-					return new Pair<>("META-INF/jars/" + file.getName(), Files.readAllBytes(file.toPath()));
-				} catch (IOException e) {
-					throw new UncheckedIOException(e);
-				}
-			}).collect(Collectors.toList()));
+		try (var assembler = new ZipAssembler()) {
+			assembler.putZipEntries(modJar.toPath(), name -> true);
+			nestJars(jars, assembler, modJar.getName(), logger);
+			assembler.write(modJar.toPath(), false, true, ZipEntryCompression.DEFLATED);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to nest jars into " + modJar.getName(), e);
+		}
+	}
 
-			int count = ZipUtils.transformJson(JsonObject.class, modJar.toPath(), Stream.of(new Pair<>("fabric.mod.json", json -> {
-				JsonArray nestedJars = json.getAsJsonArray("jars");
+	/**
+	 * Nests the jars into a mod jar that is being assembled.
+	 *
+	 * <p>The nested jars are already compressed, so they are streamed into the output as stored entries when it is
+	 * written. The fabric.mod.json file is updated as part of the same write.
+	 */
+	public static void nestJars(Collection<File> jars, ZipAssembler modJar, String modJarName, Logger logger) {
+		if (jars.isEmpty()) {
+			logger.debug("Nothing to nest into " + modJarName);
+			return;
+		}
 
-				if (nestedJars == null || !json.has("jars")) {
-					nestedJars = new JsonArray();
-				}
+		Preconditions.checkArgument(modJar.contains(FabricModJsonFactory.FABRIC_MOD_JSON), "Cannot nest jars into none mod jar " + modJarName);
 
-				for (File file : jars) {
-					String nestedJarPath = "META-INF/jars/" + file.getName();
-					Preconditions.checkArgument(FabricModJsonFactory.isModJar(file), "Cannot nest none mod jar: " + file.getName());
+		for (File file : jars) {
+			modJar.putStoredFile(getNestedJarPath(file), file.toPath());
+		}
 
-					for (JsonElement nestedJar : nestedJars) {
-						JsonObject jsonObject = nestedJar.getAsJsonObject();
+		modJar.transformJson(JsonObject.class, FabricModJsonFactory.FABRIC_MOD_JSON, addNestedJars(jars, modJarName, logger));
+	}
 
-						if (jsonObject.has("file") && jsonObject.get("file").getAsString().equals(nestedJarPath)) {
-							throw new IllegalStateException("Cannot nest 2 jars at the same path: " + nestedJarPath);
-						}
-					}
+	private static String getNestedJarPath(File file) {
+		return "META-INF/jars/" + file.getName();
+	}
+
+	private static ZipUtils.UnsafeUnaryOperator<JsonObject> addNestedJars(Collection<File> jars, String modJarName, Logger logger) {
+		return json -> {
+			JsonArray nestedJars = json.getAsJsonArray("jars");
+
+			if (nestedJars == null || !json.has("jars")) {
+				nestedJars = new JsonArray();
+			}
+
+			for (File file : jars) {
+				String nestedJarPath = getNestedJarPath(file);
+				Preconditions.checkArgument(FabricModJsonFactory.isModJar(file), "Cannot nest none mod jar: " + file.getName());
 
-					JsonObject jsonObject = new JsonObject();
-					jsonObject.addProperty("file", nestedJarPath);
-					nestedJars.add(jsonObject);
+				for (JsonElement nestedJar : nestedJars) {
+					JsonObject jsonObject = nestedJar.getAsJsonObject();
 
-					logger.debug("Nested " + nestedJarPath + " into " + modJar.getName());
+					if (jsonObject.has("file") && jsonObject.get("file").getAsString().equals(nestedJarPath)) {
+						throw new IllegalStateException("Cannot nest 2 jars at the same path: " + nestedJarPath);
+					}
 				}
 
-				json.add("jars", nestedJars);
+				JsonObject jsonObject = new JsonObject();
+				jsonObject.addProperty("file", nestedJarPath);
+				nestedJars.add(jsonObject);
 
-				return json;
-			})));
+				logger.debug("Nested " + nestedJarPath + " into " + modJarName);
+			}
 
-			Preconditions.checkState(count > 0, "Failed to transform fabric.mod.json");
-		} catch (IOException e) {
-			throw new java.io.UncheckedIOException("Failed to nest jars into " + modJar.getName(), e);
-		}
+			json.add("jars", nestedJars);
+
+			return json;
+		};
 	}
 }
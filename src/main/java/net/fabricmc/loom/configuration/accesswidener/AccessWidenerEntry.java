@@ -29,6 +29,7 @@ import java.io.IOException;
 import org.jetbrains.annotations.Nullable;
 
 import net.fabricmc.accesswidener.AccessWidenerVisitor;
+import net.fabricmc.loom.api.processor.SpecHasher;
 import net.fabricmc.loom.util.LazyCloseable;
 import net.fabricmc.loom.util.fmj.ModEnvironment;
 import net.fabricmc.tinyremapper.TinyRemapper;
@@ -45,4 +46,9 @@ public interface AccessWidenerEntry {
 	String getSortKey();
 
 	void read(AccessWidenerVisitor visitor, LazyCloseable<TinyRemapper> remapper) throws IOException;
+
+	/**
+	 * Write the values that identify this entry, including its contents, see {@link net.fabricmc.loom.api.processor.MinecraftJarProcessor.Spec#fingerprint(SpecHasher)}.
+	 */
+	void fingerprint(SpecHasher hasher);
 }
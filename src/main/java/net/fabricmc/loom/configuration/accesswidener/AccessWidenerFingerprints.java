@@ -0,0 +1,111 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.accesswidener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import net.fabricmc.accesswidener.AccessWidenerReader;
+import net.fabricmc.accesswidener.AccessWidenerVisitor;
+
+/**
+ * Records the access widener rules that affect each class while passing them on to the delegate visitor.
+ *
+ * <p>A class is affected by the rules targeting its members, and by the access of any class it references
+ * as an inner class. The latter is not known without reading the class, so every fingerprint also includes
+ * all class rules and the set of classes that have rules.
+ */
+final class AccessWidenerFingerprints implements AccessWidenerVisitor {
+	private final AccessWidenerVisitor delegate;
+	private final Map<String, List<String>> rules = new HashMap<>();
+	private final List<String> classRules = new ArrayList<>();
+	private String globalFingerprint;
+
+	AccessWidenerFingerprints(AccessWidenerVisitor delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void visitHeader(String namespace) {
+		delegate.visitHeader(namespace);
+	}
+
+	@Override
+	public void visitClass(String name, AccessWidenerReader.AccessType access, boolean transitive) {
+		delegate.visitClass(name, access, transitive);
+		addRule(name, "class\t" + access.name());
+		classRules.add(name + "\t" + access.name());
+	}
+
+	@Override
+	public void visitMethod(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
+		delegate.visitMethod(owner, name, descriptor, access, transitive);
+		addRule(owner, "method\t" + name + "\t" + descriptor + "\t" + access.name());
+	}
+
+	@Override
+	public void visitField(String owner, String name, String descriptor, AccessWidenerReader.AccessType access, boolean transitive) {
+		delegate.visitField(owner, name, descriptor, access, transitive);
+		addRule(owner, "field\t" + name + "\t" + descriptor + "\t" + access.name());
+	}
+
+	private void addRule(String owner, String rule) {
+		rules.computeIfAbsent(owner, s -> new ArrayList<>()).add(rule);
+		globalFingerprint = null;
+	}
+
+	/**
+	 * @param className The internal name of the class
+	 * @return A string that changes whenever the rules affecting the class change
+	 */
+	synchronized String getFingerprint(String className) {
+		if (globalFingerprint == null) {
+			final Hasher hasher = Hashing.sha256().newHasher();
+
+			for (String classRule : new TreeSet<>(classRules)) {
+				hasher.putString(classRule, StandardCharsets.UTF_8).putByte((byte) '\n');
+			}
+
+			hasher.putByte((byte) 0);
+
+			for (String owner : new TreeSet<>(rules.keySet())) {
+				hasher.putString(owner, StandardCharsets.UTF_8).putByte((byte) '\n');
+			}
+
+			globalFingerprint = hasher.hash().toString();
+		}
+
+		final var classRules = new TreeSet<>(rules.getOrDefault(className.replace('.', '/'), Collections.emptyList()));
+		return globalFingerprint + "\n" + String.join("\n", classRules);
+	}
+}
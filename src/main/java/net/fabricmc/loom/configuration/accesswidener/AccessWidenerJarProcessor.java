@@ -43,6 +43,7 @@ import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.api.processor.MinecraftJarProcessor;
 import net.fabricmc.loom.api.processor.ProcessorContext;
 import net.fabricmc.loom.api.processor.SpecContext;
+import net.fabricmc.loom.api.processor.SpecHasher;
 import net.fabricmc.loom.util.LazyCloseable;
 import net.fabricmc.loom.util.fmj.FabricModJson;
 import net.fabricmc.loom.util.fmj.ModEnvironment;
@@ -102,6 +103,15 @@ public class AccessWidenerJarProcessor implements MinecraftJarProcessor<AccessWi
 	}
 
 	public record Spec(List<AccessWidenerEntry> accessWideners) implements MinecraftJarProcessor.Spec {
+		@Override
+		public void fingerprint(SpecHasher hasher) {
+			hasher.putInt(accessWideners.size());
+
+			for (AccessWidenerEntry accessWidener : accessWideners) {
+				accessWidener.fingerprint(hasher);
+			}
+		}
+
 		List<AccessWidenerEntry> accessWidenersForContext(ProcessorContext context) {
 			return accessWideners.stream()
 					.filter(entry -> isSupported(entry.environment(), context))
@@ -129,18 +139,27 @@ public class AccessWidenerJarProcessor implements MinecraftJarProcessor<AccessWi
 
 	@Override
 	public void processJar(Path jar, AccessWidenerJarProcessor.Spec spec, ProcessorContext context) throws IOException {
+		createTransformer(spec, context).apply(jar);
+	}
+
+	@Override
+	public ClassTransformer createClassTransformer(AccessWidenerJarProcessor.Spec spec, ProcessorContext context) throws IOException {
+		return createTransformer(spec, context);
+	}
+
+	private AccessWidenerTransformer createTransformer(AccessWidenerJarProcessor.Spec spec, ProcessorContext context) throws IOException {
 		final List<AccessWidenerEntry> accessWideners = spec.accessWidenersForContext(context);
 
 		final var accessWidener = new AccessWidener();
+		final var fingerprints = new AccessWidenerFingerprints(accessWidener);
 
 		try (LazyCloseable<TinyRemapper> remapper = context.createRemapper(MappingsNamespace.INTERMEDIARY, MappingsNamespace.NAMED)) {
 			for (AccessWidenerEntry widener : accessWideners) {
-				widener.read(accessWidener, remapper);
+				widener.read(fingerprints, remapper);
 			}
 		}
 
-		AccessWidenerTransformer transformer = new AccessWidenerTransformer(accessWidener);
-		transformer.apply(jar);
+		return new AccessWidenerTransformer(accessWidener, fingerprints);
 	}
 
 	@Override
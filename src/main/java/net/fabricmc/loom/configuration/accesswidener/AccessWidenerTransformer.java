@@ -39,17 +39,20 @@ import org.slf4j.LoggerFactory;
 
 import net.fabricmc.accesswidener.AccessWidener;
 import net.fabricmc.accesswidener.AccessWidenerClassVisitor;
+import net.fabricmc.loom.api.processor.MinecraftJarProcessor;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.Pair;
 import net.fabricmc.loom.util.ZipUtils;
 
-final class AccessWidenerTransformer {
+final class AccessWidenerTransformer implements MinecraftJarProcessor.ClassTransformer {
 	private static final Logger LOGGER = LoggerFactory.getLogger(AccessWidenerTransformer.class);
 
 	private final AccessWidener accessWidener;
+	private final AccessWidenerFingerprints fingerprints;
 
-	AccessWidenerTransformer(AccessWidener accessWidener) {
+	AccessWidenerTransformer(AccessWidener accessWidener, AccessWidenerFingerprints fingerprints) {
 		this.accessWidener = accessWidener;
+		this.fingerprints = fingerprints;
 	}
 
 	/**
@@ -63,6 +66,24 @@ final class AccessWidenerTransformer {
 		}
 	}
 
+	@Override
+	public Set<String> getTargets() {
+		return accessWidener.getTargets().stream()
+				.map(string -> string.replace('.', '/'))
+				.collect(Collectors.toSet());
+	}
+
+	@Override
+	public ClassVisitor insertVisitor(String className, ClassVisitor classVisitor) {
+		LOGGER.debug("Applying access widener to " + className);
+		return AccessWidenerClassVisitor.createClassVisitor(Constants.ASM_VERSION, classVisitor, accessWidener);
+	}
+
+	@Override
+	public String getFingerprint(String className) {
+		return fingerprints.getFingerprint(className);
+	}
+
 	private List<Pair<String, ZipUtils.UnsafeUnaryOperator<byte[]>>> getTransformers(Set<String> classes) {
 		return classes.stream()
 				.map(string -> new Pair<>(string.replaceAll("\\.", "/") + ".class", getTransformer(string)))
@@ -73,11 +94,8 @@ final class AccessWidenerTransformer {
 		return input -> {
 			ClassReader reader = new ClassReader(input);
 			ClassWriter writer = new ClassWriter(0);
-			ClassVisitor classVisitor = AccessWidenerClassVisitor.createClassVisitor(Constants.ASM_VERSION, writer, accessWidener);
-
-			LOGGER.debug("Applying access widener to " + className);
 
-			reader.accept(classVisitor, 0);
+			reader.accept(insertVisitor(className, writer), 0);
 			return writer.toByteArray();
 		};
 	}
@@ -33,6 +33,7 @@ import org.jetbrains.annotations.Nullable;
 
 import net.fabricmc.accesswidener.AccessWidenerReader;
 import net.fabricmc.accesswidener.AccessWidenerVisitor;
+import net.fabricmc.loom.api.processor.SpecHasher;
 import net.fabricmc.loom.util.Checksum;
 import net.fabricmc.loom.util.LazyCloseable;
 import net.fabricmc.loom.util.fmj.ModEnvironment;
@@ -68,6 +69,13 @@ public record LocalAccessWidenerEntry(Path path, String hash) implements AccessW
 		return "local";
 	}
 
+	@Override
+	public void fingerprint(SpecHasher hasher) {
+		// The path is not included, as it is specific to this machine
+		hasher.putString(getSortKey());
+		hasher.putString(hash);
+	}
+
 	@Override
 	public int hashCode() {
 		return hash.hashCode();
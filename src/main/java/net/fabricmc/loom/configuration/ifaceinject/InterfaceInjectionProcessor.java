@@ -32,6 +32,7 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -56,6 +57,7 @@ import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.api.processor.MinecraftJarProcessor;
 import net.fabricmc.loom.api.processor.ProcessorContext;
 import net.fabricmc.loom.api.processor.SpecContext;
+import net.fabricmc.loom.api.processor.SpecHasher;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.LazyCloseable;
 import net.fabricmc.loom.util.Pair;
@@ -103,28 +105,69 @@ public abstract class InterfaceInjectionProcessor implements MinecraftJarProcess
 	}
 
 	public record Spec(List<InjectedInterface> injectedInterfaces) implements MinecraftJarProcessor.Spec {
+		@Override
+		public void fingerprint(SpecHasher hasher) {
+			hasher.putInt(injectedInterfaces.size());
+
+			for (InjectedInterface injectedInterface : injectedInterfaces) {
+				hasher.putString(injectedInterface.modId());
+				hasher.putString(injectedInterface.className());
+				hasher.putString(injectedInterface.ifaceName());
+				hasher.putString(injectedInterface.generics());
+			}
+		}
 	}
 
 	@Override
 	public void processJar(Path jar, Spec spec, ProcessorContext context) throws IOException {
+		final List<InjectedInterface> remappedInjectedInterfaces = remapInjectedInterfaces(spec, context);
+
+		try {
+			ZipUtils.transform(jar, getTransformers(remappedInjectedInterfaces));
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to apply interface injections to " + jar, e);
+		}
+	}
+
+	@Override
+	public ClassTransformer createClassTransformer(Spec spec, ProcessorContext context) throws IOException {
+		final Map<String, List<InjectedInterface>> injectedInterfaces = remapInjectedInterfaces(spec, context).stream()
+				.collect(Collectors.groupingBy(injectedInterface -> injectedInterface.className().replace('.', '/')));
+
+		return new ClassTransformer() {
+			@Override
+			public Set<String> getTargets() {
+				return injectedInterfaces.keySet();
+			}
+
+			@Override
+			public ClassVisitor insertVisitor(String className, ClassVisitor classVisitor) {
+				return new InjectingClassVisitor(Constants.ASM_VERSION, classVisitor, injectedInterfaces.get(className));
+			}
+
+			@Override
+			public String getFingerprint(String className) {
+				return injectedInterfaces.get(className).stream()
+						.map(injectedInterface -> injectedInterface.ifaceName() + Objects.requireNonNullElse(injectedInterface.generics(), ""))
+						.collect(Collectors.joining("\n"));
+			}
+		};
+	}
+
+	private List<InjectedInterface> remapInjectedInterfaces(Spec spec, ProcessorContext context) throws IOException {
 		// Remap from intermediary->named
 		final MemoryMappingTree mappings = context.getMappings();
 		final int intermediaryIndex = mappings.getNamespaceId(MappingsNamespace.INTERMEDIARY.toString());
 		final int namedIndex = mappings.getNamespaceId(MappingsNamespace.NAMED.toString());
 
 		try (LazyCloseable<TinyRemapper> tinyRemapper = context.createRemapper(MappingsNamespace.INTERMEDIARY, MappingsNamespace.NAMED)) {
-			final List<InjectedInterface> remappedInjectedInterfaces = spec.injectedInterfaces().stream()
+			return spec.injectedInterfaces().stream()
 					.map(injectedInterface -> remap(
 							injectedInterface,
 							s -> mappings.mapClassName(s, intermediaryIndex, namedIndex),
 							tinyRemapper.get().getEnvironment().getRemapper()
 					))
 					.toList();
-			try {
-				ZipUtils.transform(jar, getTransformers(remappedInjectedInterfaces));
-			} catch (IOException e) {
-				throw new RuntimeException("Failed to apply interface injections to " + jar, e);
-			}
 		}
 	}
 
@@ -279,8 +322,8 @@ public abstract class InterfaceInjectionProcessor implements MinecraftJarProcess
 		private final List<InjectedInterface> injectedInterfaces;
 		private final Set<String> knownInnerClasses = new HashSet<>();
 
-		InjectingClassVisitor(int asmVersion, ClassWriter writer, List<InjectedInterface> injectedInterfaces) {
-			super(asmVersion, writer);
+		InjectingClassVisitor(int asmVersion, ClassVisitor classVisitor, List<InjectedInterface> injectedInterfaces) {
+			super(asmVersion, classVisitor);
 			this.injectedInterfaces = injectedInterfaces;
 		}
 
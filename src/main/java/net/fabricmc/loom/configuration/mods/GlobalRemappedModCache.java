@@ -0,0 +1,312 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.mods;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.gradle.api.Project;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.LoomGradleExtension;
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.api.RemapConfigurationSettings;
+import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
+import net.fabricmc.loom.configuration.mods.dependency.ModDependency;
+import net.fabricmc.loom.util.CacheRules;
+import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.gradle.GradleUtils;
+import net.fabricmc.loom.util.kotlin.KotlinClasspathService;
+
+/**
+ * A user wide cache of remapped mod jars, shared between all projects.
+ *
+ * <p>Entries are keyed by the content of the input jar, along with a fingerprint of everything else that affects the
+ * remapped output: the mappings, the remap classpath, the other mods being remapped and the loom version.
+ * Entries are published with an atomic move while holding a file lock, so a build never sees a partially written jar.
+ *
+ * <p>The last modified time of an entry is updated whenever it is used. After publishing, at most once a day,
+ * the least recently used entries are removed based on the {@link CacheRules}.
+ *
+ * <p>The stored jars have not been split, {@link ModDependency#copyToCache(Project, Path, String)} is used to place
+ * them into the project's remapped mod cache.
+ */
+public final class GlobalRemappedModCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(GlobalRemappedModCache.class);
+	private static final String VERSION = "v1";
+	private static final CacheRules CACHE_RULES = new CacheRules(5_000, 4L * 1024 * 1024 * 1024, Duration.ofDays(30));
+	private static final Duration PRUNE_INTERVAL = Duration.ofDays(1);
+	// File locks are held by the whole JVM, so threads must also be coordinated within it.
+	private static final ReentrantLock JVM_LOCK = new ReentrantLock();
+
+	private final Path root;
+	private final Map<ModDependency, String> keys;
+
+	private GlobalRemappedModCache(Path root, Map<ModDependency, String> keys) {
+		this.root = root;
+		this.keys = keys;
+	}
+
+	/**
+	 * Creates the cache for a set of mods that are remapped together, or returns null when the cache is disabled.
+	 */
+	@Nullable
+	public static GlobalRemappedModCache create(Project project, List<ModDependency> dependencies) {
+		if (!GradleUtils.getBooleanProperty(project, Constants.Properties.GLOBAL_MOD_CACHE)) {
+			return null;
+		}
+
+		final LoomGradleExtension extension = LoomGradleExtension.get(project);
+
+		if (!extension.getRemapperExtensions().get().isEmpty()) {
+			// The output of a remapper extension cannot be fingerprinted
+			LOGGER.info("Not using the global remapped mod cache as remapper extensions are registered");
+			return null;
+		}
+
+		final Map<ModDependency, String> inputHashes = new HashMap<>();
+
+		for (ModDependency dependency : dependencies) {
+			inputHashes.put(dependency, Checksum.toHex(Checksum.sha256(dependency.getInputFile().toFile())));
+		}
+
+		final String environment = fingerprintEnvironment(project, extension, inputHashes.values());
+		final Map<ModDependency, String> keys = new HashMap<>();
+
+		for (ModDependency dependency : dependencies) {
+			keys.put(dependency, Hashing.sha256().newHasher()
+					.putString(environment, StandardCharsets.UTF_8)
+					.putString(inputHashes.get(dependency), StandardCharsets.UTF_8)
+					.hash().toString());
+		}
+
+		return new GlobalRemappedModCache(extension.getFiles().getGlobalRemappedModCache().toPath().resolve(VERSION), keys);
+	}
+
+	private static String fingerprintEnvironment(Project project, LoomGradleExtension extension, Collection<String> inputHashes) {
+		final Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putString(VERSION, StandardCharsets.UTF_8);
+		hasher.putString(LoomGradlePlugin.LOOM_VERSION, StandardCharsets.UTF_8);
+		hasher.putBytes(Checksum.sha256(extension.getMappingConfiguration().tinyMappings.toFile()));
+
+		// All the mods remapped together, these are on each others classpath and provide access wideners and indy bsms.
+		for (String inputHash : new TreeSet<>(inputHashes)) {
+			hasher.putString(inputHash, StandardCharsets.UTF_8);
+		}
+
+		for (String bsm : new TreeSet<>(extension.getKnownIndyBsms().get())) {
+			hasher.putString(bsm, StandardCharsets.UTF_8);
+		}
+
+		final var kotlinOptions = KotlinClasspathService.createOptions(project);
+		hasher.putString(kotlinOptions.isPresent() ? kotlinOptions.get().getKotlinVersion().get() : "", StandardCharsets.UTF_8);
+
+		// The remap classpath, files in the Gradle cache are immutable so the size and last modified time are used rather than hashing the contents.
+		final List<File> classpath = new ArrayList<>();
+
+		for (Path minecraftJar : extension.getMinecraftJars(MappingsNamespace.INTERMEDIARY)) {
+			classpath.add(minecraftJar.toFile());
+		}
+
+		for (RemapConfigurationSettings entry : extension.getRemapConfigurations()) {
+			classpath.addAll(entry.getSourceConfiguration().get().getFiles());
+		}
+
+		classpath.sort(Comparator.comparing(File::getName).thenComparing(File::getAbsolutePath));
+
+		for (File file : classpath) {
+			hasher.putString(file.getName(), StandardCharsets.UTF_8);
+			hasher.putLong(file.length());
+			hasher.putLong(file.lastModified());
+		}
+
+		return hasher.hash().toString();
+	}
+
+	/**
+	 * Copies the cached jars into the project's remapped mod cache.
+	 *
+	 * @return the dependencies that were not found in the cache, and must be remapped
+	 */
+	public List<ModDependency> restore(Project project, List<ModDependency> dependencies) throws IOException {
+		final List<ModDependency> missing = new ArrayList<>();
+
+		for (ModDependency dependency : dependencies) {
+			final Path cached = getPath(dependency);
+
+			if (Files.exists(cached)) {
+				LOGGER.debug("Using {} from the global remapped mod cache", dependency);
+				markUsed(cached);
+
+				try {
+					dependency.copyToCache(project, cached, null);
+				} catch (NoSuchFileException e) {
+					// Pruned by another build since it was found, remap it instead
+					LOGGER.debug("{} was removed from the global remapped mod cache while being used", dependency, e);
+					missing.add(dependency);
+				}
+			} else {
+				missing.add(dependency);
+			}
+		}
+
+		if (missing.size() != dependencies.size()) {
+			project.getLogger().info(":reused {} remapped mods from the global cache", dependencies.size() - missing.size());
+		}
+
+		return missing;
+	}
+
+	/**
+	 * Publishes a remapped jar, replacing any existing entry.
+	 * Failing to publish is not fatal, as the jar has already been remapped for this project.
+	 */
+	public void publish(ModDependency dependency, Path jar) {
+		final Path target = getPath(dependency);
+
+		JVM_LOCK.lock();
+
+		try {
+			Files.createDirectories(target.getParent());
+
+			try (FileChannel channel = FileChannel.open(root.resolve(".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+					FileLock lock = channel.lock()) {
+				final Path tempFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+
+				try {
+					Files.copy(jar, tempFile, StandardCopyOption.REPLACE_EXISTING);
+					Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				} finally {
+					Files.deleteIfExists(tempFile);
+				}
+
+				pruneIfRequired();
+			}
+		} catch (IOException | OverlappingFileLockException e) {
+			// An OverlappingFileLockException is thrown when the lock is held by Loom loaded by another class loader in this JVM
+			LOGGER.warn("Failed to publish {} to the global remapped mod cache", dependency, e);
+		} finally {
+			JVM_LOCK.unlock();
+		}
+	}
+
+	private static void markUsed(Path cached) {
+		try {
+			Files.setLastModifiedTime(cached, FileTime.from(Instant.now()));
+		} catch (IOException e) {
+			LOGGER.debug("Failed to update the last used time of {}", cached, e);
+		}
+	}
+
+	/**
+	 * Must be called while holding the lock.
+	 */
+	private void pruneIfRequired() {
+		final Path marker = root.resolve(".last-prune");
+
+		try {
+			if (Files.exists(marker) && Files.getLastModifiedTime(marker).toInstant().isAfter(Instant.now().minus(PRUNE_INTERVAL))) {
+				return;
+			}
+
+			Files.write(marker, new byte[0]);
+			prune();
+		} catch (IOException e) {
+			LOGGER.warn("Failed to prune the global remapped mod cache", e);
+		}
+	}
+
+	private void prune() throws IOException {
+		final List<CachedJar> jars = new ArrayList<>();
+
+		try (Stream<Path> stream = Files.walk(root, 2)) {
+			// Skips the lock file, and temp files of entries being published
+			for (Path path : stream.filter(file -> file.getFileName().toString().endsWith(".jar")).toList()) {
+				final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+				jars.add(new CachedJar(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+			}
+		}
+
+		jars.sort(Comparator.comparingLong(CachedJar::lastUsed));
+
+		final long maxAge = Instant.now().minus(CACHE_RULES.maxAge()).toEpochMilli();
+		long totalSize = jars.stream().mapToLong(CachedJar::size).sum();
+		int remaining = jars.size();
+
+		for (CachedJar jar : jars) {
+			if (remaining <= CACHE_RULES.maxFiles() && totalSize <= CACHE_RULES.maxBytes() && jar.lastUsed() >= maxAge) {
+				break;
+			}
+
+			Files.deleteIfExists(jar.path());
+			totalSize -= jar.size();
+			remaining--;
+		}
+
+		if (remaining != jars.size()) {
+			LOGGER.info("Removed {} of {} jars from the global remapped mod cache", jars.size() - remaining, jars.size());
+		}
+	}
+
+	private Path getPath(ModDependency dependency) {
+		final String key = keys.get(dependency);
+
+		if (key == null) {
+			throw new IllegalArgumentException("Unknown mod dependency: " + dependency);
+		}
+
+		return root.resolve(key.substring(0, 2)).resolve(key + ".jar");
+	}
+
+	private record CachedJar(Path path, long size, long lastUsed) {
+	}
+}
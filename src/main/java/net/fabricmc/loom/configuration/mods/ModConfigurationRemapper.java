@@ -201,7 +201,12 @@ public class ModConfigurationRemapper {
 
 			if (!toRemap.isEmpty()) {
 				try {
-					new ModProcessor(project, sourceConfig, serviceFactory).processMods(toRemap);
+					final GlobalRemappedModCache globalCache = GlobalRemappedModCache.create(project, modDependencies);
+					final List<ModDependency> toProcess = globalCache != null && !refreshDeps ? globalCache.restore(project, toRemap) : toRemap;
+
+					if (!toProcess.isEmpty()) {
+						new ModProcessor(project, sourceConfig, serviceFactory, globalCache).processMods(toProcess);
+					}
 				} catch (IOException e) {
 					throw new UncheckedIOException("Failed to remap mods", e);
 				}
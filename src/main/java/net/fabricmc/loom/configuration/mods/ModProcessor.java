@@ -45,6 +45,7 @@ import com.google.gson.JsonObject;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.attributes.Usage;
+import org.jetbrains.annotations.Nullable;
 
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.api.RemapConfigurationSettings;
@@ -53,6 +54,7 @@ import net.fabricmc.loom.configuration.mods.dependency.ModDependency;
 import net.fabricmc.loom.configuration.providers.mappings.MappingConfiguration;
 import net.fabricmc.loom.extension.RemapperExtensionHolder;
 import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.FileSystemUtil;
 import net.fabricmc.loom.util.Pair;
 import net.fabricmc.loom.util.TinyRemapperHelper;
 import net.fabricmc.loom.util.ZipUtils;
@@ -74,11 +76,18 @@ public class ModProcessor {
 	private final Project project;
 	private final Configuration sourceConfiguration;
 	private final ServiceFactory serviceFactory;
+	@Nullable
+	private final GlobalRemappedModCache globalCache;
 
 	public ModProcessor(Project project, Configuration sourceConfiguration, ServiceFactory serviceFactory) {
+		this(project, sourceConfiguration, serviceFactory, null);
+	}
+
+	public ModProcessor(Project project, Configuration sourceConfiguration, ServiceFactory serviceFactory, @Nullable GlobalRemappedModCache globalCache) {
 		this.project = project;
 		this.sourceConfiguration = sourceConfiguration;
 		this.serviceFactory = serviceFactory;
+		this.globalCache = globalCache;
 	}
 
 	public void processMods(List<ModDependency> remapList) throws IOException {
@@ -117,16 +126,12 @@ public class ModProcessor {
 		return description;
 	}
 
-	private void stripNestedJars(Path path) {
+	private void stripNestedJars(FileSystemUtil.Delegate fs) throws IOException {
 		// Strip out all contained jar info as we dont want loader to try and load the jars contained in dev.
-		try {
-			ZipUtils.transformJson(JsonObject.class, path, Map.of("fabric.mod.json", json -> {
-				json.remove("jars");
-				return json;
-			}));
-		} catch (IOException e) {
-			throw new UncheckedIOException("Failed to strip nested jars from %s".formatted(path), e);
-		}
+		ZipUtils.transformJson(JsonObject.class, fs, Map.of("fabric.mod.json", json -> {
+			json.remove("jars");
+			return json;
+		}));
 	}
 
 	private void remapJars(List<ModDependency> remapList) throws IOException {
@@ -171,6 +176,7 @@ public class ModProcessor {
 		remapper.readClassPath(extension.getMinecraftJars(MappingsNamespace.INTERMEDIARY).toArray(Path[]::new));
 
 		final Map<ModDependency, InputTag> tagMap = new HashMap<>();
+		final Map<ModDependency, Path> outputMap = new HashMap<>();
 		final Map<ModDependency, OutputConsumerPath> outputConsumerMap = new HashMap<>();
 		final Map<ModDependency, Pair<byte[], String>> accessWidenerMap = new HashMap<>();
 
@@ -203,14 +209,16 @@ public class ModProcessor {
 			remapper.readInputsAsync(tag, info.getInputFile());
 			tagMap.put(info, tag);
 
-			Files.deleteIfExists(getRemappedOutput(info));
+			final Path output = getRemappedOutput(info);
+			Files.deleteIfExists(output);
+			outputMap.put(info, output);
 		}
 
 		try {
 			// Apply this in a second loop as we need to ensure all the inputs are on the classpath before remapping.
 			for (ModDependency dependency : remapList) {
 				try {
-					OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(getRemappedOutput(dependency)).build();
+					OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(outputMap.get(dependency)).build();
 
 					outputConsumer.addNonClassFiles(dependency.getInputFile(), NonClassCopyMode.FIX_META_INF, remapper);
 					outputConsumerMap.put(dependency, outputConsumer);
@@ -237,27 +245,56 @@ public class ModProcessor {
 		}
 
 		for (ModDependency dependency : remapList) {
-			outputConsumerMap.get(dependency).close();
+			final Path output = outputMap.get(dependency);
+			boolean processed = false;
+
+			try {
+				// Edit the output through the zip file system that the output consumer still holds open,
+				// the jar is then only written once when the output consumer is closed.
+				try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(output, false)) {
+					final Pair<byte[], String> accessWidener = accessWidenerMap.get(dependency);
+
+					if (accessWidener != null) {
+						ZipUtils.replace(fs, accessWidener.right(), accessWidener.left());
+					}
+
+					stripNestedJars(fs);
+					remapJarManifestEntries(fs);
+				}
 
-			final Path output = getRemappedOutput(dependency);
-			final Pair<byte[], String> accessWidener = accessWidenerMap.get(dependency);
+				processed = true;
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to process remapped jar %s".formatted(output), e);
+			} finally {
+				outputConsumerMap.get(dependency).close();
 
-			if (accessWidener != null) {
-				ZipUtils.replace(output, accessWidener.right(), accessWidener.left());
+				if (!processed) {
+					// Never leave a partially processed jar behind
+					Files.deleteIfExists(output);
+				}
 			}
 
-			stripNestedJars(output);
-			remapJarManifestEntries(output);
-			dependency.copyToCache(project, output, null);
+			if (globalCache != null) {
+				globalCache.publish(dependency, output);
+			}
+
+			if (output.equals(dependency.getWorkingFile(null))) {
+				dependency.copyToCache(project, output, null);
+			} else {
+				dependency.moveToCache(output, null);
+			}
 		}
 	}
 
-	private static Path getRemappedOutput(ModDependency dependency) {
-		return dependency.getWorkingFile(null);
+	private static Path getRemappedOutput(ModDependency dependency) throws IOException {
+		// Write straight into the remapped mod cache when the jar does not need to be split,
+		// the complete jar is then moved into place.
+		final Path cacheFile = dependency.prepareCacheFile(null);
+		return cacheFile != null ? cacheFile : dependency.getWorkingFile(null);
 	}
 
-	private void remapJarManifestEntries(Path jar) throws IOException {
-		ZipUtils.transform(jar, Map.of(Constants.Manifest.PATH, bytes -> {
+	private void remapJarManifestEntries(FileSystemUtil.Delegate fs) throws IOException {
+		ZipUtils.transform(fs, Map.of(Constants.Manifest.PATH, bytes -> {
 			var manifest = new Manifest(new ByteArrayInputStream(bytes));
 
 			manifest.getMainAttributes().putValue(Constants.Manifest.MAPPING_NAMESPACE, toM);
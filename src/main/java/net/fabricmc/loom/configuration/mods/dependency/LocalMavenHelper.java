@@ -41,8 +41,29 @@ public record LocalMavenHelper(String group, String name, String version, @Nulla
 		}
 
 		Files.createDirectories(getDirectory());
+		final Path outputFile = Files.copy(artifact, getOutputFile(classifier), StandardCopyOption.REPLACE_EXISTING);
+		// Only write the pom once the artifact is complete
 		savePom();
-		return Files.copy(artifact, getOutputFile(classifier), StandardCopyOption.REPLACE_EXISTING);
+		return outputFile;
+	}
+
+	/**
+	 * Prepares the maven directory for an artifact that will be written directly to the returned temporary path,
+	 * and then moved into place with {@link #moveToMaven(Path, String)} once complete.
+	 */
+	public Path prepareOutputFile(@Nullable String classifier) throws IOException {
+		Files.createDirectories(getDirectory());
+		final String fileName = getOutputFile(classifier).getFileName().toString();
+		return getDirectory().resolve(fileName.substring(0, fileName.length() - ".jar".length()) + ".tmp.jar");
+	}
+
+	/**
+	 * Moves a complete artifact into place, the pom is only written once the artifact exists.
+	 */
+	public Path moveToMaven(Path artifact, @Nullable String classifier) throws IOException {
+		final Path outputFile = Files.move(artifact, getOutputFile(classifier), StandardCopyOption.REPLACE_EXISTING);
+		savePom();
+		return outputFile;
 	}
 
 	public boolean exists(String classifier) {
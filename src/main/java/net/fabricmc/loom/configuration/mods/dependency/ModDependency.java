@@ -66,6 +66,20 @@ public abstract sealed class ModDependency permits SplitModDependency, SimpleMod
 	 */
 	public abstract void copyToCache(Project project, Path path, @Nullable String variant) throws IOException;
 
+	/**
+	 * Returns a temporary path in the local cache that an artifact can be written to directly, or null when the artifact needs
+	 * further processing and must be passed to {@link #copyToCache(Project, Path, String)} instead.
+	 *
+	 * <p>The complete artifact must then be moved into place with {@link #moveToCache(Path, String)}.
+	 */
+	@Nullable
+	public abstract Path prepareCacheFile(@Nullable String variant) throws IOException;
+
+	/**
+	 * Moves a complete artifact written to the path returned by {@link #prepareCacheFile(String)} into the local cache.
+	 */
+	public abstract void moveToCache(Path path, @Nullable String variant) throws IOException;
+
 	/**
 	 * Apply the dependency to the project.
 	 */
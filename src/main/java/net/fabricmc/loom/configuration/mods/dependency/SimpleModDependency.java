@@ -56,6 +56,16 @@ public final class SimpleModDependency extends ModDependency {
 		maven.copyToMaven(path, variant);
 	}
 
+	@Override
+	public Path prepareCacheFile(@Nullable String variant) throws IOException {
+		return maven.prepareOutputFile(variant);
+	}
+
+	@Override
+	public void moveToCache(Path path, @Nullable String variant) throws IOException {
+		maven.moveToMaven(path, variant);
+	}
+
 	@Override
 	public void applyToProject(Project project) {
 		project.getDependencies().add(targetConfig.getName(), maven.getNotation());
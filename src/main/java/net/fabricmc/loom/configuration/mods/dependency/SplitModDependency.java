@@ -102,6 +102,26 @@ public final class SplitModDependency extends ModDependency {
 		}
 	}
 
+	@Override
+	@Nullable
+	public Path prepareCacheFile(@Nullable String variant) throws IOException {
+		return switch (target) {
+		// The jar must be split by copyToCache
+		case SPLIT -> null;
+		case CLIENT_ONLY -> getClientMaven().prepareOutputFile(variant);
+		case COMMON_ONLY -> getCommonMaven().prepareOutputFile(variant);
+		};
+	}
+
+	@Override
+	public void moveToCache(Path path, @Nullable String variant) throws IOException {
+		switch (target) {
+		case SPLIT -> throw new IllegalStateException("A split jar must be copied to the cache");
+		case CLIENT_ONLY -> getClientMaven().moveToMaven(path, variant);
+		case COMMON_ONLY -> getCommonMaven().moveToMaven(path, variant);
+		}
+	}
+
 	@Override
 	public void applyToProject(Project project) {
 		if (target.common()) {
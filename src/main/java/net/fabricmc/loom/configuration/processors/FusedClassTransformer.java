@@ -0,0 +1,151 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.processors;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.api.processor.MinecraftJarProcessor;
+import net.fabricmc.loom.util.FileSystemUtil;
+
+/**
+ * Applies the {@link MinecraftJarProcessor.ClassTransformer}s of several processors in a single pass over the jar.
+ * Each targeted class is read once, passed through the visitors of every processor in order, and written once.
+ */
+final class FusedClassTransformer {
+	private static final Logger LOGGER = LoggerFactory.getLogger(FusedClassTransformer.class);
+
+	private FusedClassTransformer() {
+	}
+
+	/**
+	 * @param classCache When not null, previously transformed classes are reused from and stored in this cache
+	 * @return The number of classes that were transformed
+	 */
+	static int apply(Path jar, List<Entry> transformers, @Nullable ProcessedClassCache classCache) throws IOException {
+		final Map<String, List<Entry>> classTransformers = new TreeMap<>();
+
+		for (Entry transformer : transformers) {
+			for (String target : transformer.transformer().getTargets()) {
+				classTransformers.computeIfAbsent(target, s -> new ArrayList<>()).add(transformer);
+			}
+		}
+
+		if (classTransformers.isEmpty()) {
+			return 0;
+		}
+
+		LOGGER.debug("Applying {} class transformer(s) to {} class(es) in {}", transformers.size(), classTransformers.size(), jar);
+
+		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(jar, false)) {
+			final List<TransformedClass> transformed;
+
+			try {
+				transformed = classTransformers.entrySet().parallelStream()
+						.map(entry -> transform(fs.getPath(entry.getKey() + ".class"), entry.getKey(), entry.getValue(), classCache))
+						.filter(Objects::nonNull)
+						.toList();
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+
+			// Writes to the zip file system are serialised anyway, so do them on this thread.
+			for (TransformedClass transformedClass : transformed) {
+				Files.write(transformedClass.path(), transformedClass.bytes(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			}
+
+			return transformed.size();
+		}
+	}
+
+	@Nullable
+	private static TransformedClass transform(Path path, String className, List<Entry> transformers, @Nullable ProcessedClassCache classCache) {
+		if (Files.notExists(path)) {
+			return null;
+		}
+
+		try {
+			final byte[] input = Files.readAllBytes(path);
+			final String cacheKey = classCache != null ? ProcessedClassCache.getKey(className, input, transformers) : null;
+
+			if (cacheKey != null) {
+				final byte[] cached = classCache.get(cacheKey);
+
+				if (cached != null) {
+					return new TransformedClass(path, cached);
+				}
+			}
+
+			final byte[] output = transform(input, className, transformers);
+
+			if (cacheKey != null) {
+				classCache.put(cacheKey, output);
+			}
+
+			return new TransformedClass(path, output);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to transform " + path, e);
+		}
+	}
+
+	private static byte[] transform(byte[] input, String className, List<Entry> transformers) {
+		final ClassReader reader = new ClassReader(input);
+		final ClassWriter writer = new ClassWriter(0);
+		ClassVisitor classVisitor = writer;
+
+		// Build the chain backwards so that the first transformer sees the class first.
+		for (int i = transformers.size() - 1; i >= 0; i--) {
+			classVisitor = transformers.get(i).transformer().insertVisitor(className, classVisitor);
+		}
+
+		reader.accept(classVisitor, 0);
+		return writer.toByteArray();
+	}
+
+	/**
+	 * @param id A stable id of the transformer, used in the {@link ProcessedClassCache} key
+	 * @param transformer The transformer
+	 */
+	record Entry(String id, MinecraftJarProcessor.ClassTransformer transformer) {
+	}
+
+	private record TransformedClass(Path path, byte[] bytes) {
+	}
+}
@@ -35,6 +35,7 @@ import org.jetbrains.annotations.Nullable;
 import net.fabricmc.loom.api.processor.MinecraftJarProcessor;
 import net.fabricmc.loom.api.processor.ProcessorContext;
 import net.fabricmc.loom.api.processor.SpecContext;
+import net.fabricmc.loom.api.processor.SpecHasher;
 
 /**
  * Wrapper around the deprecated API.
@@ -67,5 +68,9 @@ public abstract class LegacyJarProcessorWrapper implements MinecraftJarProcessor
 	}
 
 	public record Spec(String cacheValue) implements MinecraftJarProcessor.Spec {
+		@Override
+		public void fingerprint(SpecHasher hasher) {
+			hasher.putString(cacheValue);
+		}
 	}
 }
@@ -33,7 +33,6 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
-import java.util.StringJoiner;
 import java.util.stream.Collectors;
 
 import org.gradle.api.Project;
@@ -52,6 +51,8 @@ import net.fabricmc.mappingio.tree.MemoryMappingTree;
 public final class MinecraftJarProcessorManager {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MinecraftJarProcessorManager.class);
 
+	private static final String REPORT_HEADER = "loom-jar-processors v1\t";
+
 	private final List<ProcessorEntry<?>> jarProcessors;
 
 	private MinecraftJarProcessorManager(List<ProcessorEntry<?>> jarProcessors) {
@@ -99,21 +100,84 @@ public final class MinecraftJarProcessorManager {
 				.collect(Collectors.joining("::"));
 	}
 
-	private String getDebugString() {
-		final var sj = new StringJoiner("\n");
+	private List<String> getReportLines() {
+		return jarProcessors.stream()
+				.sorted(Comparator.comparing(ProcessorEntry::name))
+				.map(entry -> entry.name() + "\t" + entry.fingerprint())
+				.toList();
+	}
+
+	public String getJarHash() {
+		//fabric-loom:mod-javadoc:9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08
+		return Checksum.sha1Hex(getCacheValue().getBytes(StandardCharsets.UTF_8)).substring(0, 10);
+	}
+
+	/**
+	 * Write the fingerprint of each processor, so a later run can report why the jar had to be processed again.
+	 */
+	public void writeReport(Path report) throws IOException {
+		final List<String> lines = new ArrayList<>();
+		lines.add(REPORT_HEADER + getJarHash());
+		lines.addAll(getReportLines());
+
+		Files.createDirectories(report.toAbsolutePath().getParent());
+		Files.write(report, lines, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Compare the processors against a report written by {@link #writeReport(Path)}.
+	 *
+	 * @return A description of each processor that was added, removed or whose spec has changed, empty when the report does not exist.
+	 */
+	public List<String> describeChanges(Path report) throws IOException {
+		if (Files.notExists(report)) {
+			return List.of();
+		}
+
+		final List<String> previous = new ArrayList<>(Files.readAllLines(report, StandardCharsets.UTF_8));
+
+		if (previous.isEmpty() || !previous.get(0).startsWith(REPORT_HEADER)) {
+			return List.of();
+		}
+
+		previous.remove(0);
+
+		final List<String> added = new ArrayList<>(getReportLines());
+		final List<String> removed = new ArrayList<>();
+
+		for (String line : previous) {
+			if (!added.remove(line)) {
+				removed.add(line);
+			}
+		}
+
+		final List<String> changes = new ArrayList<>();
+
+		for (String removedLine : removed) {
+			final String[] split = removedLine.split("\t", 2);
+			final String addedLine = added.stream()
+					.filter(line -> line.startsWith(split[0] + "\t"))
+					.findFirst()
+					.orElse(null);
+
+			if (addedLine != null) {
+				added.remove(addedLine);
+				changes.add("%s spec changed (%s -> %s)".formatted(split[0], shortFingerprint(removedLine), shortFingerprint(addedLine)));
+			} else {
+				changes.add("%s was removed".formatted(split[0]));
+			}
+		}
 
-		for (ProcessorEntry<?> jarProcessor : jarProcessors) {
-			sj.add(jarProcessor.name() + ":");
-			sj.add("\tHash: " + jarProcessor.hashCode());
-			sj.add("\tStr: " + jarProcessor.cacheValue());
+		for (String addedLine : added) {
+			changes.add("%s was added".formatted(addedLine.split("\t", 2)[0]));
 		}
 
-		return sj.toString();
+		return changes;
 	}
 
-	public String getJarHash() {
-		//fabric-loom:mod-javadoc:-1289977000
-		return Checksum.sha1Hex(getCacheValue().getBytes(StandardCharsets.UTF_8)).substring(0, 10);
+	private static String shortFingerprint(String line) {
+		final String fingerprint = line.substring(line.indexOf('\t') + 1);
+		return fingerprint.substring(0, Math.min(10, fingerprint.length()));
 	}
 
 	public boolean requiresProcessingJar(Path jar) {
@@ -128,13 +192,58 @@ public final class MinecraftJarProcessorManager {
 	}
 
 	public void processJar(Path jar, ProcessorContext context) throws IOException {
+		processJar(jar, context, null);
+	}
+
+	/**
+	 * @param classCache When not null, classes transformed by {@link MinecraftJarProcessor.ClassTransformer}s are reused from and stored in this cache
+	 */
+	public void processJar(Path jar, ProcessorContext context, @Nullable ProcessedClassCache classCache) throws IOException {
+		// Consecutive processors that can transform individual classes are fused into a single pass over the jar.
+		final List<FusedClassTransformer.Entry> fusedTransformers = new ArrayList<>();
+
 		for (ProcessorEntry<?> entry : jarProcessors) {
+			final MinecraftJarProcessor.ClassTransformer transformer;
+
+			try {
+				transformer = entry.createClassTransformer(context);
+			} catch (IOException e) {
+				throw new IOException("Failed to process jar when running jar processor: %s".formatted(entry.name()), e);
+			}
+
+			if (transformer != null) {
+				// The processor name is used to identify the transformer in the class cache
+				fusedTransformers.add(new FusedClassTransformer.Entry(entry.name(), transformer));
+				continue;
+			}
+
+			applyClassTransformers(jar, fusedTransformers, classCache);
+
 			try {
 				entry.processJar(jar, context);
 			} catch (IOException e) {
 				throw new IOException("Failed to process jar when running jar processor: %s".formatted(entry.name()), e);
 			}
 		}
+
+		applyClassTransformers(jar, fusedTransformers, classCache);
+	}
+
+	private static void applyClassTransformers(Path jar, List<FusedClassTransformer.Entry> transformers, @Nullable ProcessedClassCache classCache) throws IOException {
+		if (transformers.isEmpty()) {
+			return;
+		}
+
+		final String names = transformers.stream().map(FusedClassTransformer.Entry::id).collect(Collectors.joining(", "));
+
+		try {
+			int transformed = FusedClassTransformer.apply(jar, transformers, classCache);
+			LOGGER.debug("Transformed {} classes with jar processors: {}", transformed, names);
+		} catch (IOException e) {
+			throw new IOException("Failed to process jar when running jar processors: %s".formatted(names), e);
+		}
+
+		transformers.clear();
 	}
 
 	public boolean processMappings(MemoryMappingTree mappings, MappingProcessorContext context) {
@@ -149,16 +258,21 @@ public final class MinecraftJarProcessorManager {
 		return transformed;
 	}
 
-	record ProcessorEntry<S extends MinecraftJarProcessor.Spec>(S spec, MinecraftJarProcessor<S> processor, @Nullable MinecraftJarProcessor.MappingsProcessor<S> mappingsProcessor) {
+	record ProcessorEntry<S extends MinecraftJarProcessor.Spec>(S spec, MinecraftJarProcessor<S> processor, @Nullable MinecraftJarProcessor.MappingsProcessor<S> mappingsProcessor, String fingerprint) {
 		@SuppressWarnings("unchecked")
 		ProcessorEntry(MinecraftJarProcessor<?> processor, MinecraftJarProcessor.Spec spec) {
-			this((S) Objects.requireNonNull(spec), (MinecraftJarProcessor<S>) processor, (MinecraftJarProcessor.MappingsProcessor<S>) processor.processMappings());
+			this((S) Objects.requireNonNull(spec), (MinecraftJarProcessor<S>) processor, (MinecraftJarProcessor.MappingsProcessor<S>) processor.processMappings(), SpecHasherImpl.fingerprint(spec));
 		}
 
 		private void processJar(Path jar, ProcessorContext context) throws IOException {
 			processor().processJar(jar, spec, context);
 		}
 
+		@Nullable
+		private MinecraftJarProcessor.ClassTransformer createClassTransformer(ProcessorContext context) throws IOException {
+			return processor().createClassTransformer(spec, context);
+		}
+
 		private boolean processMappings(MemoryMappingTree mappings, MappingProcessorContext context) {
 			if (mappingsProcessor() == null) {
 				return false;
@@ -172,7 +286,7 @@ public final class MinecraftJarProcessorManager {
 		}
 
 		private String cacheValue() {
-			return processor.getName() + ":" + spec.hashCode();
+			return processor.getName() + ":" + fingerprint;
 		}
 	}
 }
@@ -47,6 +47,7 @@ import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.api.processor.MinecraftJarProcessor;
 import net.fabricmc.loom.api.processor.ProcessorContext;
 import net.fabricmc.loom.api.processor.SpecContext;
+import net.fabricmc.loom.api.processor.SpecHasher;
 import net.fabricmc.loom.util.Checksum;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.fmj.FabricModJson;
@@ -90,6 +91,15 @@ public abstract class ModJavadocProcessor implements MinecraftJarProcessor<ModJa
 	}
 
 	public record Spec(List<ModJavadoc> javadocs) implements MinecraftJarProcessor.Spec {
+		@Override
+		public void fingerprint(SpecHasher hasher) {
+			hasher.putInt(javadocs.size());
+
+			for (ModJavadoc javadoc : javadocs) {
+				hasher.putString(javadoc.modId());
+				hasher.putString(javadoc.mappingsHash());
+			}
+		}
 	}
 
 	@Override
@@ -97,6 +107,12 @@ public abstract class ModJavadocProcessor implements MinecraftJarProcessor<ModJa
 		// Nothing to do for the jar
 	}
 
+	@Override
+	public ClassTransformer createClassTransformer(Spec spec, ProcessorContext context) {
+		// Nothing to do for the jar, but don't prevent the surrounding processors from being fused.
+		return ClassTransformer.NONE;
+	}
+
 	@Override
 	public @Nullable MappingsProcessor<Spec> processMappings() {
 		return (mappings, spec, context) -> {
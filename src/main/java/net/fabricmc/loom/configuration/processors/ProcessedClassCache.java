@@ -0,0 +1,140 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.processors;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.decompilers.cache.CachedFileStore;
+import net.fabricmc.loom.decompilers.cache.IndexedCachedFileStore;
+import net.fabricmc.loom.util.CacheRules;
+
+/**
+ * A content addressed store of classes transformed by jar processors, shared between projects.
+ *
+ * <p>Entries are keyed by the hash of the input class, and the ids and fingerprints of the transformers applied to it,
+ * so when a spec changes only the classes whose fingerprints changed have to be transformed again.
+ * The Loom version is also part of the key, as the output of the built-in transformers may change between versions.
+ */
+public final class ProcessedClassCache implements Closeable {
+	private static final CacheRules CACHE_RULES = new CacheRules(100_000, 512L * 1024 * 1024, Duration.ofDays(30));
+
+	private final IndexedCachedFileStore<byte[]> store;
+
+	private ProcessedClassCache(IndexedCachedFileStore<byte[]> store) {
+		this.store = store;
+	}
+
+	public static ProcessedClassCache open(Path path) throws IOException {
+		return new ProcessedClassCache(IndexedCachedFileStore.open(path, BytesSerializer.INSTANCE, CACHE_RULES));
+	}
+
+	/**
+	 * @return The cache key for the class, or {@code null} if any of the transformers cannot fingerprint it.
+	 */
+	@Nullable
+	static String getKey(String className, byte[] input, List<FusedClassTransformer.Entry> transformers) {
+		final Hasher hasher = Hashing.sha256().newHasher();
+		putString(hasher, LoomGradlePlugin.LOOM_VERSION);
+		hasher.putInt(input.length).putBytes(input);
+
+		for (FusedClassTransformer.Entry transformer : transformers) {
+			final String fingerprint = transformer.transformer().getFingerprint(className);
+
+			if (fingerprint == null) {
+				return null;
+			}
+
+			putString(hasher, transformer.id());
+			putString(hasher, fingerprint);
+		}
+
+		return hasher.hash().toString();
+	}
+
+	private static void putString(Hasher hasher, String string) {
+		final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		hasher.putInt(bytes.length).putBytes(bytes);
+	}
+
+	@Nullable
+	byte[] get(String key) throws IOException {
+		return store.getEntry(key);
+	}
+
+	void put(String key, byte[] bytes) throws IOException {
+		store.putEntry(key, bytes);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try (store) {
+			store.prune();
+		}
+	}
+
+	private enum BytesSerializer implements CachedFileStore.BufferEntrySerializer<byte[]> {
+		INSTANCE;
+
+		@Override
+		public byte[] read(Path path) throws IOException {
+			return Files.readAllBytes(path);
+		}
+
+		@Override
+		public void write(byte[] entry, Path path) throws IOException {
+			Files.write(path, entry);
+		}
+
+		@Override
+		public byte[] read(ByteBuffer buffer) {
+			// Copy, the buffer is a view of the whole record read from the store
+			final byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			return bytes;
+		}
+
+		@Override
+		public void write(byte[] entry, FileChannel fileChannel) throws IOException {
+			final ByteBuffer buffer = ByteBuffer.wrap(entry);
+
+			while (buffer.hasRemaining()) {
+				fileChannel.write(buffer);
+			}
+		}
+	}
+}
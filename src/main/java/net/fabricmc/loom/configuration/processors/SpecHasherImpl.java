@@ -0,0 +1,79 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.processors;
+
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.loom.api.processor.MinecraftJarProcessor;
+import net.fabricmc.loom.api.processor.SpecHasher;
+
+final class SpecHasherImpl implements SpecHasher {
+	private final Hasher hasher = Hashing.sha256().newHasher();
+
+	static String fingerprint(MinecraftJarProcessor.Spec spec) {
+		final var hasher = new SpecHasherImpl();
+		spec.fingerprint(hasher);
+		return hasher.hasher.hash().toString();
+	}
+
+	@Override
+	public SpecHasher putString(@Nullable String value) {
+		if (value == null) {
+			hasher.putBoolean(false);
+			return this;
+		}
+
+		hasher.putBoolean(true);
+		return putBytes(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public SpecHasher putBytes(byte[] value) {
+		hasher.putInt(value.length).putBytes(value);
+		return this;
+	}
+
+	@Override
+	public SpecHasher putInt(int value) {
+		hasher.putInt(value);
+		return this;
+	}
+
+	@Override
+	public SpecHasher putLong(long value) {
+		hasher.putLong(value);
+		return this;
+	}
+
+	@Override
+	public SpecHasher putBoolean(boolean value) {
+		hasher.putBoolean(value);
+		return this;
+	}
+}
@@ -31,6 +31,7 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -48,6 +49,8 @@ import net.fabricmc.loom.configuration.ConfigContext;
 import net.fabricmc.loom.configuration.mods.dependency.LocalMavenHelper;
 import net.fabricmc.loom.configuration.providers.mappings.extras.unpick.UnpickLayer;
 import net.fabricmc.loom.configuration.providers.mappings.utils.AddConstructorMappingVisitor;
+import net.fabricmc.loom.util.DeletingFileVisitor;
+import net.fabricmc.loom.util.Pair;
 import net.fabricmc.loom.util.ZipUtils;
 import net.fabricmc.mappingio.adapter.MappingDstNsReorder;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
@@ -87,20 +90,28 @@ public record LayeredMappingsFactory(LayeredMappingSpec spec) {
 		final MappingContext mappingContext = new GradleMappingContext(project, spec.getVersion().replace("+", "_").replace(".", "_"));
 		final Path mappingsDir = mappingContext.minecraftProvider().dir("layered").toPath();
 		final Path mappingsZip = mappingsDir.resolve(String.format("%s.%s-%s.jar", GROUP, MODULE, spec.getVersion()));
+		// The merged mappings after each layer, shared by all the layered mappings of this Minecraft version
+		final Path layersCacheDir = mappingsDir.resolve("layers");
 
 		if (Files.exists(mappingsZip) && !mappingContext.refreshDeps()) {
 			return mappingsZip;
 		}
 
+		if (mappingContext.refreshDeps() && Files.exists(layersCacheDir)) {
+			Files.walkFileTree(layersCacheDir, new DeletingFileVisitor());
+		}
+
 		boolean noIntermediateMappings = extension.getIntermediateMappingsProvider() instanceof NoOpIntermediateMappingsProvider;
 		var processor = new LayeredMappingsProcessor(spec, noIntermediateMappings);
 		List<MappingLayer> layers = processor.resolveLayers(mappingContext);
 
-		Files.deleteIfExists(mappingsZip);
+		final List<Pair<String, byte[]>> entries = new ArrayList<>();
+		entries.add(new Pair<>("mappings/mappings.tiny", writeMapping(processor, layers, layersCacheDir)));
+		addSignatureFixes(processor, layers, entries);
+		addUnpickData(processor, layers, entries);
 
-		writeMapping(processor, layers, mappingsZip);
-		writeSignatureFixes(processor, layers, mappingsZip);
-		writeUnpickData(processor, layers, mappingsZip);
+		Files.deleteIfExists(mappingsZip);
+		ZipUtils.add(mappingsZip, entries);
 
 		return mappingsZip;
 	}
@@ -113,8 +124,8 @@ public record LayeredMappingsFactory(LayeredMappingSpec spec) {
 		return String.format("%s:%s:%s", GROUP, MODULE, spec.getVersion());
 	}
 
-	private void writeMapping(LayeredMappingsProcessor processor, List<MappingLayer> layers, Path mappingsFile) throws IOException {
-		MemoryMappingTree mappings = processor.getMappings(layers);
+	private byte[] writeMapping(LayeredMappingsProcessor processor, List<MappingLayer> layers, Path layersCacheDir) throws IOException {
+		MemoryMappingTree mappings = processor.getMappings(layers, layersCacheDir);
 
 		try (Writer writer = new StringWriter()) {
 			var tiny2Writer = new Tiny2FileWriter(writer, false);
@@ -124,12 +135,11 @@ public record LayeredMappingsFactory(LayeredMappingSpec spec) {
 			AddConstructorMappingVisitor addConstructor = new AddConstructorMappingVisitor(nsSwitch);
 			mappings.accept(addConstructor);
 
-			Files.deleteIfExists(mappingsFile);
-			ZipUtils.add(mappingsFile, "mappings/mappings.tiny", writer.toString().getBytes(StandardCharsets.UTF_8));
+			return writer.toString().getBytes(StandardCharsets.UTF_8);
 		}
 	}
 
-	private void writeSignatureFixes(LayeredMappingsProcessor processor, List<MappingLayer> layers, Path mappingsFile) throws IOException {
+	private void addSignatureFixes(LayeredMappingsProcessor processor, List<MappingLayer> layers, List<Pair<String, byte[]>> entries) {
 		Map<String, String> signatureFixes = processor.getSignatureFixes(layers);
 
 		if (signatureFixes == null) {
@@ -138,17 +148,17 @@ public record LayeredMappingsFactory(LayeredMappingSpec spec) {
 
 		byte[] data = LoomGradlePlugin.GSON.toJson(signatureFixes).getBytes(StandardCharsets.UTF_8);
 
-		ZipUtils.add(mappingsFile, "extras/record_signatures.json", data);
+		entries.add(new Pair<>("extras/record_signatures.json", data));
 	}
 
-	private void writeUnpickData(LayeredMappingsProcessor processor, List<MappingLayer> layers, Path mappingsFile) throws IOException {
+	private void addUnpickData(LayeredMappingsProcessor processor, List<MappingLayer> layers, List<Pair<String, byte[]>> entries) throws IOException {
 		UnpickLayer.UnpickData unpickData = processor.getUnpickData(layers);
 
 		if (unpickData == null) {
 			return;
 		}
 
-		ZipUtils.add(mappingsFile, "extras/definitions.unpick", unpickData.definitions());
-		ZipUtils.add(mappingsFile, "extras/unpick.json", unpickData.metadata().asJson());
+		entries.add(new Pair<>("extras/definitions.unpick", unpickData.definitions()));
+		entries.add(new Pair<>("extras/unpick.json", unpickData.metadata().asJson().getBytes(StandardCharsets.UTF_8)));
 	}
 }
@@ -24,15 +24,29 @@
 
 package net.fabricmc.loom.configuration.providers.mappings;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import net.fabricmc.loom.api.mappings.layered.MappingContext;
 import net.fabricmc.loom.api.mappings.layered.MappingLayer;
@@ -42,9 +56,13 @@ import net.fabricmc.loom.configuration.providers.mappings.extras.signatures.Sign
 import net.fabricmc.loom.configuration.providers.mappings.extras.unpick.UnpickLayer;
 import net.fabricmc.mappingio.adapter.MappingNsCompleter;
 import net.fabricmc.mappingio.adapter.MappingSourceNsSwitch;
+import net.fabricmc.mappingio.format.tiny.Tiny2FileReader;
+import net.fabricmc.mappingio.format.tiny.Tiny2FileWriter;
 import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
 public class LayeredMappingsProcessor {
+	private static final Logger LOGGER = LoggerFactory.getLogger(LayeredMappingsProcessor.class);
+	private static final Duration CACHED_TREE_MAX_AGE = Duration.ofDays(30);
 	private final LayeredMappingSpec layeredMappingSpec;
 	private final boolean noIntermediateMappings;
 
@@ -74,37 +92,40 @@ public class LayeredMappingsProcessor {
 	}
 
 	public MemoryMappingTree getMappings(List<MappingLayer> layers) throws IOException {
-		MemoryMappingTree mappingTree = new MemoryMappingTree();
+		return getMappings(layers, null);
+	}
 
-		for (MappingLayer layer : layers) {
-			// We have to rebuild a new tree to work on when a layer doesnt merge into layered
-			boolean rebuild = layer.getSourceNamespace() != MappingsNamespace.NAMED;
-			MemoryMappingTree workingTree;
+	/**
+	 * Applies the layers in order, when a cache directory is provided the merged tree is stored after each layer but the last,
+	 * as the final tree is already stored by the caller. A cached tree is keyed by the hashes of the specs of its layer and all the layers below it,
+	 * so only the layers above the highest unchanged layer are applied again. The cache directory is shared with other layered mappings
+	 * of the same Minecraft version, so cached trees are only removed once they have not been used for a while.
+	 */
+	public MemoryMappingTree getMappings(List<MappingLayer> layers, @Nullable Path cacheDir) throws IOException {
+		final List<String> cacheKeys = cacheDir != null ? getCacheKeys(layers) : List.of();
+		MemoryMappingTree mappingTree = null;
+		int start = 0;
 
-			if (rebuild) {
-				var tempTree = new MemoryMappingTree();
+		for (int i = cacheKeys.size() - 1; i > 0 && mappingTree == null; i--) {
+			mappingTree = readCachedTree(cacheDir.resolve(cacheKeys.get(i - 1)));
+			start = i;
+		}
 
-				// This can be null on the first layer
-				if (mappingTree.getSrcNamespace() != null) {
-					var sourceNsSwitch = new MappingSourceNsSwitch(tempTree, layer.getSourceNamespace().toString());
-					mappingTree.accept(sourceNsSwitch);
-				}
+		if (mappingTree == null) {
+			mappingTree = new MemoryMappingTree();
+			start = 0;
+		}
 
-				workingTree = tempTree;
-			} else {
-				workingTree = mappingTree;
-			}
+		for (int i = start; i < layers.size(); i++) {
+			mappingTree = applyLayer(mappingTree, layers.get(i));
 
-			try {
-				layer.visit(workingTree);
-			} catch (IOException e) {
-				throw new IOException("Failed to visit: " + layer.getClass(), e);
+			if (!cacheKeys.isEmpty() && i < layers.size() - 1) {
+				writeCachedTree(cacheDir.resolve(cacheKeys.get(i)), mappingTree);
 			}
+		}
 
-			if (rebuild) {
-				mappingTree = new MemoryMappingTree();
-				workingTree.accept(new MappingSourceNsSwitch(mappingTree, MappingsNamespace.NAMED.toString()));
-			}
+		if (!cacheKeys.isEmpty()) {
+			pruneCachedTrees(cacheDir);
 		}
 
 		if (noIntermediateMappings) {
@@ -117,6 +138,127 @@ public class LayeredMappingsProcessor {
 		return mappingTree;
 	}
 
+	private static MemoryMappingTree applyLayer(MemoryMappingTree mappingTree, MappingLayer layer) throws IOException {
+		// We have to rebuild a new tree to work on when a layer doesnt merge into layered
+		boolean rebuild = layer.getSourceNamespace() != MappingsNamespace.NAMED;
+		MemoryMappingTree workingTree;
+
+		if (rebuild) {
+			var tempTree = new MemoryMappingTree();
+
+			// This can be null on the first layer
+			if (mappingTree.getSrcNamespace() != null) {
+				var sourceNsSwitch = new MappingSourceNsSwitch(tempTree, layer.getSourceNamespace().toString());
+				mappingTree.accept(sourceNsSwitch);
+			}
+
+			workingTree = tempTree;
+		} else {
+			workingTree = mappingTree;
+		}
+
+		try {
+			layer.visit(workingTree);
+		} catch (IOException e) {
+			throw new IOException("Failed to visit: " + layer.getClass(), e);
+		}
+
+		if (rebuild) {
+			mappingTree = new MemoryMappingTree();
+			workingTree.accept(new MappingSourceNsSwitch(mappingTree, MappingsNamespace.NAMED.toString()));
+		}
+
+		return mappingTree;
+	}
+
+	// The cache file name of the tree after each layer, from the hash of the specs of the layer and the layers below it
+	private List<String> getCacheKeys(List<MappingLayer> layers) {
+		final List<MappingsSpec<?>> specs = layeredMappingSpec.layers();
+
+		if (specs.size() != layers.size()) {
+			return List.of();
+		}
+
+		final List<String> keys = new ArrayList<>(specs.size());
+		int hash = 1;
+
+		for (int i = 0; i < specs.size(); i++) {
+			// Matches List.hashCode of the specs up to and including this layer
+			hash = 31 * hash + specs.get(i).hashCode();
+			keys.add(String.format(Locale.ENGLISH, "%d-%08x.tiny", i, hash));
+		}
+
+		return keys;
+	}
+
+	@Nullable
+	private static MemoryMappingTree readCachedTree(Path path) {
+		if (Files.notExists(path)) {
+			return null;
+		}
+
+		final MemoryMappingTree mappingTree = new MemoryMappingTree();
+
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			Tiny2FileReader.read(reader, mappingTree);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to read cached mapping layer {}", path, e);
+			return null;
+		}
+
+		try {
+			// The last modified time is the last time the tree was used
+			Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+		} catch (IOException e) {
+			LOGGER.debug("Failed to update the last used time of {}", path, e);
+		}
+
+		return mappingTree;
+	}
+
+	private static void writeCachedTree(Path path, MemoryMappingTree mappingTree) throws IOException {
+		Files.createDirectories(path.getParent());
+		final Path tempFile = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+
+		try {
+			try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+				mappingTree.accept(new Tiny2FileWriter(writer, false));
+			}
+
+			// Only expose fully written trees
+			Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	private static void pruneCachedTrees(Path cacheDir) throws IOException {
+		if (Files.notExists(cacheDir)) {
+			return;
+		}
+
+		final Instant maxAge = Instant.now().minus(CACHED_TREE_MAX_AGE);
+
+		try (Stream<Path> stream = Files.list(cacheDir)) {
+			for (Path path : stream.toList()) {
+				final FileTime lastUsed;
+
+				try {
+					lastUsed = Files.getLastModifiedTime(path);
+				} catch (NoSuchFileException e) {
+					// Removed by another build
+					continue;
+				}
+
+				// Includes temp files left behind by an interrupted build, a tree still being written is never this old
+				if (lastUsed.toInstant().isBefore(maxAge)) {
+					LOGGER.debug("Removing unused cached mapping layer {}", path);
+					Files.deleteIfExists(path);
+				}
+			}
+		}
+	}
+
 	@Nullable
 	public Map<String, String> getSignatureFixes(List<MappingLayer> layers) {
 		Map<String, String> signatureFixes = new HashMap<>();
@@ -24,54 +24,48 @@
 
 package net.fabricmc.loom.configuration.providers.minecraft;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.StandardOpenOption;
-import java.nio.file.attribute.BasicFileAttributeView;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 
 import net.fabricmc.loom.util.Constants;
-import net.fabricmc.loom.util.FileSystemUtil;
 import net.fabricmc.loom.util.SnowmanClassVisitor;
 import net.fabricmc.loom.util.SyntheticParameterClassVisitor;
 
+/**
+ * Merges the client and server jars into a single jar.
+ *
+ * <p>Both jars are walked in entry name order and merge-joined, entries are merged in fixed size batches
+ * so that only a bounded number of classes are held in memory at once, and the output is streamed in name order.
+ */
 public class MinecraftJarMerger implements AutoCloseable {
-	public static class Entry {
-		public final Path path;
-		public final BasicFileAttributes metadata;
-		public final byte[] data;
-
-		public Entry(Path path, BasicFileAttributes metadata, byte[] data) {
-			this.path = path;
-			this.metadata = metadata;
-			this.data = data;
-		}
-	}
-
+	// The number of entries merged in parallel before being written out
+	private static final int BATCH_SIZE = 256;
+	private static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+	private static final byte[] MANIFEST = "Manifest-Version: 1.0\nMain-Class: net.minecraft.client.Main\n".getBytes(StandardCharsets.UTF_8);
 	private static final MinecraftClassMerger CLASS_MERGER = new MinecraftClassMerger();
-	private final FileSystemUtil.Delegate inputClientFs, inputServerFs, outputFs;
-	private final Path inputClient, inputServer;
-	private final Map<String, Entry> entriesClient, entriesServer;
-	private final Set<String> entriesAll;
+	private final ZipFile inputClient, inputServer;
+	private final Path output;
 	private boolean removeSnowmen = false;
 	private boolean offsetSyntheticsParams = false;
 
@@ -84,13 +78,16 @@ public class MinecraftJarMerger implements AutoCloseable {
 
 		Files.createDirectories(output.toPath().getParent());
 
-		this.inputClient = (inputClientFs = FileSystemUtil.getJarFileSystem(inputClient, false)).get().getPath("/");
-		this.inputServer = (inputServerFs = FileSystemUtil.getJarFileSystem(inputServer, false)).get().getPath("/");
-		this.outputFs = FileSystemUtil.getJarFileSystem(output, true);
+		this.inputClient = new ZipFile(inputClient);
+
+		try {
+			this.inputServer = new ZipFile(inputServer);
+		} catch (IOException e) {
+			this.inputClient.close();
+			throw e;
+		}
 
-		this.entriesClient = new HashMap<>();
-		this.entriesServer = new HashMap<>();
-		this.entriesAll = new TreeSet<>();
+		this.output = output.toPath();
 	}
 
 	public void enableSnowmanRemoval() {
@@ -103,148 +100,192 @@ public class MinecraftJarMerger implements AutoCloseable {
 
 	@Override
 	public void close() throws IOException {
-		inputClientFs.close();
-		inputServerFs.close();
-		outputFs.close();
+		inputClient.close();
+		inputServer.close();
 	}
 
-	private void readToMap(Map<String, Entry> map, Path input) {
-		try {
-			Files.walkFileTree(input, new SimpleFileVisitor<>() {
-				@Override
-				public FileVisitResult visitFile(Path path, BasicFileAttributes attr) throws IOException {
-					if (attr.isDirectory()) {
-						return FileVisitResult.CONTINUE;
-					}
-
-					if (!path.getFileName().toString().endsWith(".class")) {
-						if (path.toString().equals("/META-INF/MANIFEST.MF")) {
-							map.put("META-INF/MANIFEST.MF", new Entry(path, attr,
-									"Manifest-Version: 1.0\nMain-Class: net.minecraft.client.Main\n".getBytes(StandardCharsets.UTF_8)));
-						} else {
-							if (path.toString().startsWith("/META-INF/")) {
-								if (path.toString().endsWith(".SF") || path.toString().endsWith(".RSA")) {
-									return FileVisitResult.CONTINUE;
-								}
-							}
-
-							map.put(path.toString().substring(1), new Entry(path, attr, null));
-						}
-
-						return FileVisitResult.CONTINUE;
-					}
-
-					byte[] output = Files.readAllBytes(path);
-					map.put(path.toString().substring(1), new Entry(path, attr, output));
-					return FileVisitResult.CONTINUE;
+	public void merge() throws IOException {
+		final List<? extends ZipEntry> clientEntries = sortedEntries(inputClient);
+		final List<? extends ZipEntry> serverEntries = sortedEntries(inputServer);
+
+		try (var zos = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+			final Set<String> directories = new HashSet<>();
+			final List<EntryPair> batch = new ArrayList<>(BATCH_SIZE);
+			int clientIndex = 0;
+			int serverIndex = 0;
+
+			while (clientIndex < clientEntries.size() || serverIndex < serverEntries.size()) {
+				final ZipEntry client = clientIndex < clientEntries.size() ? clientEntries.get(clientIndex) : null;
+				final ZipEntry server = serverIndex < serverEntries.size() ? serverEntries.get(serverIndex) : null;
+				final int compare = client == null ? 1 : server == null ? -1 : client.getName().compareTo(server.getName());
+
+				if (compare == 0) {
+					batch.add(new EntryPair(client.getName(), client, server));
+					clientIndex++;
+					serverIndex++;
+				} else if (compare < 0) {
+					batch.add(new EntryPair(client.getName(), client, null));
+					clientIndex++;
+				} else {
+					batch.add(new EntryPair(server.getName(), null, server));
+					serverIndex++;
 				}
-			});
-		} catch (IOException e) {
-			e.printStackTrace();
+
+				if (batch.size() == BATCH_SIZE) {
+					writeBatch(zos, batch, directories);
+					batch.clear();
+				}
+			}
+
+			writeBatch(zos, batch, directories);
 		}
 	}
 
-	private void add(Entry entry) throws IOException {
-		Path outPath = outputFs.get().getPath(entry.path.toString());
+	private static List<? extends ZipEntry> sortedEntries(ZipFile zipFile) {
+		return zipFile.stream()
+				.filter(entry -> !entry.isDirectory())
+				.sorted(Comparator.comparing(ZipEntry::getName))
+				.toList();
+	}
+
+	private void writeBatch(ZipOutputStream zos, List<EntryPair> batch, Set<String> directories) throws IOException {
+		final List<MergedEntry> merged;
 
-		if (outPath.getParent() != null) {
-			Files.createDirectories(outPath.getParent());
+		try {
+			merged = batch.parallelStream().map(this::mergeEntry).filter(Objects::nonNull).toList();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
 		}
 
-		if (entry.data != null) {
-			Files.write(outPath, entry.data, StandardOpenOption.CREATE_NEW);
-		} else {
-			Files.copy(entry.path, outPath);
+		for (MergedEntry entry : merged) {
+			writeDirectories(zos, entry.name(), directories);
+
+			final ZipEntry zipEntry = new ZipEntry(entry.name());
+			copyTimes(entry.source(), zipEntry);
+			zos.putNextEntry(zipEntry);
+
+			if (entry.data() != null) {
+				zos.write(entry.data());
+			} else {
+				try (InputStream is = entry.sourceZip().getInputStream(entry.source())) {
+					is.transferTo(zos);
+				}
+			}
+
+			zos.closeEntry();
 		}
+	}
+
+	private static void writeDirectories(ZipOutputStream zos, String name, Set<String> directories) throws IOException {
+		int index = name.indexOf('/');
+
+		while (index != -1) {
+			final String directory = name.substring(0, index + 1);
+
+			if (directories.add(directory)) {
+				zos.putNextEntry(new ZipEntry(directory));
+				zos.closeEntry();
+			}
 
-		Files.getFileAttributeView(outPath, BasicFileAttributeView.class)
-				.setTimes(
-						entry.metadata.creationTime(),
-						entry.metadata.lastAccessTime(),
-						entry.metadata.lastModifiedTime()
-				);
+			index = name.indexOf('/', index + 1);
+		}
 	}
 
-	public void merge() throws IOException {
-		ExecutorService service = Executors.newFixedThreadPool(2);
-		service.submit(() -> readToMap(entriesClient, inputClient));
-		service.submit(() -> readToMap(entriesServer, inputServer));
-		service.shutdown();
+	private static void copyTimes(ZipEntry from, ZipEntry to) {
+		if (from.getLastModifiedTime() != null) {
+			to.setLastModifiedTime(from.getLastModifiedTime());
+		}
 
-		try {
-			service.awaitTermination(1, TimeUnit.HOURS);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+		if (from.getCreationTime() != null) {
+			to.setCreationTime(from.getCreationTime());
 		}
 
-		entriesAll.addAll(entriesClient.keySet());
-		entriesAll.addAll(entriesServer.keySet());
+		if (from.getLastAccessTime() != null) {
+			to.setLastAccessTime(from.getLastAccessTime());
+		}
+	}
 
-		List<Entry> entries = entriesAll.parallelStream().map((entry) -> {
-			boolean isClass = entry.endsWith(".class");
-			boolean isMinecraft = entriesClient.containsKey(entry) || entry.startsWith("net/minecraft") || !entry.contains("/");
-			Entry result;
-			String side = null;
+	@Nullable
+	private MergedEntry mergeEntry(EntryPair pair) {
+		final String name = pair.name();
+		final ZipEntry client = pair.client();
+		final ZipEntry server = pair.server();
+		final ZipEntry source = client != null ? client : server;
 
-			Entry entry1 = entriesClient.get(entry);
-			Entry entry2 = entriesServer.get(entry);
+		if (name.equals(MANIFEST_NAME)) {
+			return new MergedEntry(name, source, MANIFEST, null);
+		}
 
-			if (entry1 != null && entry2 != null) {
-				if (Arrays.equals(entry1.data, entry2.data)) {
-					result = entry1;
-				} else {
-					if (isClass) {
-						result = new Entry(entry1.path, entry1.metadata, CLASS_MERGER.merge(entry1.data, entry2.data));
-					} else {
-						// FIXME: More heuristics?
-						result = entry1;
-					}
-				}
-			} else if ((result = entry1) != null) {
-				side = "CLIENT";
-			} else if ((result = entry2) != null) {
-				side = "SERVER";
+		if (!name.endsWith(".class")) {
+			if (name.startsWith("META-INF/") && (name.endsWith(".SF") || name.endsWith(".RSA"))) {
+				return null;
 			}
 
-			if (isClass && !isMinecraft && "SERVER".equals(side)) {
+			// FIXME: More heuristics? Resources present in both jars always come from the client.
+			return new MergedEntry(name, source, null, client != null ? inputClient : inputServer);
+		}
+
+		final boolean isMinecraft = client != null || name.startsWith("net/minecraft") || !name.contains("/");
+		String side = null;
+		byte[] data;
+
+		if (client != null && server != null) {
+			final byte[] clientData = read(inputClient, client);
+			final byte[] serverData = read(inputServer, server);
+			data = Arrays.equals(clientData, serverData) ? clientData : CLASS_MERGER.merge(clientData, serverData);
+		} else if (client != null) {
+			side = "CLIENT";
+			data = read(inputClient, client);
+		} else {
+			if (!isMinecraft) {
 				// Server bundles libraries, client doesn't - skip them
 				return null;
 			}
 
-			if (result != null) {
-				if (isMinecraft && isClass) {
-					byte[] data = result.data;
-					ClassReader reader = new ClassReader(data);
-					ClassWriter writer = new ClassWriter(0);
-					ClassVisitor visitor = writer;
-
-					if (side != null) {
-						visitor = new MinecraftClassMerger.SidedClassVisitor(Constants.ASM_VERSION, visitor, side);
-					}
-
-					if (removeSnowmen) {
-						visitor = new SnowmanClassVisitor(Constants.ASM_VERSION, visitor);
-					}
-
-					if (offsetSyntheticsParams) {
-						visitor = new SyntheticParameterClassVisitor(Constants.ASM_VERSION, visitor);
-					}
-
-					if (visitor != writer) {
-						reader.accept(visitor, 0);
-						data = writer.toByteArray();
-						result = new Entry(result.path, result.metadata, data);
-					}
-				}
+			side = "SERVER";
+			data = read(inputServer, server);
+		}
 
-				return result;
-			} else {
-				return null;
+		if (isMinecraft) {
+			ClassReader reader = new ClassReader(data);
+			ClassWriter writer = new ClassWriter(0);
+			ClassVisitor visitor = writer;
+
+			if (side != null) {
+				visitor = new MinecraftClassMerger.SidedClassVisitor(Constants.ASM_VERSION, visitor, side);
+			}
+
+			if (removeSnowmen) {
+				visitor = new SnowmanClassVisitor(Constants.ASM_VERSION, visitor);
+			}
+
+			if (offsetSyntheticsParams) {
+				visitor = new SyntheticParameterClassVisitor(Constants.ASM_VERSION, visitor);
+			}
+
+			if (visitor != writer) {
+				reader.accept(visitor, 0);
+				data = writer.toByteArray();
 			}
-		}).filter(Objects::nonNull).toList();
+		}
+
+		return new MergedEntry(name, source, data, null);
+	}
 
-		for (Entry e : entries) {
-			add(e);
+	private static byte[] read(ZipFile zipFile, ZipEntry entry) {
+		try (InputStream is = zipFile.getInputStream(entry)) {
+			return is.readAllBytes();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read %s from %s".formatted(entry.getName(), zipFile.getName()), e);
 		}
 	}
+
+	private record EntryPair(String name, @Nullable ZipEntry client, @Nullable ZipEntry server) {
+	}
+
+	/**
+	 * An entry of the merged jar, either with its final contents or copied as is from the source zip.
+	 */
+	private record MergedEntry(String name, ZipEntry source, @Nullable byte[] data, @Nullable ZipFile sourceZip) {
+	}
 }
@@ -27,20 +27,19 @@ package net.fabricmc.loom.configuration.providers.minecraft;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Objects;
 import java.util.Set;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
-import java.util.stream.Stream;
 
 import com.google.common.collect.Sets;
 
 import net.fabricmc.loom.util.Constants;
-import net.fabricmc.loom.util.FileSystemUtil;
+import net.fabricmc.loom.util.RawZipFile;
+import net.fabricmc.loom.util.RawZipWriter;
 
 public class MinecraftJarSplitter implements AutoCloseable {
 	private final Path clientInputJar;
@@ -81,24 +80,13 @@ public class MinecraftJarSplitter implements AutoCloseable {
 	private Set<String> getJarEntries(Path input) throws IOException {
 		Set<String> entries = Sets.newHashSet();
 
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(input);
-				Stream<Path> walk = Files.walk(fs.get().getPath("/"))) {
-			Iterator<Path> iterator = walk.iterator();
-
-			while (iterator.hasNext()) {
-				Path fsPath = iterator.next();
-
-				if (!Files.isRegularFile(fsPath)) {
-					continue;
-				}
-
-				String entryPath = fs.get().getPath("/").relativize(fsPath).toString();
-
-				if (entryPath.startsWith("META-INF/")) {
+		try (RawZipFile zipFile = RawZipFile.open(input)) {
+			for (RawZipFile.Entry entry : zipFile.entries()) {
+				if (entry.isDirectory() || entry.name().startsWith("META-INF/")) {
 					continue;
 				}
 
-				entries.add(entryPath);
+				entries.add(entry.name());
 			}
 		}
 
@@ -108,35 +96,28 @@ public class MinecraftJarSplitter implements AutoCloseable {
 	private void copyEntriesToJar(Set<String> entries, Path inputJar, Path outputJar, String env) throws IOException {
 		Files.deleteIfExists(outputJar);
 
-		try (FileSystemUtil.Delegate inputFs = FileSystemUtil.getJarFileSystem(inputJar);
-				FileSystemUtil.Delegate outputFs = FileSystemUtil.getJarFileSystem(outputJar, true)) {
-			for (String entry : entries) {
-				Path inputPath = inputFs.get().getPath(entry);
-				Path outputPath = outputFs.get().getPath(entry);
-
-				assert Files.isRegularFile(inputPath);
-
-				Path outputPathParent = outputPath.getParent();
+		try (RawZipFile input = RawZipFile.open(inputJar);
+				RawZipWriter output = new RawZipWriter(outputJar)) {
+			output.putEntry(Constants.Manifest.PATH, createManifest(env));
 
-				if (outputPathParent != null) {
-					Files.createDirectories(outputPathParent);
+			for (String entry : entries) {
+				if (input.getEntry(entry) == null) {
+					throw new NoSuchFileException(entry, null, "Entry not found in " + inputJar);
 				}
-
-				Files.copy(inputPath, outputPath, StandardCopyOption.COPY_ATTRIBUTES);
 			}
 
-			writeManifest(outputFs, env);
+			// Copy in the input jar's order, the entries are copied as is without being recompressed
+			output.copyEntries(input, entries::contains);
 		}
 	}
 
-	private void writeManifest(FileSystemUtil.Delegate outputFs, String env) throws IOException {
+	private byte[] createManifest(String env) throws IOException {
 		final Manifest manifest = new Manifest();
 		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
 		manifest.getMainAttributes().putValue(Constants.Manifest.SPLIT_ENV_NAME, env);
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
 		manifest.write(out);
-		Files.createDirectories(outputFs.get().getPath("META-INF"));
-		Files.write(outputFs.get().getPath(Constants.Manifest.PATH), out.toByteArray());
+		return out.toByteArray();
 	}
 
 	@Override
@@ -0,0 +1,107 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.providers.minecraft.assets;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+
+/**
+ * The asset objects of an asset index that have been verified, keyed by their absolute path.
+ *
+ * <p>An object is only considered valid while its size and last modified time match the recorded values,
+ * this allows verifying all the objects of an index with a single stat per file instead of hashing them.
+ */
+public record AssetIndexState(Map<String, Entry> objects) {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AssetIndexState.class);
+
+	public static AssetIndexState read(Path path) {
+		try {
+			final AssetIndexState state = LoomGradlePlugin.GSON.fromJson(Files.readString(path, StandardCharsets.UTF_8), AssetIndexState.class);
+
+			if (state != null && state.objects() != null) {
+				return new AssetIndexState(new HashMap<>(state.objects()));
+			}
+		} catch (NoSuchFileException ignored) {
+			// No state, verify all objects
+		} catch (IOException | JsonParseException e) {
+			LOGGER.warn("Failed to read asset index state from {}", path, e);
+		}
+
+		return new AssetIndexState(new HashMap<>());
+	}
+
+	public void write(Path path) throws IOException {
+		Files.createDirectories(path.getParent());
+		Files.writeString(path, LoomGradlePlugin.GSON.toJson(this), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return true when the file was verified to contain the object, and has not been changed since
+	 */
+	public boolean isValid(Path file, AssetIndex.Object object) {
+		final Entry entry = objects.get(key(file));
+
+		if (entry == null || !entry.hash().equals(object.hash()) || entry.size() != object.size()) {
+			return false;
+		}
+
+		try {
+			final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+			return attributes.size() == entry.size() && attributes.lastModifiedTime().toMillis() == entry.lastModified();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Records that the file has been verified to contain the object.
+	 */
+	public void put(Path file, AssetIndex.Object object) throws IOException {
+		final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		objects.put(key(file), new Entry(object.hash(), attributes.size(), attributes.lastModifiedTime().toMillis()));
+	}
+
+	private static String key(Path file) {
+		return file.toAbsolutePath().normalize().toString();
+	}
+
+	public record Entry(
+			String hash,
+			long size,
+			long lastModified) {
+	}
+}
@@ -29,11 +29,16 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 
 import org.gradle.api.Project;
@@ -206,26 +211,67 @@ public abstract class AbstractMappedMinecraftProvider<M extends MinecraftProvide
 	private void remapInputs(List<RemappedJars> remappedJars, ConfigContext configContext) throws IOException {
 		cleanOutputs(remappedJars);
 
+		final MappingConfiguration mappingConfiguration = extension.getMappingConfiguration();
+		final String toM = getTargetNamespace().toString();
+
+		// The signature fixes only depend on the target namespace, so are shared by all the jars.
+		final Map<String, String> remappedSignatures = SignatureFixerApplyVisitor.getRemappedSignatures(getTargetNamespace() == MappingsNamespace.INTERMEDIARY, mappingConfiguration, getProject(), configContext.serviceFactory(), toM);
+
+		// Create the remappers up front as this accesses the project, the jars are then remapped concurrently.
+		final List<TinyRemapper> remappers = new ArrayList<>();
+
+		try {
+			for (RemappedJars remappedJar : remappedJars) {
+				remappers.add(createRemapper(remappedJar, remappedSignatures, configContext));
+			}
+		} catch (IOException | RuntimeException e) {
+			// Nothing has been remapped yet, the remappers are only finished by remapJar
+			for (TinyRemapper remapper : remappers) {
+				remapper.finish();
+			}
+
+			throw e;
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(remappedJars.size());
+
+		try {
+			final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+			for (int i = 0; i < remappedJars.size(); i++) {
+				final RemappedJars remappedJar = remappedJars.get(i);
+				final TinyRemapper remapper = remappers.get(i);
+
+				futures.add(CompletableFuture.runAsync(() -> remapJar(remappedJar, remapper), executor));
+			}
+
+			CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+		} catch (CompletionException e) {
+			throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+		} finally {
+			executor.shutdown();
+		}
+
 		for (RemappedJars remappedJar : remappedJars) {
-			remapJar(remappedJar, configContext);
+			getMavenHelper(remappedJar.type()).savePom();
 		}
 	}
 
-	private void remapJar(RemappedJars remappedJars, ConfigContext configContext) throws IOException {
-		final MappingConfiguration mappingConfiguration = extension.getMappingConfiguration();
+	private TinyRemapper createRemapper(RemappedJars remappedJars, Map<String, String> remappedSignatures, ConfigContext configContext) throws IOException {
 		final String fromM = remappedJars.sourceNamespace().toString();
 		final String toM = getTargetNamespace().toString();
 
-		Files.deleteIfExists(remappedJars.outputJarPath());
-
-		final Map<String, String> remappedSignatures = SignatureFixerApplyVisitor.getRemappedSignatures(getTargetNamespace() == MappingsNamespace.INTERMEDIARY, mappingConfiguration, getProject(), configContext.serviceFactory(), toM);
 		final MinecraftVersionMeta.JavaVersion javaVersion = minecraftProvider.getVersionInfo().javaVersion();
 		final boolean fixRecords = javaVersion != null && javaVersion.majorVersion() >= 16;
 
-		TinyRemapper remapper = TinyRemapperHelper.getTinyRemapper(getProject(), configContext.serviceFactory(), fromM, toM, fixRecords, (builder) -> {
+		return TinyRemapperHelper.getTinyRemapper(getProject(), configContext.serviceFactory(), fromM, toM, fixRecords, (builder) -> {
 			builder.extraPostApplyVisitor(new SignatureFixerApplyVisitor(remappedSignatures));
 			configureRemapper(remappedJars, builder);
 		});
+	}
+
+	private void remapJar(RemappedJars remappedJars, TinyRemapper remapper) {
+		final MappingConfiguration mappingConfiguration = extension.getMappingConfiguration();
 
 		try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(remappedJars.outputJarPath()).build()) {
 			outputConsumer.addNonClassFiles(remappedJars.inputJar());
@@ -241,8 +287,6 @@ public abstract class AbstractMappedMinecraftProvider<M extends MinecraftProvide
 		} finally {
 			remapper.finish();
 		}
-
-		getMavenHelper(remappedJars.type()).savePom();
 	}
 
 	protected void configureRemapper(RemappedJars remappedJars, TinyRemapper.Builder tinyRemapperBuilder) {
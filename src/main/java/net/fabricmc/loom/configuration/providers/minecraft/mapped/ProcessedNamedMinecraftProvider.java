@@ -27,15 +27,22 @@ package net.fabricmc.loom.configuration.providers.minecraft.mapped;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.configuration.ConfigContext;
 import net.fabricmc.loom.configuration.mods.dependency.LocalMavenHelper;
 import net.fabricmc.loom.configuration.processors.MinecraftJarProcessorManager;
+import net.fabricmc.loom.configuration.processors.ProcessedClassCache;
 import net.fabricmc.loom.configuration.processors.ProcessorContextImpl;
 import net.fabricmc.loom.configuration.providers.minecraft.LegacyMergedMinecraftProvider;
 import net.fabricmc.loom.configuration.providers.minecraft.MergedMinecraftProvider;
@@ -45,8 +52,13 @@ import net.fabricmc.loom.configuration.providers.minecraft.MinecraftSourceSets;
 import net.fabricmc.loom.configuration.providers.minecraft.SingleJarEnvType;
 import net.fabricmc.loom.configuration.providers.minecraft.SingleJarMinecraftProvider;
 import net.fabricmc.loom.configuration.providers.minecraft.SplitMinecraftProvider;
+import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.gradle.GradleUtils;
 
 public abstract class ProcessedNamedMinecraftProvider<M extends MinecraftProvider, P extends NamedMinecraftProvider<M>> extends NamedMinecraftProvider<M> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProcessedNamedMinecraftProvider.class);
+	private static final String CLASS_CACHE_VERSION = "v1";
+
 	private final P parentMinecraftProvider;
 	private final MinecraftJarProcessorManager jarProcessorManager;
 
@@ -65,13 +77,13 @@ public abstract class ProcessedNamedMinecraftProvider<M extends MinecraftProvide
 
 		parentMinecraftProvider.provide(context.withApplyDependencies(false));
 
-		boolean requiresProcessing = context.refreshOutputs() || !hasBackupJars(minecraftJars) || parentMinecraftJars.stream()
-				.map(this::getProcessedPath)
-				.anyMatch(jarProcessorManager::requiresProcessingJar);
+		final List<String> processingReasons = getProcessingReasons(context, parentMinecraftJars, minecraftJars);
 
-		if (requiresProcessing) {
+		if (!processingReasons.isEmpty()) {
+			LOGGER.info("Processing Minecraft jars with {} because: {}", jarProcessorManager.getJarHash(), String.join(", ", processingReasons));
 			processJars(minecraftJarOutputMap, context.configContext());
 			createBackupJars(minecraftJars);
+			jarProcessorManager.writeReport(getReportFile());
 		}
 
 		if (context.applyDependencies()) {
@@ -81,26 +93,70 @@ public abstract class ProcessedNamedMinecraftProvider<M extends MinecraftProvide
 		return List.copyOf(minecraftJarOutputMap.values());
 	}
 
+	private List<String> getProcessingReasons(ProvideContext context, List<MinecraftJar> parentMinecraftJars, List<MinecraftJar> minecraftJars) throws IOException {
+		final List<String> reasons = new ArrayList<>();
+
+		if (context.refreshOutputs()) {
+			reasons.add("a refresh was requested");
+		}
+
+		if (!hasBackupJars(minecraftJars)) {
+			reasons.add("the backup jars are missing");
+		}
+
+		final boolean missingJars = parentMinecraftJars.stream()
+				.map(this::getProcessedPath)
+				.anyMatch(jarProcessorManager::requiresProcessingJar);
+
+		if (missingJars) {
+			final List<String> changes = jarProcessorManager.describeChanges(getReportFile());
+
+			if (changes.isEmpty()) {
+				reasons.add("the processed jars do not exist");
+			} else {
+				reasons.addAll(changes);
+			}
+		}
+
+		return reasons;
+	}
+
+	private Path getReportFile() {
+		return LoomGradleExtension.get(getProject()).getFiles().getJarProcessorReportFile().toPath();
+	}
+
 	@Override
 	public MavenScope getMavenScope() {
 		return MavenScope.LOCAL;
 	}
 
 	private void processJars(Map<MinecraftJar, MinecraftJar> minecraftJarMap, ConfigContext configContext) throws IOException {
-		for (Map.Entry<MinecraftJar, MinecraftJar> entry : minecraftJarMap.entrySet()) {
-			final MinecraftJar minecraftJar = entry.getKey();
-			final MinecraftJar outputJar = entry.getValue();
-			deleteSimilarJars(outputJar.getPath());
+		try (ProcessedClassCache classCache = openClassCache()) {
+			for (Map.Entry<MinecraftJar, MinecraftJar> entry : minecraftJarMap.entrySet()) {
+				final MinecraftJar minecraftJar = entry.getKey();
+				final MinecraftJar outputJar = entry.getValue();
+				deleteSimilarJars(outputJar.getPath());
 
-			final LocalMavenHelper mavenHelper = getMavenHelper(minecraftJar.getType());
-			final Path outputPath = mavenHelper.copyToMaven(minecraftJar.getPath(), null);
+				final LocalMavenHelper mavenHelper = getMavenHelper(minecraftJar.getType());
+				final Path outputPath = mavenHelper.copyToMaven(minecraftJar.getPath(), null);
 
-			assert outputJar.getPath().equals(outputPath);
+				assert outputJar.getPath().equals(outputPath);
 
-			jarProcessorManager.processJar(outputPath, new ProcessorContextImpl(configContext, minecraftJar));
+				jarProcessorManager.processJar(outputPath, new ProcessorContextImpl(configContext, minecraftJar), classCache);
+			}
 		}
 	}
 
+	@Nullable
+	private ProcessedClassCache openClassCache() throws IOException {
+		if (!GradleUtils.getBooleanProperty(getProject(), Constants.Properties.INCREMENTAL_JAR_PROCESSING)) {
+			return null;
+		}
+
+		final Path cacheFile = LoomGradleExtension.get(getProject()).getFiles().getProcessedClassCache(CLASS_CACHE_VERSION).toPath();
+		return ProcessedClassCache.open(cacheFile);
+	}
+
 	@Override
 	public List<MinecraftJar.Type> getDependencyTypes() {
 		return parentMinecraftProvider.getDependencyTypes();
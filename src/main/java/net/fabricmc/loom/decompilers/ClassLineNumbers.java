@@ -32,10 +32,16 @@ import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
 
 import org.jetbrains.annotations.Nullable;
 
@@ -68,8 +74,8 @@ public record ClassLineNumbers(Map<String, ClassLineNumbers.Entry> lineMap) {
 		int lineNumber = 0;
 
 		record CurrentClass(String className, int maxLine, int maxLineDest) {
-			void putEntry(Map<String, ClassLineNumbers.Entry> entries, Map<Integer, Integer> mappings) {
-				var entry = new ClassLineNumbers.Entry(className(), maxLine(), maxLineDest(), Collections.unmodifiableMap(mappings));
+			void putEntry(Map<String, ClassLineNumbers.Entry> entries, LineMap.Builder mappings) {
+				var entry = new ClassLineNumbers.Entry(className(), maxLine(), maxLineDest(), mappings.build());
 
 				final ClassLineNumbers.Entry previous = entries.put(className(), entry);
 
@@ -80,7 +86,7 @@ public record ClassLineNumbers(Map<String, ClassLineNumbers.Entry> lineMap) {
 		}
 
 		CurrentClass currentClass = null;
-		Map<Integer, Integer> currentMappings = new HashMap<>();
+		LineMap.Builder currentMappings = new LineMap.Builder();
 
 		try {
 			while ((line = reader.readLine()) != null) {
@@ -93,7 +99,7 @@ public record ClassLineNumbers(Map<String, ClassLineNumbers.Entry> lineMap) {
 				if (line.charAt(0) != '\t') {
 					if (currentClass != null) {
 						currentClass.putEntry(lineMap, currentMappings);
-						currentMappings = new HashMap<>();
+						currentMappings = new LineMap.Builder();
 					}
 
 					currentClass = new CurrentClass(segments[0], Integer.parseInt(segments[1]), Integer.parseInt(segments[2]));
@@ -142,7 +148,21 @@ public record ClassLineNumbers(Map<String, ClassLineNumbers.Entry> lineMap) {
 		return new ClassLineNumbers(Collections.unmodifiableMap(lineMap));
 	}
 
+	/**
+	 * @param lineMap A map of original line numbers to decompiled line numbers, always stored as a {@link LineMap}
+	 */
 	public record Entry(String className, int maxLine, int maxLineDest, Map<Integer, Integer> lineMap) {
+		public Entry {
+			lineMap = LineMap.of(lineMap);
+		}
+
+		/**
+		 * @return The decompiled line for the first mapped line at or after the given line, or {@link #maxLineDest()} if there is none
+		 */
+		public int remapLine(int line) {
+			return ((LineMap) lineMap).getAtOrAfter(line, maxLine, maxLineDest);
+		}
+
 		public void write(Writer writer) throws IOException {
 			writer.write(className);
 			writer.write('\t');
@@ -160,4 +180,196 @@ public record ClassLineNumbers(Map<String, ClassLineNumbers.Entry> lineMap) {
 			}
 		}
 	}
+
+	/**
+	 * An immutable int to int map, stored as two sorted arrays to avoid boxing every line number.
+	 */
+	public static final class LineMap extends AbstractMap<Integer, Integer> {
+		private static final LineMap EMPTY = new LineMap(new int[0], new int[0]);
+
+		private final int[] keys;
+		private final int[] values;
+
+		private LineMap(int[] keys, int[] values) {
+			this.keys = keys;
+			this.values = values;
+		}
+
+		public static LineMap of(Map<Integer, Integer> map) {
+			if (map instanceof LineMap lineMap) {
+				return lineMap;
+			}
+
+			final var builder = new Builder(map.size());
+
+			for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+				builder.put(entry.getKey(), entry.getValue());
+			}
+
+			return builder.build();
+		}
+
+		/**
+		 * Create a line map from keys that are already sorted in ascending order, without duplicates.
+		 */
+		public static LineMap ofSorted(int[] keys, int[] values) {
+			if (keys.length != values.length) {
+				throw new IllegalArgumentException("Keys and values must have the same length");
+			}
+
+			for (int i = 1; i < keys.length; i++) {
+				if (keys[i - 1] >= keys[i]) {
+					throw new IllegalArgumentException("Keys are not sorted");
+				}
+			}
+
+			return new LineMap(keys, values);
+		}
+
+		public int getInt(int key, int defaultValue) {
+			final int index = Arrays.binarySearch(keys, key);
+			return index >= 0 ? values[index] : defaultValue;
+		}
+
+		/**
+		 * @return The value of the first key at or after {@code key} and not after {@code maxKey}, or {@code defaultValue}
+		 */
+		public int getAtOrAfter(int key, int maxKey, int defaultValue) {
+			int index = Arrays.binarySearch(keys, key);
+
+			if (index < 0) {
+				index = -index - 1;
+			}
+
+			if (index < keys.length && keys[index] <= maxKey) {
+				return values[index];
+			}
+
+			return defaultValue;
+		}
+
+		public int keyAt(int index) {
+			return keys[index];
+		}
+
+		public int valueAt(int index) {
+			return values[index];
+		}
+
+		@Override
+		public int size() {
+			return keys.length;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof Integer i && Arrays.binarySearch(keys, i) >= 0;
+		}
+
+		@Override
+		public Integer get(Object key) {
+			if (!(key instanceof Integer i)) {
+				return null;
+			}
+
+			final int index = Arrays.binarySearch(keys, i);
+			return index >= 0 ? values[index] : null;
+		}
+
+		@Override
+		public Set<Map.Entry<Integer, Integer>> entrySet() {
+			return new AbstractSet<>() {
+				@Override
+				public Iterator<Map.Entry<Integer, Integer>> iterator() {
+					return new Iterator<>() {
+						private int index = 0;
+
+						@Override
+						public boolean hasNext() {
+							return index < keys.length;
+						}
+
+						@Override
+						public Map.Entry<Integer, Integer> next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+
+							final var entry = new AbstractMap.SimpleImmutableEntry<>(keys[index], values[index]);
+							index++;
+							return entry;
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return keys.length;
+				}
+			};
+		}
+
+		public static final class Builder {
+			private int[] keys;
+			private int[] values;
+			private int size;
+
+			public Builder() {
+				this(16);
+			}
+
+			public Builder(int capacity) {
+				this.keys = new int[Math.max(capacity, 1)];
+				this.values = new int[keys.length];
+			}
+
+			/**
+			 * Adds a mapping, a later mapping for the same key replaces the earlier one.
+			 */
+			public Builder put(int key, int value) {
+				if (size == keys.length) {
+					keys = Arrays.copyOf(keys, size * 2);
+					values = Arrays.copyOf(values, size * 2);
+				}
+
+				keys[size] = key;
+				values[size] = value;
+				size++;
+				return this;
+			}
+
+			public LineMap build() {
+				if (size == 0) {
+					return EMPTY;
+				}
+
+				// Sort by key, then by insertion order so that the last put for a key wins
+				final long[] order = new long[size];
+
+				for (int i = 0; i < size; i++) {
+					order[i] = ((long) keys[i] << 32) | i;
+				}
+
+				Arrays.sort(order);
+
+				final int[] sortedKeys = new int[size];
+				final int[] sortedValues = new int[size];
+				int count = 0;
+
+				for (int i = 0; i < size; i++) {
+					final int key = (int) (order[i] >> 32);
+
+					if (i + 1 < size && (int) (order[i + 1] >> 32) == key) {
+						continue;
+					}
+
+					sortedKeys[count] = key;
+					sortedValues[count] = values[(int) order[i]];
+					count++;
+				}
+
+				return new LineMap(Arrays.copyOf(sortedKeys, count), Arrays.copyOf(sortedValues, count));
+			}
+		}
+	}
 }
@@ -0,0 +1,134 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.decompilers;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import net.fabricmc.loom.decompilers.cache.ClassEntry;
+import net.fabricmc.loom.decompilers.cache.JarWalker;
+import net.fabricmc.loom.util.FileSystemUtil;
+
+/**
+ * Splits the classes of a jar into batches that can be unpicked, decompiled and line number remapped independently.
+ * An outer class is always in the same batch as its inner classes.
+ */
+public final class DecompileBatches implements Closeable {
+	private final List<Batch> batches;
+
+	private DecompileBatches(List<Batch> batches) {
+		this.batches = batches;
+	}
+
+	public static DecompileBatches split(Path inputJar, int batchCount) throws IOException {
+		if (batchCount < 1) {
+			throw new IllegalArgumentException("batchCount must be at least 1");
+		}
+
+		final List<ClassEntry> classes = JarWalker.findClasses(inputJar);
+		final int count = Math.max(1, Math.min(batchCount, classes.size()));
+		final List<List<ClassEntry>> batchClasses = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			batchClasses.add(new ArrayList<>());
+		}
+
+		// Round-robin so that each batch gets a similar mix of packages
+		for (int i = 0; i < classes.size(); i++) {
+			batchClasses.get(i % count).add(classes.get(i));
+		}
+
+		final List<Batch> batches = new ArrayList<>(count);
+
+		try (FileSystemUtil.Delegate inputFs = FileSystemUtil.getJarFileSystem(inputJar, false)) {
+			for (int i = 0; i < count; i++) {
+				final Path jar = Files.createTempFile("loom-decompile-batch-" + i, ".jar");
+				final List<ClassEntry> entries = Collections.unmodifiableList(batchClasses.get(i));
+
+				try (var zipOutputStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(jar)))) {
+					for (ClassEntry entry : entries) {
+						for (String name : entry.allClasses()) {
+							zipOutputStream.putNextEntry(new ZipEntry(name));
+							zipOutputStream.write(Files.readAllBytes(inputFs.getPath(name)));
+							zipOutputStream.closeEntry();
+						}
+					}
+				}
+
+				batches.add(new Batch(i, jar, entries));
+			}
+		} catch (IOException e) {
+			for (Batch batch : batches) {
+				Files.deleteIfExists(batch.jar());
+			}
+
+			throw e;
+		}
+
+		return new DecompileBatches(Collections.unmodifiableList(batches));
+	}
+
+	public List<Batch> batches() {
+		return batches;
+	}
+
+	/**
+	 * @return The jars of all the other batches, to be used as the classpath when processing the given batch
+	 */
+	public List<Path> otherJars(Batch batch) {
+		final List<Path> jars = new ArrayList<>(batches.size() - 1);
+
+		for (Batch other : batches) {
+			if (other != batch) {
+				jars.add(other.jar());
+			}
+		}
+
+		return jars;
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (Batch batch : batches) {
+			Files.deleteIfExists(batch.jar());
+		}
+	}
+
+	/**
+	 * @param index The index of the batch
+	 * @param jar A jar containing only the classes of this batch
+	 * @param classes The classes in this batch
+	 */
+	public record Batch(int index, Path jar, List<ClassEntry> classes) {
+	}
+}
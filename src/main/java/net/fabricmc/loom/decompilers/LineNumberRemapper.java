@@ -25,12 +25,9 @@
 package net.fabricmc.loom.decompilers;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
@@ -47,50 +44,56 @@ public record LineNumberRemapper(ClassLineNumbers lineNumbers) {
 	private static final Logger LOGGER = LoggerFactory.getLogger(LineNumberRemapper.class);
 
 	public void process(Path input, Path output) throws IOException {
-		AsyncZipProcessor.processEntries(input, output, new AsyncZipProcessor() {
-			private final Set<Path> createdParents = new HashSet<>();
+		process(input, output, ForkJoinPool.commonPool());
+	}
 
-			@Override
-			public void processEntryAsync(Path file, Path dst) throws IOException {
-				Path parent = dst.getParent();
+	public void process(Path input, Path output, Executor executor) throws IOException {
+		AsyncZipProcessor.processEntries(input, output, executor, (name, bytes) -> {
+			if (name.endsWith(".class")) {
+				return processClass(name, bytes);
+			}
 
-				synchronized (createdParents) {
-					if (parent != null && createdParents.add(parent)) {
-						Files.createDirectories(parent);
-					}
-				}
+			return bytes;
+		});
+	}
 
-				String fileName = file.toAbsolutePath().toString();
+	/**
+	 * Remap the line numbers of a single class file.
+	 *
+	 * @param name The name of the class file within the jar, for example {@code net/minecraft/Main.class}
+	 * @param bytes The class file bytes
+	 * @return The remapped class bytes, or the input bytes if there are no line numbers for the class
+	 */
+	public byte[] processClass(String name, byte[] bytes) {
+		final ClassLineNumbers.Entry entry = lineNumbers.lineMap().get(getOuterClassName(name));
+
+		if (entry == null) {
+			LOGGER.debug("No linemap found for: {}", name);
+			return bytes;
+		}
 
-				if (fileName.endsWith(".class")) {
-					// Strip the leading slash and the .class extension
-					String idx = fileName.substring(1, fileName.length() - 6);
+		return remap(new ClassReader(bytes), entry);
+	}
 
-					int dollarPos = idx.indexOf('$'); //This makes the assumption that only Java classes are to be remapped.
+	private static byte[] remap(ClassReader reader, ClassLineNumbers.Entry entry) {
+		LOGGER.debug("Remapping line numbers for class: {}", entry.className());
 
-					if (dollarPos >= 0) {
-						idx = idx.substring(0, dollarPos);
-					}
+		ClassWriter writer = new ClassWriter(0);
+		reader.accept(new LineNumberVisitor(Constants.ASM_VERSION, writer, entry), 0);
+		return writer.toByteArray();
+	}
 
-					if (lineNumbers.lineMap().containsKey(idx)) {
-						LOGGER.debug("Remapping line numbers for class: {}", idx);
+	private static String getOuterClassName(String name) {
+		// Strip the .class extension
+		String idx = name.substring(0, name.length() - 6);
 
-						try (InputStream is = Files.newInputStream(file)) {
-							ClassReader reader = new ClassReader(is);
-							ClassWriter writer = new ClassWriter(0);
+		int dollarPos = idx.indexOf('$'); //This makes the assumption that only Java classes are to be remapped.
 
-							reader.accept(new LineNumberVisitor(Constants.ASM_VERSION, writer, lineNumbers.lineMap().get(idx)), 0);
-							Files.write(dst, writer.toByteArray());
-							return;
-						}
-					} else {
-						LOGGER.debug("No linemap found for: {}", idx);
-					}
-				}
+		if (dollarPos >= 0) {
+			idx = idx.substring(0, dollarPos);
+		}
 
-				Files.copy(file, dst, StandardCopyOption.REPLACE_EXISTING);
-			}
-		});
+		return idx;
 	}
 
 	private static class LineNumberVisitor extends ClassVisitor {
@@ -113,13 +116,7 @@ public record LineNumberRemapper(ClassLineNumbers lineNumbers) {
 					} else if (tLine >= lineNumbers.maxLine()) {
 						super.visitLineNumber(lineNumbers.maxLineDest(), start);
 					} else {
-						Integer matchedLine = null;
-
-						while (tLine <= lineNumbers.maxLine() && ((matchedLine = lineNumbers.lineMap().get(tLine)) == null)) {
-							tLine++;
-						}
-
-						super.visitLineNumber(matchedLine != null ? matchedLine : lineNumbers.maxLineDest(), start);
+						super.visitLineNumber(lineNumbers.remapLine(tLine), start);
 					}
 				}
 			};
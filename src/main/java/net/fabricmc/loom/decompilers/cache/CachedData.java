@@ -24,20 +24,21 @@
 
 package net.fabricmc.loom.decompilers.cache;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.StringWriter;
+import java.io.StringReader;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -49,12 +50,23 @@ import net.fabricmc.loom.decompilers.ClassLineNumbers;
 // Uses the RIFF format, allows for appending the line numbers to the end of the file
 // Stores the source code and line numbers for the class
 public record CachedData(String className, String sources, @Nullable ClassLineNumbers.Entry lineNumbers) {
-	public static final CachedFileStore.EntrySerializer<CachedData> SERIALIZER = new EntrySerializer();
+	public static final CachedFileStore.BufferEntrySerializer<CachedData> SERIALIZER = new EntrySerializer(true);
+	public static final CachedFileStore.BufferEntrySerializer<CachedData> UNCOMPRESSED_SERIALIZER = new EntrySerializer(false);
 
 	private static final String HEADER_ID = "LOOM";
 	private static final String NAME_ID = "NAME";
 	private static final String SOURCES_ID = "SRC ";
+	// Sources with a flags byte and the uncompressed length, followed by the (possibly compressed) data
+	private static final String COMPRESSED_SOURCES_ID = "SRCZ";
+	// Legacy text line numbers, only read
 	private static final String LINE_NUMBERS_ID = "LNUM";
+	// Binary line numbers, varint-delta encoded
+	private static final String LINE_NUMBERS_BINARY_ID = "LNMB";
+
+	private static final int FLAG_DEFLATE = 1;
+	private static final int KNOWN_FLAGS = FLAG_DEFLATE;
+	// Sources smaller than this are not worth compressing
+	private static final int COMPRESSION_THRESHOLD = 256;
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(CachedData.class);
 
@@ -70,9 +82,16 @@ public record CachedData(String className, String sources, @Nullable ClassLineNu
 	}
 
 	public void write(FileChannel fileChannel) {
+		write(fileChannel, true);
+	}
+
+	/**
+	 * @param compressSources Whether the sources should be deflated, they are only stored compressed when this makes them smaller
+	 */
+	public void write(FileChannel fileChannel, boolean compressSources) {
 		try (var c = new RiffChunk(HEADER_ID, fileChannel)) {
 			writeClassname(fileChannel);
-			writeSource(fileChannel);
+			writeSource(fileChannel, compressSources);
 
 			if (lineNumbers != null) {
 				writeLineNumbers(fileChannel);
@@ -88,41 +107,149 @@ public record CachedData(String className, String sources, @Nullable ClassLineNu
 		}
 	}
 
-	private void writeSource(FileChannel fileChannel) throws IOException {
-		try (var c = new RiffChunk(SOURCES_ID, fileChannel)) {
-			fileChannel.write(ByteBuffer.wrap(sources.getBytes(StandardCharsets.UTF_8)));
+	private void writeSource(FileChannel fileChannel, boolean compress) throws IOException {
+		final byte[] bytes = sources.getBytes(StandardCharsets.UTF_8);
+		final byte[] compressed = compress && bytes.length >= COMPRESSION_THRESHOLD ? deflate(bytes) : null;
+
+		if (compressed == null) {
+			try (var c = new RiffChunk(SOURCES_ID, fileChannel)) {
+				fileChannel.write(ByteBuffer.wrap(bytes));
+			}
+
+			return;
+		}
+
+		try (var c = new RiffChunk(COMPRESSED_SOURCES_ID, fileChannel)) {
+			fileChannel.write(ByteBuffer.allocate(5).put((byte) FLAG_DEFLATE).putInt(bytes.length).flip());
+			fileChannel.write(ByteBuffer.wrap(compressed));
+		}
+	}
+
+	/**
+	 * @return The deflated bytes, or null when they would not be smaller than the input
+	 */
+	private static byte @Nullable [] deflate(byte[] bytes) {
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+
+		try {
+			deflater.setInput(bytes);
+			deflater.finish();
+
+			final byte[] output = new byte[bytes.length];
+			int length = 0;
+
+			while (!deflater.finished()) {
+				if (length == output.length) {
+					return null;
+				}
+
+				length += deflater.deflate(output, length, output.length - length);
+			}
+
+			return Arrays.copyOf(output, length);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static String inflate(ByteBuffer buffer) throws IOException {
+		final int flags = Byte.toUnsignedInt(readBytes(buffer, 1).get());
+		final int length = readInt(buffer);
+
+		if ((flags & ~KNOWN_FLAGS) != 0) {
+			throw new IOException("Unknown sources flags: " + flags);
+		}
+
+		if ((flags & FLAG_DEFLATE) == 0) {
+			return StandardCharsets.UTF_8.decode(readBytes(buffer, length)).toString();
+		}
+
+		if (length < 0) {
+			throw new IOException("Invalid sources length: " + length);
+		}
+
+		final Inflater inflater = new Inflater(true);
+
+		try {
+			inflater.setInput(buffer);
+
+			final byte[] output = new byte[length];
+			int read = 0;
+
+			while (read < length && !inflater.finished()) {
+				final int count = inflater.inflate(output, read, length - read);
+
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+
+				read += count;
+			}
+
+			if (read != length) {
+				throw new IOException("Expected " + length + " bytes of sources but got " + read);
+			}
+
+			return new String(output, StandardCharsets.UTF_8);
+		} catch (DataFormatException e) {
+			throw new IOException("Failed to inflate sources", e);
+		} finally {
+			inflater.end();
 		}
 	}
 
 	private void writeLineNumbers(FileChannel fileChannel) throws IOException {
 		Objects.requireNonNull(lineNumbers);
 
-		try (var c = new RiffChunk(LINE_NUMBERS_ID, fileChannel);
-				StringWriter stringWriter = new StringWriter()) {
-			lineNumbers.write(stringWriter);
-			fileChannel.write(ByteBuffer.wrap(stringWriter.toString().getBytes(StandardCharsets.UTF_8)));
+		final ClassLineNumbers.LineMap lineMap = ClassLineNumbers.LineMap.of(lineNumbers.lineMap());
+		// 3 header ints and 2 ints per line, each at most 5 bytes as a varint
+		final ByteBuffer buffer = ByteBuffer.allocate((3 + lineMap.size() * 2) * 5);
+
+		writeVarInt(buffer, lineNumbers.maxLine());
+		writeVarInt(buffer, lineNumbers.maxLineDest());
+		writeVarInt(buffer, lineMap.size());
+
+		int lastKey = 0;
+		int lastValue = 0;
+
+		for (int i = 0; i < lineMap.size(); i++) {
+			final int key = lineMap.keyAt(i);
+			final int value = lineMap.valueAt(i);
+			writeVarInt(buffer, zigZag(key - lastKey));
+			writeVarInt(buffer, zigZag(value - lastValue));
+			lastKey = key;
+			lastValue = value;
+		}
+
+		try (var c = new RiffChunk(LINE_NUMBERS_BINARY_ID, fileChannel)) {
+			fileChannel.write(buffer.flip());
 		}
 	}
 
 	public static CachedData read(InputStream inputStream) throws IOException {
+		return read(ByteBuffer.wrap(inputStream.readAllBytes()));
+	}
+
+	public static CachedData read(ByteBuffer buffer) throws IOException {
 		// Read and validate the RIFF header
-		final String header = readHeader(inputStream);
+		final String header = readHeader(buffer);
 
 		if (!header.equals(HEADER_ID)) {
 			throw new IOException("Invalid RIFF header: " + header + ", expected " + HEADER_ID);
 		}
 
-		// Read the data length
-		int length = readInt(inputStream);
+		// Read the data length, only the chunks within it belong to this entry
+		final ByteBuffer chunks = readBytes(buffer, readInt(buffer));
 
 		String className = null;
 		String sources = null;
 		ClassLineNumbers.Entry lineNumbers = null;
+		ByteBuffer binaryLineNumbers = null;
 
-		while (inputStream.available() > 0) {
-			String chunkHeader = readHeader(inputStream);
-			int chunkLength = readInt(inputStream);
-			byte[] chunkData = readBytes(inputStream, chunkLength);
+		while (chunks.hasRemaining()) {
+			String chunkHeader = readHeader(chunks);
+			int chunkLength = readInt(chunks);
+			ByteBuffer chunkData = readBytes(chunks, chunkLength);
 
 			switch (chunkHeader) {
 			case NAME_ID -> {
@@ -130,21 +257,36 @@ public record CachedData(String className, String sources, @Nullable ClassLineNu
 					throw new IOException("Duplicate name chunk");
 				}
 
-				className = new String(chunkData, StandardCharsets.UTF_8);
+				className = StandardCharsets.UTF_8.decode(chunkData).toString();
 			}
 			case SOURCES_ID -> {
 				if (sources != null) {
 					throw new IOException("Duplicate sources chunk");
 				}
 
-				sources = new String(chunkData, StandardCharsets.UTF_8);
+				sources = StandardCharsets.UTF_8.decode(chunkData).toString();
+			}
+			case COMPRESSED_SOURCES_ID -> {
+				if (sources != null) {
+					throw new IOException("Duplicate sources chunk");
+				}
+
+				sources = inflate(chunkData);
+			}
+			case LINE_NUMBERS_BINARY_ID -> {
+				if (lineNumbers != null || binaryLineNumbers != null) {
+					throw new IOException("Duplicate line numbers chunk");
+				}
+
+				// Read once the class name is known
+				binaryLineNumbers = chunkData;
 			}
 			case LINE_NUMBERS_ID -> {
-				if (lineNumbers != null) {
+				if (lineNumbers != null || binaryLineNumbers != null) {
 					throw new IOException("Duplicate line numbers chunk");
 				}
 
-				try (var br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(chunkData), StandardCharsets.UTF_8))) {
+				try (var br = new BufferedReader(new StringReader(StandardCharsets.UTF_8.decode(chunkData).toString()))) {
 					ClassLineNumbers classLineNumbers = ClassLineNumbers.readMappings(br);
 
 					if (classLineNumbers.lineMap().size() != 1) {
@@ -157,7 +299,6 @@ public record CachedData(String className, String sources, @Nullable ClassLineNu
 			default -> {
 				// Skip unknown chunk
 				LOGGER.warn("Skipping unknown chunk: {} of size {}", chunkHeader, chunkLength);
-				inputStream.skip(chunkLength);
 			}
 			}
 		}
@@ -166,35 +307,113 @@ public record CachedData(String className, String sources, @Nullable ClassLineNu
 			throw new IOException("Missing sources");
 		}
 
+		if (binaryLineNumbers != null) {
+			if (className == null) {
+				throw new IOException("Missing name");
+			}
+
+			lineNumbers = readLineNumbers(className, binaryLineNumbers);
+		}
+
 		return new CachedData(className, sources, lineNumbers);
 	}
 
-	private static String readHeader(InputStream inputStream) throws IOException {
-		byte[] header = readBytes(inputStream, 4);
-		return new String(header, StandardCharsets.US_ASCII);
+	private static ClassLineNumbers.Entry readLineNumbers(String className, ByteBuffer buffer) throws IOException {
+		final int maxLine = readVarInt(buffer);
+		final int maxLineDest = readVarInt(buffer);
+		final int size = readVarInt(buffer);
+
+		// Each line takes at least 2 bytes, reject sizes that cannot fit before allocating
+		if (size < 0 || size > buffer.remaining() / 2) {
+			throw new IOException("Invalid line numbers size: " + size);
+		}
+
+		final int[] keys = new int[size];
+		final int[] values = new int[size];
+		int lastKey = 0;
+		int lastValue = 0;
+
+		for (int i = 0; i < size; i++) {
+			lastKey += unZigZag(readVarInt(buffer));
+			lastValue += unZigZag(readVarInt(buffer));
+			keys[i] = lastKey;
+			values[i] = lastValue;
+		}
+
+		try {
+			return new ClassLineNumbers.Entry(className, maxLine, maxLineDest, ClassLineNumbers.LineMap.ofSorted(keys, values));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid line numbers", e);
+		}
 	}
 
-	private static int readInt(InputStream inputStream) throws IOException {
-		byte[] bytes = readBytes(inputStream, 4);
-		return ByteBuffer.wrap(bytes).getInt();
+	private static void writeVarInt(ByteBuffer buffer, int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+
+		buffer.put((byte) value);
 	}
 
-	private static byte[] readBytes(InputStream inputStream, int length) throws IOException {
-		byte[] bytes = new byte[length];
+	private static int readVarInt(ByteBuffer buffer) throws IOException {
+		int value = 0;
+
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (!buffer.hasRemaining()) {
+				throw new IOException("Unexpected end of varint");
+			}
 
-		int read = inputStream.read(bytes);
+			final byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
 
-		if (read != length) {
-			throw new IOException("Failed to read bytes expected " + length + " bytes but got " + read + " bytes");
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("Varint is too long");
+	}
+
+	private static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static String readHeader(ByteBuffer buffer) throws IOException {
+		return StandardCharsets.US_ASCII.decode(readBytes(buffer, 4)).toString();
+	}
+
+	private static int readInt(ByteBuffer buffer) throws IOException {
+		return readBytes(buffer, 4).getInt();
+	}
+
+	/**
+	 * Returns a view of the next {@code length} bytes, without copying them.
+	 */
+	private static ByteBuffer readBytes(ByteBuffer buffer, int length) throws IOException {
+		if (length < 0 || buffer.remaining() < length) {
+			throw new IOException("Failed to read bytes expected " + length + " bytes but got " + buffer.remaining() + " bytes");
 		}
 
-		return bytes;
+		final ByteBuffer slice = buffer.slice(buffer.position(), length);
+		buffer.position(buffer.position() + length);
+		return slice;
 	}
 
-	static class EntrySerializer implements CachedFileStore.EntrySerializer<CachedData> {
+	static class EntrySerializer implements CachedFileStore.BufferEntrySerializer<CachedData> {
+		private final boolean compressSources;
+
+		EntrySerializer(boolean compressSources) {
+			this.compressSources = compressSources;
+		}
+
 		@Override
 		public CachedData read(Path path) throws IOException {
-			try (var inputStream = new BufferedInputStream(Files.newInputStream(path))) {
+			try (var inputStream = Files.newInputStream(path)) {
 				return CachedData.read(inputStream);
 			}
 		}
@@ -202,8 +421,18 @@ public record CachedData(String className, String sources, @Nullable ClassLineNu
 		@Override
 		public void write(CachedData entry, Path path) throws IOException {
 			try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
-				entry.write(fileChannel);
+				entry.write(fileChannel, compressSources);
 			}
 		}
+
+		@Override
+		public CachedData read(ByteBuffer buffer) throws IOException {
+			return CachedData.read(buffer);
+		}
+
+		@Override
+		public void write(CachedData entry, FileChannel fileChannel) {
+			entry.write(fileChannel, compressSources);
+		}
 	}
 }
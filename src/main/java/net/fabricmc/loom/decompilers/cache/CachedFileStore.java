@@ -25,6 +25,8 @@
 package net.fabricmc.loom.decompilers.cache;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 
 import org.jetbrains.annotations.Nullable;
@@ -39,4 +41,14 @@ public interface CachedFileStore<T> {
 
 		void write(T entry, Path path) throws IOException;
 	}
+
+	/**
+	 * A serializer that can also read from a buffer and write to the current position of a channel,
+	 * allowing entries to be stored inside a larger file.
+	 */
+	interface BufferEntrySerializer<T> extends EntrySerializer<T> {
+		T read(ByteBuffer buffer) throws IOException;
+
+		void write(T entry, FileChannel fileChannel) throws IOException;
+	}
 }
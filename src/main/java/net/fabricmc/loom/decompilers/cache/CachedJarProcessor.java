@@ -24,134 +24,202 @@
 
 package net.fabricmc.loom.decompilers.cache;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import com.google.common.hash.HashCode;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.fabricmc.loom.decompilers.ClassLineNumbers;
 import net.fabricmc.loom.util.FileSystemUtil;
+import net.fabricmc.loom.util.RawZipFile;
+import net.fabricmc.loom.util.RawZipWriter;
 
-public record CachedJarProcessor(CachedFileStore<CachedData> fileStore, String baseHash) {
+public record CachedJarProcessor(CachedFileStore<CachedData> fileStore, String baseHash, ClassHashing hashing) {
 	private static final Logger LOGGER = LoggerFactory.getLogger(CachedJarProcessor.class);
 
-	public WorkRequest prepareJob(Path inputJar) throws IOException {
-		boolean isIncomplete = false;
-		boolean hasSomeExisting = false;
-
-		Path incompleteJar = Files.createTempFile("loom-cache-incomplete", ".jar");
-		Path existingClassesJar = Files.createTempFile("loom-cache-existingClasses", ".jar");
-		Path existingSourcesJar = Files.createTempFile("loom-cache-existingSources", ".jar");
-
-		// We must delete the empty files, so they can be created as a zip
-		Files.delete(incompleteJar);
-		Files.delete(existingClassesJar);
-		Files.delete(existingSourcesJar);
-
-		// Sources name -> hash
-		Map<String, String> outputNameMap = new HashMap<>();
-		Map<String, ClassLineNumbers.Entry> lineNumbersMap = new HashMap<>();
+	public CachedJarProcessor(CachedFileStore<CachedData> fileStore, String baseHash) {
+		this(fileStore, baseHash, ClassHashing.DEFAULT);
+	}
 
-		int hits = 0;
-		int misses = 0;
+	public WorkRequest prepareJob(Path inputJar) throws IOException {
+		final List<EntryLookup> lookups;
 
-		try (FileSystemUtil.Delegate inputFs = FileSystemUtil.getJarFileSystem(inputJar, false);
-				FileSystemUtil.Delegate incompleteFs = FileSystemUtil.getJarFileSystem(incompleteJar, true);
-				FileSystemUtil.Delegate existingSourcesFs = FileSystemUtil.getJarFileSystem(existingSourcesJar, true);
-				FileSystemUtil.Delegate existingClassesFs = FileSystemUtil.getJarFileSystem(existingClassesJar, true)) {
+		try (FileSystemUtil.Delegate inputFs = FileSystemUtil.getJarFileSystem(inputJar, false)) {
 			final List<ClassEntry> inputClasses = JarWalker.findClasses(inputFs);
-			final Map<String, String> rawEntryHashes = getEntryHashes(inputClasses, inputFs.getRoot());
+			final Map<String, HashCode> rawEntryHashes = getEntryHashes(inputClasses, inputFs.getRoot());
+			lookups = lookupEntries(inputClasses, rawEntryHashes);
+
+			// Sources name -> hash
+			Map<String, String> outputNameMap = new HashMap<>();
+			Map<String, ClassLineNumbers.Entry> lineNumbersMap = new HashMap<>();
 
-			for (ClassEntry entry : inputClasses) {
-				String outputFileName = entry.sourcesFileName();
-				String fullHash = baseHash + "/" + entry.hashSuperHierarchy(rawEntryHashes);
+			int hits = 0;
+			int misses = 0;
 
-				final CachedData entryData = fileStore.getEntry(fullHash);
+			for (EntryLookup lookup : lookups) {
+				final CachedData entryData = lookup.cachedData();
 
 				if (entryData == null) {
-					// Cached entry was not found, so copy the input to the incomplete jar to be processed
-					entry.copyTo(inputFs.getRoot(), incompleteFs.getRoot());
-					isIncomplete = true;
-					outputNameMap.put(outputFileName, fullHash);
+					outputNameMap.put(lookup.entry().sourcesFileName(), lookup.hash());
 
-					LOGGER.debug("Cached entry ({}) not found, going to process {}", fullHash, outputFileName);
+					LOGGER.debug("Cached entry ({}) not found, going to process {}", lookup.hash(), lookup.entry().sourcesFileName());
 					misses++;
 				} else {
-					final Path outputPath = existingSourcesFs.getPath(outputFileName);
-					createParentDirectories(outputPath);
-					Files.writeString(outputPath, entryData.sources());
-
-					entry.copyTo(inputFs.getRoot(), existingClassesFs.getRoot());
-
 					if (entryData.lineNumbers() != null) {
 						lineNumbersMap.put(entryData.className(), entryData.lineNumbers());
 					} else {
-						LOGGER.info("Cached entry ({}) does not have line numbers", outputFileName);
+						LOGGER.info("Cached entry ({}) does not have line numbers", lookup.entry().sourcesFileName());
 					}
 
-					hasSomeExisting = true;
-
-					LOGGER.debug("Cached entry ({}) found: {}", fullHash, outputFileName);
+					LOGGER.debug("Cached entry ({}) found: {}", lookup.hash(), lookup.entry().sourcesFileName());
 					hits++;
 				}
 			}
-		}
 
-		// A jar file that will be created by the work action, containing the newly processed items.
-		Path outputJar = Files.createTempFile("loom-cache-output", ".jar");
-		Files.delete(outputJar);
+			// A jar file that will be created by the work action, containing the newly processed items.
+			Path outputJar = Files.createTempFile("loom-cache-output", ".jar");
+			Files.delete(outputJar);
 
-		final ClassLineNumbers lineNumbers = lineNumbersMap.isEmpty() ? null : new ClassLineNumbers(Collections.unmodifiableMap(lineNumbersMap));
-		final var stats = new CacheStats(hits, misses);
+			final ClassLineNumbers lineNumbers = lineNumbersMap.isEmpty() ? null : new ClassLineNumbers(Collections.unmodifiableMap(lineNumbersMap));
+			final var stats = new CacheStats(hits, misses);
 
-		if (isIncomplete && !hasSomeExisting) {
-			// The cache contained nothing of use, fully process the input jar
-			Files.delete(incompleteJar);
-			Files.delete(existingClassesJar);
-			Files.delete(existingSourcesJar);
+			if (hits == 0) {
+				// The cache contained nothing of use, fully process the input jar
+				LOGGER.info("No cached entries found, going to process the whole jar");
+				return new FullWorkJob(inputJar, outputJar, outputNameMap)
+						.asRequest(stats, lineNumbers);
+			}
+
+			final Path existingSourcesJar = Files.createTempFile("loom-cache-existingSources", ".jar");
+
+			writeJar(existingSourcesJar, zipOutputStream -> {
+				for (EntryLookup lookup : lookups) {
+					if (lookup.cachedData() != null) {
+						writeEntry(zipOutputStream, lookup.entry().sourcesFileName(), lookup.cachedData().sources().getBytes(StandardCharsets.UTF_8));
+					}
+				}
+			});
+
+			if (misses == 0) {
+				// The cached contained everything we need, so the existing jar is the output
+				LOGGER.info("All cached entries found, using completed work job");
+				return new CompletedWorkJob(existingSourcesJar)
+						.asRequest(stats, lineNumbers);
+			}
 
-			LOGGER.info("No cached entries found, going to process the whole jar");
-			return new FullWorkJob(inputJar, outputJar, outputNameMap)
-					.asRequest(stats, lineNumbers);
-		} else if (isIncomplete) {
 			// The cache did not contain everything so we have some work to do
+			final Path incompleteJar = Files.createTempFile("loom-cache-incomplete", ".jar");
+			final Path existingClassesJar = Files.createTempFile("loom-cache-existingClasses", ".jar");
+
+			try (RawZipFile inputZip = RawZipFile.open(inputJar)) {
+				copyClasses(inputZip, incompleteJar, lookups, false);
+				copyClasses(inputZip, existingClassesJar, lookups, true);
+			}
+
 			LOGGER.info("Some cached entries found, using partial work job");
 			return new PartialWorkJob(incompleteJar, existingSourcesJar, existingClassesJar, outputJar, outputNameMap)
 					.asRequest(stats, lineNumbers);
-		} else {
-			// The cached contained everything we need, so the existing jar is the output
-			LOGGER.info("All cached entries found, using completed work job");
-			Files.delete(incompleteJar);
-			Files.delete(existingClassesJar);
-			return new CompletedWorkJob(existingSourcesJar)
-					.asRequest(stats, lineNumbers);
 		}
 	}
 
-	private static Map<String, String> getEntryHashes(List<ClassEntry> entries, Path root) throws IOException {
-		final Map<String, String> rawEntryHashes = new HashMap<>();
+	private Map<String, HashCode> getEntryHashes(List<ClassEntry> entries, Path root) throws IOException {
+		final Map<String, HashCode> rawEntryHashes = new ConcurrentHashMap<>();
 
-		for (ClassEntry entry : entries) {
-			String hash = entry.hash(root);
-			rawEntryHashes.put(entry.name(), hash);
+		try {
+			entries.parallelStream().forEach(entry -> {
+				final HashCode hash;
 
-			for (String s : entry.innerClasses()) {
-				rawEntryHashes.put(s, hash);
-			}
+				try {
+					hash = entry.hash(root, hashing);
+				} catch (IOException e) {
+					throw new UncheckedIOException("Failed to hash " + entry.name(), e);
+				}
+
+				rawEntryHashes.put(entry.name(), hash);
+
+				for (String s : entry.innerClasses()) {
+					rawEntryHashes.put(s, hash);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
 		}
 
 		return Collections.unmodifiableMap(rawEntryHashes);
 	}
 
+	/**
+	 * Look up all the entries in the cache, in parallel. The returned list is in the same order as the input.
+	 */
+	private List<EntryLookup> lookupEntries(List<ClassEntry> entries, Map<String, HashCode> rawEntryHashes) throws IOException {
+		try {
+			return entries.parallelStream()
+					.map(entry -> {
+						try {
+							final String fullHash = baseHash + "/" + hashing.cacheKey(entry.hashSuperHierarchy(rawEntryHashes, hashing));
+							return new EntryLookup(entry, fullHash, fileStore.getEntry(fullHash));
+						} catch (IOException e) {
+							throw new UncheckedIOException("Failed to read cache entry for " + entry.name(), e);
+						}
+					})
+					.toList();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static void writeJar(Path jar, IOConsumer<ZipOutputStream> consumer) throws IOException {
+		try (var zipOutputStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(jar)))) {
+			consumer.accept(zipOutputStream);
+		}
+	}
+
+	/**
+	 * Copies the classes of the lookups with or without cached data as raw compressed entries.
+	 */
+	private static void copyClasses(RawZipFile input, Path jar, List<EntryLookup> lookups, boolean cached) throws IOException {
+		try (var writer = new RawZipWriter(jar)) {
+			for (EntryLookup lookup : lookups) {
+				if ((lookup.cachedData() != null) != cached) {
+					continue;
+				}
+
+				for (String name : lookup.entry().allClasses()) {
+					final RawZipFile.Entry entry = input.getEntry(name);
+
+					if (entry == null) {
+						throw new NoSuchFileException(name, null, "Entry not found in " + input.getPath());
+					}
+
+					writer.copyEntry(input, entry);
+				}
+			}
+		}
+	}
+
+	private static void writeEntry(ZipOutputStream zipOutputStream, String name, byte[] bytes) throws IOException {
+		zipOutputStream.putNextEntry(new ZipEntry(name));
+		zipOutputStream.write(bytes);
+		zipOutputStream.closeEntry();
+	}
+
 	public void completeJob(Path output, WorkJob workJob, ClassLineNumbers lineNumbers) throws IOException {
 		if (workJob instanceof CompletedWorkJob completedWorkJob) {
 			// Fully complete, nothing new to cache
@@ -210,30 +278,17 @@ public record CachedJarProcessor(CachedFileStore<CachedData> fileStore, String b
 		}
 
 		if (workJob instanceof PartialWorkJob partialWorkJob) {
-			// Copy all the existing items to the output jar
-			try (FileSystemUtil.Delegate outputFs = FileSystemUtil.getJarFileSystem(partialWorkJob.output(), false);
-					FileSystemUtil.Delegate existingFs = FileSystemUtil.getJarFileSystem(partialWorkJob.existingSources(), false);
-					Stream<Path> walk = Files.walk(existingFs.getRoot())) {
-				Iterator<Path> iterator = walk.iterator();
-
-				while (iterator.hasNext()) {
-					Path existingPath = iterator.next();
-
-					if (!Files.isRegularFile(existingPath)) {
-						continue;
-					}
-
-					final Path outputPath = outputFs.getRoot().resolve(existingPath.toString());
-
-					LOGGER.debug("Copying existing entry to output: {}", existingPath);
-					createParentDirectories(outputPath);
-					Files.copy(existingPath, outputPath);
-				}
+			// Copy the new and existing items to the output jar, without recompressing them
+			try (RawZipFile outputZip = RawZipFile.open(partialWorkJob.output());
+					RawZipFile existingZip = RawZipFile.open(partialWorkJob.existingSources());
+					RawZipWriter writer = new RawZipWriter(output)) {
+				writer.copyEntries(outputZip);
+				writer.copyEntries(existingZip);
 			}
 
+			Files.delete(partialWorkJob.output());
 			Files.delete(partialWorkJob.existingSources());
 			Files.delete(partialWorkJob.existingClasses());
-			Files.move(partialWorkJob.output(), output);
 		} else if (workJob instanceof FullWorkJob fullWorkJob) {
 			// Nothing to merge, just use the output jar
 			Files.move(fullWorkJob.output, output);
@@ -242,6 +297,14 @@ public record CachedJarProcessor(CachedFileStore<CachedData> fileStore, String b
 		}
 	}
 
+	private record EntryLookup(ClassEntry entry, String hash, @Nullable CachedData cachedData) {
+	}
+
+	@FunctionalInterface
+	private interface IOConsumer<T> {
+		void accept(T t) throws IOException;
+	}
+
 	public record WorkRequest(WorkJob job, CacheStats stats, @Nullable ClassLineNumbers lineNumbers) {
 	}
 
@@ -300,14 +363,4 @@ public record CachedJarProcessor(CachedFileStore<CachedData> fileStore, String b
 	 */
 	public record FullWorkJob(Path incomplete, Path output, Map<String, String> outputNameMap) implements WorkToDoJob {
 	}
-
-	private static void createParentDirectories(Path path) throws IOException {
-		final Path parent = path.getParent();
-
-		if (parent == null) {
-			return;
-		}
-
-		Files.createDirectories(parent);
-	}
 }
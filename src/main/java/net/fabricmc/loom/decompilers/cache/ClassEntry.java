@@ -27,16 +27,15 @@ package net.fabricmc.loom.decompilers.cache;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.StringJoiner;
 
+import com.google.common.hash.HashCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import net.fabricmc.loom.util.Checksum;
-
 /**
  * @param name The class name
  * @param innerClasses A list of inner class names
@@ -63,49 +62,51 @@ public record ClassEntry(String name, List<String> innerClasses, List<String> su
 	}
 
 	/**
-	 * Hash the class and its inner classes using sha256.
+	 * Hash the class and its inner classes.
 	 * @param root The root of the jar
+	 * @param hashing The hash function to use
 	 * @return The hash of the class and its inner classes
 	 *
 	 * @throws IOException If an error occurs while hashing the files
 	 */
-	public String hash(Path root) throws IOException {
-		StringJoiner joiner = new StringJoiner(",");
-
-		joiner.add(Checksum.sha256Hex(Files.readAllBytes(root.resolve(name))));
-
-		for (String innerClass : innerClasses) {
-			joiner.add(Checksum.sha256Hex(Files.readAllBytes(root.resolve(innerClass))));
-		}
+	public HashCode hash(Path root, ClassHashing hashing) throws IOException {
+		return hashing.hashFiles(root, allClasses());
+	}
 
-		return Checksum.sha256Hex(joiner.toString().getBytes());
+	/**
+	 * @return The class followed by its inner classes
+	 */
+	public List<String> allClasses() {
+		final List<String> names = new ArrayList<>(innerClasses.size() + 1);
+		names.add(name);
+		names.addAll(innerClasses);
+		return names;
 	}
 
 	/**
 	 * Return a hash of the class and its super classes.
 	 */
-	public String hashSuperHierarchy(Map<String, String> hashes) throws IOException {
-		final String selfHash = Objects.requireNonNull(hashes.get(name), "Hash for own class not found");
+	public HashCode hashSuperHierarchy(Map<String, HashCode> hashes, ClassHashing hashing) {
+		final HashCode selfHash = Objects.requireNonNull(hashes.get(name), "Hash for own class not found");
 
 		if (superClasses.isEmpty()) {
 			return selfHash;
 		}
 
-		StringJoiner joiner = new StringJoiner(",");
-		joiner.add(selfHash);
+		final List<HashCode> superHashes = new ArrayList<>(superClasses.size());
 
 		for (String superClass : superClasses) {
-			final String superHash = hashes.get(superClass + ".class");
+			final HashCode superHash = hashes.get(superClass + ".class");
 
 			if (superHash != null) {
-				joiner.add(superHash);
+				superHashes.add(superHash);
 			} else if (!superClass.startsWith("java/")) {
 				// This will happen if the super class is not part of the input jar
 				LOGGER.debug("Hash for super class {} of {} not found", superClass, name);
 			}
 		}
 
-		return Checksum.sha256Hex(joiner.toString().getBytes());
+		return hashing.combine(selfHash, superHashes);
 	}
 
 	public String sourcesFileName() {
@@ -0,0 +1,132 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.decompilers.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.StringJoiner;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import net.fabricmc.loom.util.Checksum;
+
+/**
+ * The hash functions used to compute the decompile cache keys of a class.
+ *
+ * <p>The {@link #id()} is included in every cache key, changing the hashing will not reuse (or collide with) entries from another hashing.
+ */
+public enum ClassHashing {
+	/**
+	 * The original hashing, a sha256 of the hex encoded sha256 hashes of each class file.
+	 */
+	SHA256("sha256") {
+		@Override
+		public HashCode hashFiles(Path root, List<String> names) throws IOException {
+			StringJoiner joiner = new StringJoiner(",");
+
+			for (String name : names) {
+				joiner.add(Checksum.sha256Hex(Files.readAllBytes(root.resolve(name))));
+			}
+
+			return Hashing.sha256().hashString(joiner.toString(), StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public HashCode combine(HashCode self, List<HashCode> hashes) {
+			StringJoiner joiner = new StringJoiner(",");
+			joiner.add(self.toString());
+
+			for (HashCode hash : hashes) {
+				joiner.add(hash.toString());
+			}
+
+			return Hashing.sha256().hashString(joiner.toString(), StandardCharsets.UTF_8);
+		}
+	},
+	/**
+	 * A non-cryptographic 128-bit murmur3 hash, fed directly with the class bytes.
+	 */
+	MURMUR3_128("murmur3") {
+		@Override
+		public HashCode hashFiles(Path root, List<String> names) throws IOException {
+			final Hasher hasher = Hashing.murmur3_128().newHasher();
+
+			for (String name : names) {
+				final byte[] bytes = Files.readAllBytes(root.resolve(name));
+				// Length prefix each file so that moving bytes between classes changes the hash
+				hasher.putInt(bytes.length);
+				hasher.putBytes(bytes);
+			}
+
+			return hasher.hash();
+		}
+
+		@Override
+		public HashCode combine(HashCode self, List<HashCode> hashes) {
+			final Hasher hasher = Hashing.murmur3_128().newHasher();
+			hasher.putBytes(self.asBytes());
+
+			for (HashCode hash : hashes) {
+				hasher.putBytes(hash.asBytes());
+			}
+
+			return hasher.hash();
+		}
+	};
+
+	public static final ClassHashing DEFAULT = MURMUR3_128;
+
+	private final String id;
+
+	ClassHashing(String id) {
+		this.id = id;
+	}
+
+	/**
+	 * Hash the contents of the given files, in order.
+	 */
+	public abstract HashCode hashFiles(Path root, List<String> names) throws IOException;
+
+	/**
+	 * Combine the hash of a class with the hashes of its super classes.
+	 */
+	public abstract HashCode combine(HashCode self, List<HashCode> hashes);
+
+	public String id() {
+		return id;
+	}
+
+	/**
+	 * @return The cache key for the given hash, prefixed with the hashing id.
+	 */
+	public String cacheKey(HashCode hash) {
+		return id + "/" + hash;
+	}
+}
@@ -0,0 +1,711 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.decompilers.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.fabricmc.loom.util.CacheRules;
+
+/**
+ * A {@link CachedFileStore} that stores all entries in a single append-only data file, with an on-disk hash index.
+ *
+ * <p>The data file is a sequence of records, each containing the key followed by the serialized entry.
+ * The index file is a memory mapped open addressing hash table mapping the key hash to the offset, length and last access time of a record.
+ * Lookups only touch the index and the record itself, which is read from the data file with a positional read.
+ * The data file is never mapped, as another process may truncate it while it is being read.
+ *
+ * <p>Updating the last access time of an entry only writes to the mapped index, so closing the store never rewrites untouched entries.
+ * The index header tracks the number and length of the live records, along with a lower bound of the oldest access time,
+ * so {@link #prune()} only reads the whole index when entries need to be evicted. The data file is only compacted when entries are evicted,
+ * or when a large part of it is taken up by replaced records.
+ *
+ * <p>The store can be shared between processes. Writers hold an exclusive OS level lock on a lock file next to the data file.
+ * Readers do not lock, instead the index header contains a generation that is odd while a writer is changing the index or moving records.
+ * A read is retried when the generation changes while it is in progress.
+ */
+public final class IndexedCachedFileStore<T> implements CachedFileStore<T>, Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(IndexedCachedFileStore.class);
+
+	private static final int MAGIC = 0x4C494458; // LIDX
+	private static final int VERSION = 3;
+	private static final int INITIAL_CAPACITY = 1 << 12;
+	private static final int MAX_OPTIMISTIC_READS = 64;
+	private static final long LOCK_RETRY_MILLIS = 10;
+
+	// Index header layout
+	private static final int HEADER_LENGTH = 64;
+	private static final int HEADER_MAGIC = 0;
+	private static final int HEADER_VERSION = 4;
+	private static final int HEADER_CAPACITY = 8;
+	private static final int HEADER_ENTRIES = 12;
+	private static final int HEADER_DATA_LENGTH = 16;
+	private static final int HEADER_GENERATION = 24;
+	private static final int HEADER_LIVE_LENGTH = 32;
+	private static final int HEADER_OLDEST_ACCESS = 40;
+
+	// Index slot layout
+	private static final int SLOT_SIZE = 32;
+	private static final int SLOT_HASH = 0;
+	private static final int SLOT_OFFSET = 8;
+	private static final int SLOT_LENGTH = 16;
+	private static final int SLOT_LAST_ACCESS = 24;
+
+	// A hash of 0 marks an empty slot
+	private static final long EMPTY = 0;
+
+	// Used for the generation, as it is accessed by other processes without holding a lock
+	private static final VarHandle LONG_VIEW = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+	// File locks are held by the whole JVM, so threads (and other stores for the same file) must also be coordinated within it.
+	private static final Map<Path, ReentrantLock> JVM_LOCKS = new ConcurrentHashMap<>();
+
+	private final Path dataPath;
+	private final Path indexPath;
+	private final BufferEntrySerializer<T> entrySerializer;
+	private final CacheRules cacheRules;
+	private final FileChannel dataChannel;
+	private final FileChannel indexChannel;
+	private final FileChannel lockChannel;
+	private final ReentrantLock jvmLock;
+
+	private volatile MappedByteBuffer index;
+	private volatile int capacity;
+
+	private IndexedCachedFileStore(Path dataPath, BufferEntrySerializer<T> entrySerializer, CacheRules cacheRules) throws IOException {
+		this.dataPath = dataPath;
+		this.indexPath = getIndexPath(dataPath);
+		this.entrySerializer = entrySerializer;
+		this.cacheRules = cacheRules;
+
+		final Path lockPath = dataPath.resolveSibling(dataPath.getFileName() + ".lock");
+		this.jvmLock = JVM_LOCKS.computeIfAbsent(lockPath.toAbsolutePath().normalize(), p -> new ReentrantLock());
+
+		final List<FileChannel> opened = new ArrayList<>();
+
+		try {
+			this.lockChannel = open(lockPath, opened);
+			this.dataChannel = open(dataPath, opened);
+			this.indexChannel = open(indexPath, opened);
+		} catch (IOException e) {
+			for (FileChannel channel : opened) {
+				channel.close();
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Open, or create the store.
+	 *
+	 * @param dataPath The path to the data file, the index and lock file are stored next to it.
+	 */
+	public static <T> IndexedCachedFileStore<T> open(Path dataPath, BufferEntrySerializer<T> entrySerializer, CacheRules cacheRules) throws IOException {
+		Objects.requireNonNull(dataPath, "dataPath");
+		Files.createDirectories(dataPath.toAbsolutePath().getParent());
+
+		final var store = new IndexedCachedFileStore<>(dataPath, entrySerializer, cacheRules);
+
+		try (var lock = store.lock()) {
+			store.load();
+		} catch (IOException | RuntimeException e) {
+			store.close();
+			throw e;
+		}
+
+		return store;
+	}
+
+	public static Path getIndexPath(Path dataPath) {
+		return dataPath.resolveSibling(dataPath.getFileName() + ".idx");
+	}
+
+	private static FileChannel open(Path path, List<FileChannel> opened) throws IOException {
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		opened.add(channel);
+		return channel;
+	}
+
+	private void load() throws IOException {
+		long generation = 0;
+
+		if (indexChannel.size() >= HEADER_LENGTH) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+			indexChannel.read(header, 0);
+			header.flip();
+
+			final int capacity = header.getInt(HEADER_CAPACITY);
+			final long dataLength = header.getLong(HEADER_DATA_LENGTH);
+			generation = header.getLong(HEADER_GENERATION);
+
+			// The write lock is held, so an odd generation means a writer was killed while changing the index or moving records.
+			if (header.getInt(HEADER_MAGIC) == MAGIC
+					&& header.getInt(HEADER_VERSION) == VERSION
+					&& (generation & 1) == 0
+					&& capacity > 0 && Integer.bitCount(capacity) == 1
+					&& indexChannel.size() >= indexSize(capacity)
+					&& dataChannel.size() >= dataLength) {
+				if (dataChannel.size() > dataLength) {
+					// Left over from an interrupted append, nothing in the index points to it.
+					try {
+						dataChannel.truncate(dataLength);
+					} catch (IOException e) {
+						LOGGER.debug("Failed to truncate decompile cache data file {}", dataPath, e);
+					}
+				}
+
+				mapIndex(capacity);
+				return;
+			}
+
+			LOGGER.warn("Decompile cache index {} is invalid, resetting cache", indexPath);
+		}
+
+		// The index is never shrunk, as another process may still have it mapped.
+		// Keep the generation moving forwards, so that readers in other processes retry rather than see the reset in progress.
+		mapIndex(INITIAL_CAPACITY);
+		setGeneration(generation | 1);
+
+		dataChannel.truncate(0);
+		clearSlots();
+		index.putInt(HEADER_MAGIC, MAGIC);
+		index.putInt(HEADER_VERSION, VERSION);
+		index.putInt(HEADER_CAPACITY, INITIAL_CAPACITY);
+		index.putInt(HEADER_ENTRIES, 0);
+		index.putLong(HEADER_DATA_LENGTH, 0);
+		index.putLong(HEADER_LIVE_LENGTH, 0);
+		index.putLong(HEADER_OLDEST_ACCESS, Long.MAX_VALUE);
+		setGeneration((generation | 1) + 1);
+	}
+
+	@Override
+	public @Nullable T getEntry(String key) throws IOException {
+		final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		final long hash = hash(keyBytes);
+
+		for (int attempt = 0; attempt < MAX_OPTIMISTIC_READS; attempt++) {
+			final long generation = getGeneration();
+
+			if ((generation & 1) != 0) {
+				// A writer is currently changing the index
+				Thread.onSpinWait();
+				continue;
+			}
+
+			try {
+				final Lookup<T> lookup = readEntry(keyBytes, hash);
+				VarHandle.acquireFence();
+
+				if (getGeneration() == generation) {
+					if (lookup != null) {
+						// Update the last access time, so recently used entries stay in the cache
+						index.putLong(slotPosition(lookup.slot()) + SLOT_LAST_ACCESS, System.currentTimeMillis());
+						return lookup.entry();
+					}
+
+					return null;
+				}
+			} catch (IOException | RuntimeException e) {
+				if (getGeneration() == generation) {
+					throw e;
+				}
+
+				// The index or data was changed while reading, so try again
+			}
+		}
+
+		// Something else is writing a lot, wait for it to finish.
+		try (var lock = lock()) {
+			final Lookup<T> lookup = readEntry(keyBytes, hash);
+
+			if (lookup == null) {
+				return null;
+			}
+
+			index.putLong(slotPosition(lookup.slot()) + SLOT_LAST_ACCESS, System.currentTimeMillis());
+			return lookup.entry();
+		}
+	}
+
+	private @Nullable Lookup<T> readEntry(byte[] keyBytes, long hash) throws IOException {
+		ensureIndexMapped();
+
+		final int slot = findSlot(keyBytes, hash);
+
+		if (slot < 0) {
+			return null;
+		}
+
+		final int slotPos = slotPosition(slot);
+		final ByteBuffer record = readRecord(index.getLong(slotPos + SLOT_OFFSET), index.getInt(slotPos + SLOT_LENGTH), Integer.MAX_VALUE);
+
+		if (!keyEquals(record, keyBytes)) {
+			// The slot was reused by a concurrent writer, the generation check will retry the read
+			throw new IOException("Decompile cache record does not match its index entry: " + dataPath);
+		}
+
+		final ByteBuffer payload = record.slice(Integer.BYTES + keyBytes.length, record.limit() - Integer.BYTES - keyBytes.length);
+		return new Lookup<>(slot, entrySerializer.read(payload));
+	}
+
+	@Override
+	public void putEntry(String key, T entry) throws IOException {
+		final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		final long hash = hash(keyBytes);
+
+		try (var lock = lock()) {
+			ensureIndexMapped();
+
+			// Append the new record to the end of the data file, nothing can see it until the index is updated
+			final long offset = index.getLong(HEADER_DATA_LENGTH);
+			dataChannel.position(offset);
+			dataChannel.write(ByteBuffer.allocate(Integer.BYTES + keyBytes.length).putInt(keyBytes.length).put(keyBytes).flip());
+			entrySerializer.write(entry, dataChannel);
+
+			final long length = dataChannel.position() - offset;
+
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException("Cache entry is too large: " + key);
+			}
+
+			beginWrite();
+
+			try {
+				int slot = findSlot(keyBytes, hash);
+				long liveLength = index.getLong(HEADER_LIVE_LENGTH);
+
+				if (slot < 0) {
+					final int entries = index.getInt(HEADER_ENTRIES);
+
+					if ((entries + 1) * 4L > capacity * 3L) {
+						resize(capacity * 2);
+					}
+
+					slot = findEmptySlot(hash);
+					index.putInt(HEADER_ENTRIES, entries + 1);
+				} else {
+					// Any previous record for this key is left behind in the data file, and removed by the next compaction
+					liveLength -= index.getInt(slotPosition(slot) + SLOT_LENGTH);
+				}
+
+				final long now = System.currentTimeMillis();
+				writeSlot(slot, hash, offset, (int) length, now);
+				index.putLong(HEADER_DATA_LENGTH, offset + length);
+				index.putLong(HEADER_LIVE_LENGTH, liveLength + length);
+				index.putLong(HEADER_OLDEST_ACCESS, Math.min(index.getLong(HEADER_OLDEST_ACCESS), now));
+			} finally {
+				endWrite();
+			}
+		}
+	}
+
+	/**
+	 * Evict entries based on the {@link CacheRules}, compacting the data file if any entries were removed.
+	 */
+	public void prune() throws IOException {
+		try (var lock = lock()) {
+			ensureIndexMapped();
+
+			final long maxAge = Instant.now().minus(cacheRules.maxAge()).toEpochMilli();
+			final int entries = index.getInt(HEADER_ENTRIES);
+			final long dataLength = index.getLong(HEADER_DATA_LENGTH);
+			final boolean hasStaleRecords = (dataLength - index.getLong(HEADER_LIVE_LENGTH)) * 4 > dataLength;
+			final List<Slot> retained;
+
+			if (entries > cacheRules.maxFiles() || index.getLong(HEADER_LIVE_LENGTH) > cacheRules.maxBytes() || index.getLong(HEADER_OLDEST_ACCESS) < maxAge) {
+				retained = selectRetained(maxAge);
+
+				if (retained.size() == entries && !hasStaleRecords) {
+					// The oldest entry has been used since the lower bound was set
+					index.putLong(HEADER_OLDEST_ACCESS, oldestAccess(retained));
+					return;
+				}
+
+				LOGGER.info("Evicting {} of {} entries from decompile cache", entries - retained.size(), entries);
+			} else if (hasStaleRecords) {
+				retained = readSlots();
+			} else {
+				return;
+			}
+
+			beginWrite();
+
+			try {
+				compact(retained);
+			} finally {
+				endWrite();
+			}
+		}
+	}
+
+	/**
+	 * Select the entries to keep, the expired entries are evicted followed by the least recently used entries until the store is within the limits.
+	 * Only the evicted entries are taken from the queue, so the entries are never fully sorted by their last access.
+	 */
+	private List<Slot> selectRetained(long maxAge) {
+		final List<Slot> slots = readSlots();
+		final PriorityQueue<Slot> retained = new PriorityQueue<>(Math.max(1, slots.size()), Comparator.comparingLong(Slot::lastAccess));
+		long retainedLength = 0;
+
+		for (Slot slot : slots) {
+			if (slot.lastAccess() >= maxAge) {
+				retained.add(slot);
+				retainedLength += slot.length();
+			}
+		}
+
+		while (retained.size() > cacheRules.maxFiles() || retainedLength > cacheRules.maxBytes()) {
+			retainedLength -= retained.poll().length();
+		}
+
+		return new ArrayList<>(retained);
+	}
+
+	/**
+	 * Remove all entries from the store.
+	 */
+	public void clear() throws IOException {
+		try (var lock = lock()) {
+			ensureIndexMapped();
+			beginWrite();
+
+			try {
+				clearSlots();
+				index.putInt(HEADER_ENTRIES, 0);
+				index.putLong(HEADER_DATA_LENGTH, 0);
+				index.putLong(HEADER_LIVE_LENGTH, 0);
+				index.putLong(HEADER_OLDEST_ACCESS, Long.MAX_VALUE);
+			} finally {
+				endWrite();
+			}
+		}
+	}
+
+	/**
+	 * Move the given records to the start of the data file, in their existing order, and rebuild the index.
+	 */
+	private void compact(List<Slot> retained) throws IOException {
+		final List<Slot> sorted = new ArrayList<>(retained);
+		sorted.sort(Comparator.comparingLong(Slot::offset));
+
+		final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		long writePosition = 0;
+
+		clearSlots();
+
+		for (Slot slot : sorted) {
+			if (slot.offset() != writePosition) {
+				// Records only ever move towards the start of the file, so copying front to back is safe.
+				for (long copied = 0; copied < slot.length(); ) {
+					buffer.clear().limit((int) Math.min(buffer.capacity(), slot.length() - copied));
+					readFully(buffer, slot.offset() + copied);
+					buffer.flip();
+
+					while (buffer.hasRemaining()) {
+						copied += dataChannel.write(buffer, writePosition + copied);
+					}
+				}
+			}
+
+			insertSlot(new Slot(slot.hash(), writePosition, slot.length(), slot.lastAccess()));
+			writePosition += slot.length();
+		}
+
+		index.putInt(HEADER_ENTRIES, sorted.size());
+		index.putLong(HEADER_DATA_LENGTH, writePosition);
+		index.putLong(HEADER_LIVE_LENGTH, writePosition);
+		index.putLong(HEADER_OLDEST_ACCESS, oldestAccess(sorted));
+		dataChannel.truncate(writePosition);
+	}
+
+	private static long oldestAccess(List<Slot> slots) {
+		long oldest = Long.MAX_VALUE;
+
+		for (Slot slot : slots) {
+			oldest = Math.min(oldest, slot.lastAccess());
+		}
+
+		return oldest;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try (lockChannel; dataChannel; indexChannel) {
+			final MappedByteBuffer index = this.index;
+
+			if (index != null) {
+				index.force();
+			}
+		}
+	}
+
+	/**
+	 * Acquire the exclusive write lock, shared by all threads and processes using this store.
+	 */
+	private WriteLock lock() throws IOException {
+		jvmLock.lock();
+
+		try {
+			return new WriteLock(lockFile());
+		} catch (IOException | RuntimeException e) {
+			jvmLock.unlock();
+			throw e;
+		}
+	}
+
+	private FileLock lockFile() throws IOException {
+		while (true) {
+			try {
+				return lockChannel.lock();
+			} catch (OverlappingFileLockException e) {
+				// Held by a store loaded by another class loader in this JVM, which JVM_LOCKS does not coordinate with
+				try {
+					Thread.sleep(LOCK_RETRY_MILLIS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for the decompile cache lock: " + dataPath);
+				}
+			}
+		}
+	}
+
+	private void beginWrite() {
+		setGeneration(getGeneration() + 1);
+	}
+
+	private void endWrite() {
+		setGeneration(getGeneration() + 1);
+	}
+
+	private long getGeneration() {
+		return (long) LONG_VIEW.getVolatile(index, HEADER_GENERATION);
+	}
+
+	private void setGeneration(long generation) {
+		LONG_VIEW.setVolatile(index, HEADER_GENERATION, generation);
+	}
+
+	/**
+	 * Another process may have grown the index since it was last mapped.
+	 */
+	private void ensureIndexMapped() throws IOException {
+		final int headerCapacity = index.getInt(HEADER_CAPACITY);
+
+		if (headerCapacity != capacity) {
+			mapIndex(headerCapacity);
+		}
+	}
+
+	private synchronized void mapIndex(int newCapacity) throws IOException {
+		if (index != null && capacity == newCapacity) {
+			return;
+		}
+
+		// Mapping past the end of the file grows it
+		index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexSize(newCapacity));
+		capacity = newCapacity;
+	}
+
+	private int findSlot(byte[] key, long hash) throws IOException {
+		final int capacity = this.capacity;
+		final int mask = capacity - 1;
+		int slot = bucket(hash, mask);
+
+		// Bounded, as a concurrent writer may leave the table in an inconsistent state while it is being read
+		for (int i = 0; i < capacity; i++, slot = (slot + 1) & mask) {
+			final int slotPos = slotPosition(slot);
+			final long slotHash = index.getLong(slotPos + SLOT_HASH);
+
+			if (slotHash == EMPTY) {
+				return -1;
+			}
+
+			if (slotHash == hash && keyEquals(readRecord(index.getLong(slotPos + SLOT_OFFSET), index.getInt(slotPos + SLOT_LENGTH), Integer.BYTES + key.length), key)) {
+				return slot;
+			}
+		}
+
+		return -1;
+	}
+
+	private int findEmptySlot(long hash) {
+		final int mask = capacity - 1;
+
+		for (int slot = bucket(hash, mask); ; slot = (slot + 1) & mask) {
+			if (index.getLong(slotPosition(slot) + SLOT_HASH) == EMPTY) {
+				return slot;
+			}
+		}
+	}
+
+	private void insertSlot(Slot slot) {
+		writeSlot(findEmptySlot(slot.hash()), slot.hash(), slot.offset(), slot.length(), slot.lastAccess());
+	}
+
+	private void writeSlot(int slot, long hash, long offset, int length, long lastAccess) {
+		final int slotPos = slotPosition(slot);
+		index.putLong(slotPos + SLOT_OFFSET, offset);
+		index.putInt(slotPos + SLOT_LENGTH, length);
+		index.putLong(slotPos + SLOT_LAST_ACCESS, lastAccess);
+		index.putLong(slotPos + SLOT_HASH, hash);
+	}
+
+	private List<Slot> readSlots() {
+		final List<Slot> slots = new ArrayList<>(index.getInt(HEADER_ENTRIES));
+
+		for (int slot = 0; slot < capacity; slot++) {
+			final int slotPos = slotPosition(slot);
+			final long hash = index.getLong(slotPos + SLOT_HASH);
+
+			if (hash != EMPTY) {
+				slots.add(new Slot(hash, index.getLong(slotPos + SLOT_OFFSET), index.getInt(slotPos + SLOT_LENGTH), index.getLong(slotPos + SLOT_LAST_ACCESS)));
+			}
+		}
+
+		return slots;
+	}
+
+	private void clearSlots() {
+		final byte[] empty = new byte[SLOT_SIZE];
+
+		for (int slot = 0; slot < capacity; slot++) {
+			index.put(slotPosition(slot), empty);
+		}
+	}
+
+	private void resize(int newCapacity) throws IOException {
+		final List<Slot> slots = readSlots();
+
+		mapIndex(newCapacity);
+		index.putInt(HEADER_CAPACITY, newCapacity);
+
+		clearSlots();
+		slots.forEach(this::insertSlot);
+	}
+
+	/**
+	 * Read up to {@code maxLength} bytes from the start of a record.
+	 *
+	 * <p>Records are validated against the data length in the index and read with the channel, so a stale index entry
+	 * or a data file truncated by another process results in an {@link IOException} instead of a fault.
+	 */
+	private ByteBuffer readRecord(long offset, int length, int maxLength) throws IOException {
+		if (offset < 0 || length < Integer.BYTES || offset + length > index.getLong(HEADER_DATA_LENGTH)) {
+			throw new IOException("Decompile cache record is outside of the data file: " + dataPath);
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, maxLength));
+		readFully(buffer, offset);
+		return buffer.flip();
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (dataChannel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of decompile cache data file: " + dataPath);
+			}
+		}
+	}
+
+	private static boolean keyEquals(ByteBuffer record, byte[] key) {
+		return record.limit() >= Integer.BYTES + key.length
+				&& record.getInt(0) == key.length
+				&& record.slice(Integer.BYTES, key.length).equals(ByteBuffer.wrap(key));
+	}
+
+	// FNV-1a
+	private static long hash(byte[] key) {
+		long hash = 0xcbf29ce484222325L;
+
+		for (byte b : key) {
+			hash ^= b & 0xFF;
+			hash *= 0x100000001b3L;
+		}
+
+		return hash == EMPTY ? 1 : hash;
+	}
+
+	private static int bucket(long hash, int mask) {
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+	private static int slotPosition(int slot) {
+		return HEADER_LENGTH + slot * SLOT_SIZE;
+	}
+
+	private static long indexSize(int capacity) {
+		return HEADER_LENGTH + (long) capacity * SLOT_SIZE;
+	}
+
+	private record Slot(long hash, long offset, int length, long lastAccess) {
+	}
+
+	private record Lookup<E>(int slot, E entry) {
+	}
+
+	private final class WriteLock implements AutoCloseable {
+		private final FileLock fileLock;
+
+		private WriteLock(FileLock fileLock) {
+			this.fileLock = fileLock;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				fileLock.release();
+			} finally {
+				jvmLock.unlock();
+			}
+		}
+	}
+}
@@ -43,12 +43,15 @@ public interface LoomFiles {
 	File getProjectPersistentCache();
 	File getProjectBuildCache();
 	File getRemappedModCache();
+	File getGlobalRemappedModCache();
 	File getNativesDirectory(Project project);
 	File getDefaultLog4jConfigFile();
 	File getDevLauncherConfig();
 	File getUnpickLoggingConfigFile();
 	File getRemapClasspathFile();
+	File getJarProcessorReportFile();
 	File getGlobalMinecraftRepo();
 	File getLocalMinecraftRepo();
 	File getDecompileCache(String version);
+	File getProcessedClassCache(String version);
 }
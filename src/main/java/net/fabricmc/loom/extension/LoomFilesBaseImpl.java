@@ -69,6 +69,11 @@ public abstract class LoomFilesBaseImpl implements LoomFiles {
 		return createFile(getRootProjectPersistentCache(), "remapped_mods");
 	}
 
+	@Override
+	public File getGlobalRemappedModCache() {
+		return new File(getUserCache(), "remapped_mods");
+	}
+
 	@Override
 	public File getNativesDirectory(Project project) {
 		return createFile(getRootProjectPersistentCache(), "natives/" + LoomGradleExtension.get(project).getMinecraftProvider().minecraftVersion());
@@ -94,6 +99,11 @@ public abstract class LoomFilesBaseImpl implements LoomFiles {
 		return new File(getProjectPersistentCache(), "remapClasspath.txt");
 	}
 
+	@Override
+	public File getJarProcessorReportFile() {
+		return new File(getProjectPersistentCache(), "jarProcessors.txt");
+	}
+
 	@Override
 	public File getGlobalMinecraftRepo() {
 		return new File(getUserCache(), "minecraftMaven");
@@ -106,6 +116,11 @@ public abstract class LoomFilesBaseImpl implements LoomFiles {
 
 	@Override
 	public File getDecompileCache(String version) {
-		return new File(getUserCache(), "decompile/" + version + ".zip");
+		return new File(getUserCache(), "decompile/" + version + ".bin");
+	}
+
+	@Override
+	public File getProcessedClassCache(String version) {
+		return new File(getUserCache(), "processed-classes/" + version + ".bin");
 	}
 }
@@ -63,6 +63,7 @@ import net.fabricmc.loom.api.mappings.layered.MappingsNamespace;
 import net.fabricmc.loom.task.service.ClientEntriesService;
 import net.fabricmc.loom.task.service.JarManifestService;
 import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.ZipAssembler;
 import net.fabricmc.loom.util.ZipReprocessorUtil;
 import net.fabricmc.loom.util.ZipUtils;
 import net.fabricmc.loom.util.gradle.SourceSetHelper;
@@ -214,18 +215,26 @@ public abstract class AbstractRemapJarTask extends Jar {
 		}
 
 		protected void modifyJarManifest() throws IOException {
-			int count = ZipUtils.transform(outputFile, Map.of(Constants.Manifest.PATH, bytes -> {
-				var manifest = new Manifest(new ByteArrayInputStream(bytes));
+			int count = ZipUtils.transform(outputFile, Map.of(Constants.Manifest.PATH, this::transformManifest));
 
-				getParameters().getJarManifestService().get().apply(manifest, getParameters().getManifestAttributes().get());
-				manifest.getMainAttributes().putValue(Constants.Manifest.MAPPING_NAMESPACE, getParameters().getTargetNamespace().get());
+			Preconditions.checkState(count > 0, "Did not transform any jar manifest");
+		}
 
-				ByteArrayOutputStream out = new ByteArrayOutputStream();
-				manifest.write(out);
-				return out.toByteArray();
-			}));
+		protected void modifyJarManifest(ZipAssembler jar) {
+			boolean transformed = jar.transform(Constants.Manifest.PATH, this::transformManifest);
 
-			Preconditions.checkState(count > 0, "Did not transform any jar manifest");
+			Preconditions.checkState(transformed, "Did not transform any jar manifest");
+		}
+
+		private byte[] transformManifest(byte[] bytes) throws IOException {
+			var manifest = new Manifest(new ByteArrayInputStream(bytes));
+
+			getParameters().getJarManifestService().get().apply(manifest, getParameters().getManifestAttributes().get());
+			manifest.getMainAttributes().putValue(Constants.Manifest.MAPPING_NAMESPACE, getParameters().getTargetNamespace().get());
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			manifest.write(out);
+			return out.toByteArray();
 		}
 
 		protected void rewriteJar() throws IOException {
@@ -237,6 +246,17 @@ public abstract class AbstractRemapJarTask extends Jar {
 				ZipReprocessorUtil.reprocessZip(outputFile, isReproducibleFileOrder, isPreserveFileTimestamps, compression);
 			}
 		}
+
+		/**
+		 * Writes the assembled jar to the output file, applying the archive settings of the task.
+		 */
+		protected void writeJar(ZipAssembler jar) throws IOException {
+			final boolean isReproducibleFileOrder = getParameters().getArchiveReproducibleFileOrder().get();
+			final boolean isPreserveFileTimestamps = getParameters().getArchivePreserveFileTimestamps().get();
+			final ZipEntryCompression compression = getParameters().getEntryCompression().get();
+
+			jar.write(outputFile, isReproducibleFileOrder, isPreserveFileTimestamps, compression);
+		}
 	}
 
 	@Deprecated
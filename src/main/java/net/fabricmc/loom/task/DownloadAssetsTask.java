@@ -26,7 +26,15 @@ package net.fabricmc.loom.task;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 
@@ -42,6 +50,7 @@ import net.fabricmc.loom.LoomGradlePlugin;
 import net.fabricmc.loom.configuration.ide.RunConfigSettings;
 import net.fabricmc.loom.configuration.providers.minecraft.MinecraftVersionMeta;
 import net.fabricmc.loom.configuration.providers.minecraft.assets.AssetIndex;
+import net.fabricmc.loom.configuration.providers.minecraft.assets.AssetIndexState;
 import net.fabricmc.loom.util.MirrorUtil;
 import net.fabricmc.loom.util.download.DownloadExecutor;
 import net.fabricmc.loom.util.download.DownloadFactory;
@@ -108,11 +117,37 @@ public abstract class DownloadAssetsTask extends AbstractLoomTask {
 
 	@TaskAction
 	public void downloadAssets() throws IOException {
-		final AssetIndex assetIndex = getAssetIndex();
+		final MinecraftVersionMeta.AssetIndex assetIndexMeta = LoomGradlePlugin.GSON.fromJson(getAssetsIndexJson().get(), MinecraftVersionMeta.AssetIndex.class);
+		final String indexId = assetIndexMeta.fabricId(getMinecraftVersion().get());
+		final AssetIndex assetIndex = getAssetIndex(assetIndexMeta, indexId);
+		final Path stateFile = getIndexesDirectory().resolve(indexId + ".state.json");
+		final AssetIndexState state = AssetIndexState.read(stateFile);
+
+		// Objects are grouped by hash so that each object is only downloaded once, even when used by multiple paths.
+		final Map<String, Set<Path>> pathsByHash = new LinkedHashMap<>();
+		final Map<String, AssetIndex.Object> objectsByHash = new LinkedHashMap<>();
+
+		for (AssetIndex.Object object : assetIndex.getObjects()) {
+			pathsByHash.computeIfAbsent(object.hash(), hash -> new LinkedHashSet<>()).add(getAssetsPath(object, assetIndex));
+			objectsByHash.putIfAbsent(object.hash(), object);
+		}
+
+		final List<AssetCopy> copies = new ArrayList<>();
+		final Map<Path, AssetIndex.Object> updated = new LinkedHashMap<>();
 
 		try (ProgressGroup progressGroup = new ProgressGroup("Download Assets", getProgressLoggerFactory());
 				DownloadExecutor executor = new DownloadExecutor(getDownloadThreads().get())) {
-			for (AssetIndex.Object object : assetIndex.getObjects()) {
+			for (Map.Entry<String, Set<Path>> entry : pathsByHash.entrySet()) {
+				final AssetIndex.Object object = objectsByHash.get(entry.getKey());
+				// Only stat the files, objects that were verified before and have not changed since are skipped.
+				final List<Path> paths = entry.getValue().stream()
+						.filter(path -> !state.isValid(path, object))
+						.toList();
+
+				if (paths.isEmpty()) {
+					continue;
+				}
+
 				final String sha1 = object.hash();
 				final String url = getResourcesBaseUrl().get() + sha1.substring(0, 2) + "/" + sha1;
 
@@ -120,22 +155,48 @@ public abstract class DownloadAssetsTask extends AbstractLoomTask {
 						.download(url)
 						.sha1(sha1)
 						.progress(new GradleDownloadProgressListener(object.name(), progressGroup::createProgressLogger))
-						.downloadPathAsync(getAssetsPath(object, assetIndex), executor);
+						.downloadPathAsync(paths.get(0), executor);
+
+				for (Path path : paths.subList(1, paths.size())) {
+					copies.add(new AssetCopy(paths.get(0), path));
+				}
+
+				for (Path path : paths) {
+					updated.put(path, object);
+				}
 			}
 		}
+
+		for (AssetCopy copy : copies) {
+			Files.createDirectories(copy.target().getParent());
+			Files.copy(copy.source(), copy.target(), StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		if (updated.isEmpty()) {
+			return;
+		}
+
+		for (Map.Entry<Path, AssetIndex.Object> entry : updated.entrySet()) {
+			state.put(entry.getKey(), entry.getValue());
+		}
+
+		state.write(stateFile);
 	}
 
-	private AssetIndex getAssetIndex() throws IOException {
-		final MinecraftVersionMeta.AssetIndex assetIndex = LoomGradlePlugin.GSON.fromJson(getAssetsIndexJson().get(), MinecraftVersionMeta.AssetIndex.class);
-		final File indexFile = new File(getAssetsDirectory().get().getAsFile(), "indexes" + File.separator + assetIndex.fabricId(getMinecraftVersion().get()) + ".json");
+	private AssetIndex getAssetIndex(MinecraftVersionMeta.AssetIndex assetIndex, String indexId) throws IOException {
+		final Path indexFile = getIndexesDirectory().resolve(indexId + ".json");
 
 		final String json = getDownloadFactory().download(assetIndex.url())
 				.sha1(assetIndex.sha1())
-				.downloadString(indexFile.toPath());
+				.downloadString(indexFile);
 
 		return LoomGradlePlugin.GSON.fromJson(json, AssetIndex.class);
 	}
 
+	private Path getIndexesDirectory() {
+		return getAssetsDirectory().get().getAsFile().toPath().resolve("indexes");
+	}
+
 	private Path getAssetsPath(AssetIndex.Object object, AssetIndex index) {
 		if (index.mapToResources() || index.virtual()) {
 			return new File(getLegacyResourcesDirectory().get().getAsFile(), object.path()).toPath();
@@ -144,4 +205,7 @@ public abstract class DownloadAssetsTask extends AbstractLoomTask {
 		final String filename = "objects" + File.separator + object.hash().substring(0, 2) + File.separator + object.hash();
 		return new File(getAssetsDirectory().get().getAsFile(), filename).toPath();
 	}
+
+	private record AssetCopy(Path source, Path target) {
+	}
 }
@@ -24,6 +24,7 @@
 
 package net.fabricmc.loom.task;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
@@ -32,6 +33,7 @@ import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -40,19 +42,27 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.StringJoiner;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import javax.inject.Inject;
 
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.services.ServiceReference;
 import org.gradle.api.tasks.Input;
@@ -65,8 +75,6 @@ import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.options.Option;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
-import org.gradle.process.ExecOperations;
-import org.gradle.process.ExecResult;
 import org.gradle.work.DisableCachingByDefault;
 import org.gradle.workers.WorkAction;
 import org.gradle.workers.WorkParameters;
@@ -82,17 +90,21 @@ import net.fabricmc.loom.api.decompilers.LoomDecompiler;
 import net.fabricmc.loom.configuration.providers.minecraft.MinecraftJar;
 import net.fabricmc.loom.configuration.providers.minecraft.mapped.AbstractMappedMinecraftProvider;
 import net.fabricmc.loom.decompilers.ClassLineNumbers;
+import net.fabricmc.loom.decompilers.DecompileBatches;
 import net.fabricmc.loom.decompilers.LineNumberRemapper;
 import net.fabricmc.loom.decompilers.cache.CachedData;
-import net.fabricmc.loom.decompilers.cache.CachedFileStoreImpl;
 import net.fabricmc.loom.decompilers.cache.CachedJarProcessor;
+import net.fabricmc.loom.decompilers.cache.ClassEntry;
+import net.fabricmc.loom.decompilers.cache.IndexedCachedFileStore;
 import net.fabricmc.loom.task.service.SourceMappingsService;
+import net.fabricmc.loom.util.CacheRules;
 import net.fabricmc.loom.util.Checksum;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.ExceptionUtil;
 import net.fabricmc.loom.util.FileSystemUtil;
 import net.fabricmc.loom.util.IOStringConsumer;
 import net.fabricmc.loom.util.Platform;
+import net.fabricmc.loom.util.gradle.ExecutorBuildService;
 import net.fabricmc.loom.util.gradle.SyncTaskBuildService;
 import net.fabricmc.loom.util.gradle.ThreadedProgressLoggerConsumer;
 import net.fabricmc.loom.util.gradle.ThreadedSimpleProgressLogger;
@@ -104,7 +116,13 @@ import net.fabricmc.mappingio.tree.MemoryMappingTree;
 
 @DisableCachingByDefault
 public abstract class GenerateSourcesTask extends AbstractLoomTask {
-	private static final String CACHE_VERSION = "v1";
+	private static final String CACHE_VERSION = "v2";
+	// The zip based cache used before the indexed store, removed when the new cache is first used
+	private static final String LEGACY_CACHE_FILE = "v1.zip";
+	// The minimum heap size in MiB of a decompiler shard JVM
+	private static final long MIN_SHARD_MEMORY = 1024;
+	// Unpick only needs to hold the class being processed and the constant definitions
+	private static final long UNPICK_MEMORY = 1024;
 	private final DecompilerOptions decompilerOptions;
 
 	/**
@@ -164,6 +182,27 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 	@ApiStatus.Experimental
 	public abstract Property<Boolean> getResetCache();
 
+	@Input
+	@Option(option = "pipelined", description = "Unpick, decompile and remap line numbers in overlapping batches")
+	@ApiStatus.Experimental
+	public abstract Property<Boolean> getPipelined();
+
+	/**
+	 * The number of batches the classes are split into when {@link #getPipelined()} is enabled.
+	 */
+	@Input
+	@ApiStatus.Experimental
+	public abstract Property<Integer> getPipelineBatches();
+
+	/**
+	 * The number of worker JVMs to decompile with in parallel, each decompiling a shard of the classes.
+	 * The decompiler memory and threads are divided between the shards. Not used when {@link #getPipelined()} is enabled.
+	 */
+	@Input
+	@Option(option = "shards", description = "The number of worker JVMs to decompile with in parallel")
+	@ApiStatus.Experimental
+	public abstract Property<Integer> getDecompileShards();
+
 	// Internal inputs
 	@ApiStatus.Internal
 	@Nested
@@ -178,9 +217,6 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 	@Inject
 	protected abstract WorkerExecutor getWorkerExecutor();
 
-	@Inject
-	protected abstract ExecOperations getExecOperations();
-
 	@Inject
 	protected abstract WorkerDaemonClientsManager getWorkerDaemonClientsManager();
 
@@ -191,10 +227,15 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 	@ServiceReference(SyncTaskBuildService.NAME)
 	abstract Property<SyncTaskBuildService> getSyncTask();
 
+	@ServiceReference(ExecutorBuildService.NAME)
+	abstract Property<ExecutorBuildService> getExecutorService();
+
 	@Inject
 	public GenerateSourcesTask(DecompilerOptions decompilerOptions) {
 		this.decompilerOptions = decompilerOptions;
 
+		ExecutorBuildService.register(getProject());
+
 		getClassesInputJar().setFrom(getInputJarName().map(minecraftJarName -> {
 			final List<MinecraftJar> minecraftJars = getExtension().getNamedMinecraftProvider().getMinecraftJars();
 
@@ -235,6 +276,9 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 
 		getUseCache().convention(true);
 		getResetCache().convention(getExtension().refreshDeps());
+		getPipelined().convention(false);
+		getPipelineBatches().convention(4);
+		getDecompileShards().convention(1);
 
 		getMappings().set(SourceMappingsService.create(getProject()));
 
@@ -266,18 +310,18 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 
 		try (var timer = new Timer("Decompiled sources with cache")) {
 			final Path cacheFile = getDecompileCacheFile().getAsFile().get().toPath();
+			deleteLegacyCache(cacheFile.resolveSibling(LEGACY_CACHE_FILE));
 
-			if (getResetCache().get()) {
-				getLogger().warn("Resetting decompile cache");
-				Files.deleteIfExists(cacheFile);
-			}
+			final var cacheRules = new CacheRules(50_000, 2L * 1024 * 1024 * 1024, Duration.ofDays(90));
 
-			// TODO ensure we have a lock on this file to prevent multiple tasks from running at the same time
-			// TODO handle being unable to read the cache file
-			Files.createDirectories(cacheFile.getParent());
+			// The cache is shared with other Gradle daemons and projects, the store handles locking.
+			try (var decompileCache = IndexedCachedFileStore.open(cacheFile, CachedData.SERIALIZER, cacheRules)) {
+				if (getResetCache().get()) {
+					getLogger().warn("Resetting decompile cache");
+					decompileCache.clear();
+				}
 
-			try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(cacheFile, true)) {
-				runWithCache(fs.getRoot());
+				runWithCache(decompileCache);
 			}
 		} catch (Exception e) {
 			ExceptionUtil.processException(e, getProject());
@@ -285,12 +329,21 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 		}
 	}
 
-	private void runWithCache(Path cacheRoot) throws IOException {
+	private void deleteLegacyCache(Path legacyCacheFile) {
+		try {
+			if (Files.deleteIfExists(legacyCacheFile)) {
+				getLogger().info("Deleted legacy decompile cache {}", legacyCacheFile);
+			}
+		} catch (IOException e) {
+			// Most likely still in use by an older version of Loom, try again next time
+			getLogger().debug("Failed to delete legacy decompile cache {}", legacyCacheFile, e);
+		}
+	}
+
+	private void runWithCache(IndexedCachedFileStore<CachedData> decompileCache) throws IOException {
 		final Path classesInputJar = getClassesInputJar().getSingleFile().toPath();
 		final Path sourcesOutputJar = getSourcesOutputJar().get().getAsFile().toPath();
 		final Path classesOutputJar = getClassesOutputJar().getSingleFile().toPath();
-		final var cacheRules = new CachedFileStoreImpl.CacheRules(50_000, Duration.ofDays(90));
-		final var decompileCache = new CachedFileStoreImpl<>(cacheRoot, CachedData.SERIALIZER, cacheRules);
 		final String cacheKey = getCacheKey();
 		final CachedJarProcessor cachedJarProcessor = new CachedJarProcessor(decompileCache, cacheKey);
 		final CachedJarProcessor.WorkRequest workRequest;
@@ -307,8 +360,17 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 		getLogger().lifecycle("Decompile cache stats: {} hits, {} misses", cacheStats.hits(), cacheStats.misses());
 
 		ClassLineNumbers outputLineNumbers = null;
+		boolean lineNumbersApplied = false;
+
+		if (job instanceof CachedJarProcessor.WorkToDoJob workToDoJob && getPipelined().get()) {
+			@Nullable Path existingClasses = (job instanceof CachedJarProcessor.PartialWorkJob partialWorkJob) ? partialWorkJob.existingClasses() : null;
 
-		if (job instanceof CachedJarProcessor.WorkToDoJob workToDoJob) {
+			try (var timer = new Timer("Pipelined decompile")) {
+				outputLineNumbers = runPipelined(workToDoJob.incomplete(), workToDoJob.output(), existingClasses, classesInputJar, classesOutputJar, workRequest.lineNumbers());
+			}
+
+			lineNumbersApplied = true;
+		} else if (job instanceof CachedJarProcessor.WorkToDoJob workToDoJob) {
 			Path workInputJar = workToDoJob.incomplete();
 			@Nullable Path existingClasses = (job instanceof CachedJarProcessor.PartialWorkJob partialWorkJob) ? partialWorkJob.existingClasses() : null;
 
@@ -338,11 +400,13 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 
 		getLogger().info("Decompiled sources written to {}", sourcesOutputJar);
 
-		// Remap the line numbers with the new and existing numbers
-		final ClassLineNumbers existingLinenumbers = workRequest.lineNumbers();
-		final ClassLineNumbers lineNumbers = ClassLineNumbers.merge(existingLinenumbers, outputLineNumbers);
+		if (!lineNumbersApplied) {
+			// Remap the line numbers with the new and existing numbers
+			final ClassLineNumbers existingLinenumbers = workRequest.lineNumbers();
+			final ClassLineNumbers lineNumbers = ClassLineNumbers.merge(existingLinenumbers, outputLineNumbers);
 
-		applyLineNumbers(lineNumbers, classesInputJar, classesOutputJar);
+			applyLineNumbers(lineNumbers, classesInputJar, classesOutputJar);
+		}
 
 		try (var timer = new Timer("Prune cache")) {
 			decompileCache.prune();
@@ -354,6 +418,15 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 		final Path sourcesOutputJar = getSourcesOutputJar().get().getAsFile().toPath();
 		final Path classesOutputJar = getClassesOutputJar().getSingleFile().toPath();
 
+		if (getPipelined().get()) {
+			try (var timer = new Timer("Pipelined decompile")) {
+				runPipelined(classesInputJar, sourcesOutputJar, null, classesInputJar, classesOutputJar, null);
+			}
+
+			getLogger().info("Decompiled sources written to {}", sourcesOutputJar);
+			return;
+		}
+
 		Path workClassesJar = classesInputJar;
 
 		if (getUnpickDefinitions().isPresent()) {
@@ -434,6 +507,12 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 
 	@Nullable
 	private ClassLineNumbers runDecompileJob(Path inputJar, Path outputJar, @Nullable Path existingJar) throws IOException {
+		final int shardCount = getDecompileShards().get();
+
+		if (shardCount > 1) {
+			return runShardedDecompileJob(inputJar, outputJar, existingJar, shardCount);
+		}
+
 		final Platform platform = Platform.CURRENT;
 		final Path lineMapFile = File.createTempFile("loom", "linemap").toPath();
 		Files.delete(lineMapFile);
@@ -441,7 +520,7 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 		if (!platform.supportsUnixDomainSockets()) {
 			getLogger().warn("Decompile worker logging disabled as Unix Domain Sockets is not supported on your operating system.");
 
-			doWork(null, inputJar, outputJar, lineMapFile, existingJar);
+			doWork(null, inputJar, outputJar, lineMapFile, optionalList(existingJar));
 			return readLineNumbers(lineMapFile);
 		}
 
@@ -451,7 +530,7 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 
 		try (ThreadedProgressLoggerConsumer loggerConsumer = new ThreadedProgressLoggerConsumer(getLogger(), getProgressLoggerFactory(), decompilerOptions.getName(), "Decompiling minecraft sources");
 				IPCServer logReceiver = new IPCServer(ipcPath, loggerConsumer)) {
-			doWork(logReceiver, inputJar, outputJar, lineMapFile, existingJar);
+			doWork(logReceiver, inputJar, outputJar, lineMapFile, optionalList(existingJar));
 		} catch (InterruptedException e) {
 			throw new RuntimeException("Failed to shutdown log receiver", e);
 		} finally {
@@ -461,23 +540,363 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 		return readLineNumbers(lineMapFile);
 	}
 
+	/**
+	 * Split the input jar into shards, and decompile each shard in its own worker JVM in parallel.
+	 *
+	 * @return The merged line numbers of all the shards
+	 */
+	@Nullable
+	private ClassLineNumbers runShardedDecompileJob(Path inputJar, Path outputJar, @Nullable Path existingJar, int shardCount) throws IOException {
+		final String jvmMarkerValue = UUID.randomUUID().toString();
+		final List<Path> tempFiles = new ArrayList<>();
+		final List<PendingBatch> pending = new ArrayList<>();
+
+		if (!Platform.CURRENT.supportsUnixDomainSockets()) {
+			getLogger().warn("Decompile worker logging disabled as Unix Domain Sockets is not supported on your operating system.");
+		}
+
+		try (DecompileBatches shards = DecompileBatches.split(inputJar, shardCount);
+				ThreadedProgressLoggerConsumer loggerConsumer = new ThreadedProgressLoggerConsumer(getLogger(), getProgressLoggerFactory(), decompilerOptions.getName(), "Decompiling minecraft sources")) {
+			final int count = shards.batches().size();
+			getLogger().info("Decompiling with {} shards", count);
+
+			try {
+				for (DecompileBatches.Batch shard : shards.batches()) {
+					final List<Path> classpath = new ArrayList<>(shards.otherJars(shard));
+					classpath.addAll(optionalList(existingJar));
+
+					pending.add(submitBatch(shard, shard.jar(), classpath, jvmMarkerValue + "-" + shard.index(), count, loggerConsumer, tempFiles));
+				}
+
+				ClassLineNumbers lineNumbers = null;
+
+				for (PendingBatch shard : pending) {
+					lineNumbers = ClassLineNumbers.merge(lineNumbers, awaitBatch(shard));
+				}
+
+				try (var timer = new Timer("Merge sources")) {
+					Files.deleteIfExists(outputJar);
+					mergeJars(pending.stream().map(PendingBatch::sourcesJar).toList(), outputJar);
+				}
+
+				return lineNumbers;
+			} finally {
+				for (PendingBatch shard : pending) {
+					shard.close();
+					WorkerDaemonClientsManagerHelper.stopIdleJVM(getWorkerDaemonClientsManager(), jvmMarkerValue + "-" + shard.batch().index());
+				}
+			}
+		} finally {
+			for (Path tempFile : tempFiles) {
+				Files.deleteIfExists(tempFile);
+			}
+		}
+	}
+
+	/**
+	 * Unpick, decompile and remap the line numbers of the input jar in batches, overlapping the work on consecutive batches.
+	 * While batch N is being decompiled, batch N + 1 is unpicked and the line numbers of batch N - 1 are remapped.
+	 * Only one decompiler runs at a time, so the memory requirements are the same as a regular decompile.
+	 *
+	 * @param workInputJar The classes to decompile
+	 * @param sourcesOutputJar The jar to write the decompiled sources to
+	 * @param existingClasses Classes that have already been decompiled, used as extra classpath
+	 * @param classesInputJar All the classes, including those that are not being decompiled
+	 * @param classesOutputJar The jar to write all the line number remapped classes to
+	 * @param existingLineNumbers The line numbers of the classes that are not being decompiled
+	 * @return The line numbers of the decompiled classes
+	 */
+	@Nullable
+	private ClassLineNumbers runPipelined(Path workInputJar, Path sourcesOutputJar, @Nullable Path existingClasses, Path classesInputJar, Path classesOutputJar, @Nullable ClassLineNumbers existingLineNumbers) throws IOException {
+		final String jvmMarkerValue = UUID.randomUUID().toString();
+		final List<Path> tempFiles = new ArrayList<>();
+		final Set<String> remappedClasses = new HashSet<>();
+		final Path remappedClassesJar = createTempFile(tempFiles, "loom-linenumber-remap", ".jar");
+		ClassLineNumbers lineNumbers = null;
+
+		if (!Platform.CURRENT.supportsUnixDomainSockets()) {
+			getLogger().warn("Decompile worker logging disabled as Unix Domain Sockets is not supported on your operating system.");
+		}
+
+		try {
+			try (DecompileBatches batches = DecompileBatches.split(workInputJar, getPipelineBatches().get());
+					FileSystemUtil.Delegate classesFs = FileSystemUtil.getJarFileSystem(classesInputJar, false);
+					var remappedOutput = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(remappedClassesJar)));
+					ThreadedProgressLoggerConsumer loggerConsumer = new ThreadedProgressLoggerConsumer(getLogger(), getProgressLoggerFactory(), decompilerOptions.getName(), "Decompiling minecraft sources")) {
+				final List<Path> batchSources = new ArrayList<>();
+				PendingBatch pending = null;
+
+				try {
+					for (DecompileBatches.Batch batch : batches.batches()) {
+						final List<Path> classpath = new ArrayList<>(batches.otherJars(batch));
+						classpath.addAll(optionalList(existingClasses));
+
+						Path batchInputJar = batch.jar();
+
+						if (getUnpickDefinitions().isPresent()) {
+							batchInputJar = createTempFile(tempFiles, "loom-unpick-batch-" + batch.index(), ".jar");
+
+							try (var timer = new Timer("Unpick batch " + batch.index())) {
+								unpickJar(batch.jar(), batchInputJar, classpath, jvmMarkerValue + "-unpick");
+							}
+						}
+
+						// Wait for the previous batch, only one decompiler runs at a time
+						final PendingBatch completed = pending;
+						final ClassLineNumbers completedLineNumbers = completed != null ? awaitBatch(completed) : null;
+
+						// Submit the next batch first, so that it is decompiled while the completed batch is remapped
+						pending = submitBatch(batch, batchInputJar, classpath, jvmMarkerValue, 1, loggerConsumer, tempFiles);
+						batchSources.add(pending.sourcesJar());
+
+						if (completed != null) {
+							lineNumbers = ClassLineNumbers.merge(lineNumbers, completedLineNumbers);
+							remapBatch(completed.batch(), completedLineNumbers, classesFs, remappedOutput, remappedClasses);
+						}
+					}
+
+					if (pending != null) {
+						final PendingBatch completed = pending;
+						pending = null;
+
+						final ClassLineNumbers completedLineNumbers = awaitBatch(completed);
+						lineNumbers = ClassLineNumbers.merge(lineNumbers, completedLineNumbers);
+						remapBatch(completed.batch(), completedLineNumbers, classesFs, remappedOutput, remappedClasses);
+					}
+				} finally {
+					if (pending != null) {
+						pending.close();
+					}
+
+					WorkerDaemonClientsManagerHelper.stopIdleJVM(getWorkerDaemonClientsManager(), jvmMarkerValue);
+					WorkerDaemonClientsManagerHelper.stopIdleJVM(getWorkerDaemonClientsManager(), jvmMarkerValue + "-unpick");
+				}
+
+				try (var timer = new Timer("Remap remaining line numbers")) {
+					copyRemainingClasses(classesFs, remappedOutput, remappedClasses, existingLineNumbers);
+				}
+
+				try (var timer = new Timer("Merge sources")) {
+					Files.deleteIfExists(sourcesOutputJar);
+					mergeJars(batchSources, sourcesOutputJar);
+				}
+			}
+
+			Files.move(remappedClassesJar, classesOutputJar, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			for (Path tempFile : tempFiles) {
+				Files.deleteIfExists(tempFile);
+			}
+		}
+
+		final ClassLineNumbers allLineNumbers = ClassLineNumbers.merge(existingLineNumbers, lineNumbers);
+
+		if (allLineNumbers != null) {
+			writeLineMap(allLineNumbers, classesInputJar);
+		}
+
+		return lineNumbers;
+	}
+
+	/**
+	 * @param shards The number of batches that will be decompiled in parallel, the decompiler memory and threads are divided between them
+	 */
+	private PendingBatch submitBatch(DecompileBatches.Batch batch, Path inputJar, List<Path> classpath, String jvmMarkerValue, int shards, ThreadedProgressLoggerConsumer loggerConsumer, List<Path> tempFiles) throws IOException {
+		final Path sourcesJar = createTempFile(tempFiles, "loom-sources-batch-" + batch.index(), ".jar");
+		final Path lineMapFile = createTempFile(tempFiles, "loom-linemap-batch-" + batch.index(), ".txt");
+		Files.delete(sourcesJar);
+		Files.delete(lineMapFile);
+
+		IPCServer logReceiver = null;
+
+		if (Platform.CURRENT.supportsUnixDomainSockets()) {
+			// Each batch is a new connection, so needs its own server
+			final Path ipcPath = createTempFile(tempFiles, "loom", "ipc");
+			Files.delete(ipcPath);
+			// Prefix the logger ids, so that threads from parallel JVMs do not share a progress logger
+			final String prefix = batch.index() + "/";
+			logReceiver = new IPCServer(ipcPath, line -> loggerConsumer.accept(prefix + line));
+		}
+
+		final WorkQueue workQueue = createWorkQueue(jvmMarkerValue, shards);
+		submitDecompile(workQueue, logReceiver, inputJar, sourcesJar, lineMapFile, classpath, shards);
+
+		return new PendingBatch(batch, workQueue, logReceiver, sourcesJar, lineMapFile);
+	}
+
+	/**
+	 * Wait for a batch to be decompiled.
+	 *
+	 * @return The line numbers of the decompiled batch
+	 */
+	@Nullable
+	private ClassLineNumbers awaitBatch(PendingBatch pending) throws IOException {
+		try (var timer = new Timer("Wait for decompile batch " + pending.batch().index())) {
+			pending.workQueue().await();
+		} finally {
+			pending.close();
+		}
+
+		if (Files.notExists(pending.sourcesJar())) {
+			throw new RuntimeException("Failed to decompile sources");
+		}
+
+		return readLineNumbers(pending.lineMapFile());
+	}
+
+	/**
+	 * Remap the line numbers of the classes in a decompiled batch, writing them to the output jar.
+	 */
+	private void remapBatch(DecompileBatches.Batch batch, @Nullable ClassLineNumbers lineNumbers, FileSystemUtil.Delegate classesFs, ZipOutputStream output, Set<String> remappedClasses) throws IOException {
+		final LineNumberRemapper remapper = lineNumbers != null ? new LineNumberRemapper(lineNumbers) : null;
+
+		try (var timer = new Timer("Remap line numbers batch " + batch.index())) {
+			for (ClassEntry entry : batch.classes()) {
+				for (String name : entry.allClasses()) {
+					byte[] bytes = Files.readAllBytes(classesFs.getPath(name));
+
+					if (remapper != null) {
+						bytes = remapper.processClass(name, bytes);
+					}
+
+					writeEntry(output, name, bytes);
+					remappedClasses.add(name);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copy all the entries that were not part of any batch, remapping classes with the existing line numbers.
+	 */
+	private static void copyRemainingClasses(FileSystemUtil.Delegate classesFs, ZipOutputStream output, Set<String> remappedClasses, @Nullable ClassLineNumbers existingLineNumbers) throws IOException {
+		final LineNumberRemapper remapper = existingLineNumbers != null ? new LineNumberRemapper(existingLineNumbers) : null;
+		final Path root = classesFs.getRoot();
+		final List<Path> files;
+
+		try (Stream<Path> walk = Files.walk(root)) {
+			files = walk.filter(Files::isRegularFile).toList();
+		}
+
+		for (Path file : files) {
+			final String name = root.relativize(file).toString();
+
+			if (remappedClasses.contains(name)) {
+				continue;
+			}
+
+			byte[] bytes = Files.readAllBytes(file);
+
+			if (remapper != null && name.endsWith(".class")) {
+				bytes = remapper.processClass(name, bytes);
+			}
+
+			writeEntry(output, name, bytes);
+		}
+	}
+
+	private static void mergeJars(List<Path> inputs, Path output) throws IOException {
+		final Set<String> written = new HashSet<>();
+
+		try (var zipOutputStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+			for (Path input : inputs) {
+				try (ZipFile zipFile = new ZipFile(input.toFile())) {
+					final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+					while (entries.hasMoreElements()) {
+						final ZipEntry entry = entries.nextElement();
+
+						if (entry.isDirectory() || !written.add(entry.getName())) {
+							continue;
+						}
+
+						try (InputStream is = zipFile.getInputStream(entry)) {
+							zipOutputStream.putNextEntry(new ZipEntry(entry.getName()));
+							is.transferTo(zipOutputStream);
+							zipOutputStream.closeEntry();
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static void writeEntry(ZipOutputStream zipOutputStream, String name, byte[] bytes) throws IOException {
+		zipOutputStream.putNextEntry(new ZipEntry(name));
+		zipOutputStream.write(bytes);
+		zipOutputStream.closeEntry();
+	}
+
+	private static Path createTempFile(List<Path> tempFiles, String prefix, String suffix) throws IOException {
+		final Path path = Files.createTempFile(prefix, suffix);
+		tempFiles.add(path);
+		return path;
+	}
+
+	private static List<Path> optionalList(@Nullable Path path) {
+		return path != null ? List.of(path) : List.of();
+	}
+
+	private record PendingBatch(DecompileBatches.Batch batch, WorkQueue workQueue, @Nullable IPCServer logReceiver, Path sourcesJar, Path lineMapFile) {
+		void close() {
+			if (logReceiver == null) {
+				return;
+			}
+
+			try {
+				logReceiver.close();
+			} catch (InterruptedException e) {
+				throw new RuntimeException("Failed to shutdown log receiver", e);
+			}
+		}
+	}
+
 	private Path unpickJar(Path inputJar, @Nullable Path existingClasses) {
 		final Path outputJar = getUnpickOutputJar().get().getAsFile().toPath();
-		final List<String> args = getUnpickArgs(inputJar, outputJar, existingClasses);
-
-		ExecResult result = getExecOperations().javaexec(spec -> {
-			spec.getMainClass().set("daomephsta.unpick.cli.Main");
-			spec.classpath(getUnpickRuntimeClasspath());
-			spec.args(args);
-			spec.systemProperty("java.util.logging.config.file", writeUnpickLogConfig().getAbsolutePath());
-		});
+		final String jvmMarkerValue = UUID.randomUUID().toString();
 
-		result.rethrowFailure();
+		try {
+			unpickJar(inputJar, outputJar, optionalList(existingClasses), jvmMarkerValue);
+		} finally {
+			WorkerDaemonClientsManagerHelper.stopIdleJVM(getWorkerDaemonClientsManager(), jvmMarkerValue);
+		}
 
 		return outputJar;
 	}
 
-	private List<String> getUnpickArgs(Path inputJar, Path outputJar, @Nullable Path existingClasses) {
+	/**
+	 * Runs unpick in the worker JVM with the given marker, the caller is responsible for stopping it once it is no longer needed.
+	 */
+	private void unpickJar(Path inputJar, Path outputJar, List<Path> classpath, String jvmMarkerValue) {
+		final List<String> args = getUnpickArgs(inputJar, outputJar, classpath);
+		final WorkQueue workQueue = createUnpickWorkQueue(jvmMarkerValue);
+
+		workQueue.submit(UnpickAction.class, params -> params.getArgs().set(args));
+		workQueue.await();
+	}
+
+	/**
+	 * Unpick runs in its own worker JVM, so that the warm JVM can be reused for each batch when pipelined.
+	 * It does not need the decompiler memory, so it is limited to {@link #UNPICK_MEMORY}.
+	 */
+	private WorkQueue createUnpickWorkQueue(String jvmMarkerValue) {
+		if (!useProcessIsolation()) {
+			return getWorkerExecutor().classLoaderIsolation(spec -> {
+				spec.getClasspath().from(getUnpickRuntimeClasspath());
+			});
+		}
+
+		return getWorkerExecutor().processIsolation(spec -> {
+			spec.forkOptions(forkOptions -> {
+				forkOptions.setMaxHeapSize(String.format(Locale.ENGLISH, "%dm", Math.min(UNPICK_MEMORY, decompilerOptions.getMemory().get())));
+				forkOptions.systemProperty("java.util.logging.config.file", writeUnpickLogConfig().getAbsolutePath());
+				forkOptions.systemProperty(WorkerDaemonClientsManagerHelper.MARKER_PROP, jvmMarkerValue);
+			});
+			spec.getClasspath().from(getUnpickRuntimeClasspath());
+		});
+	}
+
+	private List<String> getUnpickArgs(Path inputJar, Path outputJar, List<Path> classpath) {
 		var fileArgs = new ArrayList<File>();
 
 		fileArgs.add(inputJar.toFile());
@@ -489,8 +908,8 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 			fileArgs.add(file);
 		}
 
-		if (existingClasses != null) {
-			fileArgs.add(existingClasses.toFile());
+		for (Path path : classpath) {
+			fileArgs.add(path.toFile());
 		}
 
 		return fileArgs.stream()
@@ -513,8 +932,12 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 	private void remapLineNumbers(ClassLineNumbers lineNumbers, Path inputJar, Path outputJar) throws IOException {
 		Objects.requireNonNull(lineNumbers, "lineNumbers");
 		final var remapper = new LineNumberRemapper(lineNumbers);
-		remapper.process(inputJar, outputJar);
+		remapper.process(inputJar, outputJar, getExecutorService().get().getExecutor());
+
+		writeLineMap(lineNumbers, inputJar);
+	}
 
+	private void writeLineMap(ClassLineNumbers lineNumbers, Path inputJar) throws IOException {
 		final Path lineMap = inputJar.resolveSibling(inputJar.getFileName() + ".linemap.txt");
 
 		try (BufferedWriter writer = Files.newBufferedWriter(lineMap)) {
@@ -524,12 +947,30 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 		getLogger().info("Wrote linemap to {}", lineMap);
 	}
 
-	private void doWork(@Nullable IPCServer ipcServer, Path inputJar, Path outputJar, Path linemapFile, @Nullable Path existingClasses) {
+	private void doWork(@Nullable IPCServer ipcServer, Path inputJar, Path outputJar, Path linemapFile, List<Path> classpath) {
 		final String jvmMarkerValue = UUID.randomUUID().toString();
-		final WorkQueue workQueue = createWorkQueue(jvmMarkerValue);
+		final WorkQueue workQueue = createWorkQueue(jvmMarkerValue, 1);
+
+		submitDecompile(workQueue, ipcServer, inputJar, outputJar, linemapFile, classpath, 1);
+
+		try {
+			workQueue.await();
+		} finally {
+			if (ipcServer != null) {
+				boolean stopped = WorkerDaemonClientsManagerHelper.stopIdleJVM(getWorkerDaemonClientsManager(), jvmMarkerValue);
+
+				if (!stopped && ipcServer.hasReceivedMessage()) {
+					getLogger().info("Failed to stop decompile worker JVM, it may have already been stopped?");
+				}
+			}
+		}
+	}
+
+	private void submitDecompile(WorkQueue workQueue, @Nullable IPCServer ipcServer, Path inputJar, Path outputJar, Path linemapFile, List<Path> classpath, int shards) {
+		final DecompilerOptions.Dto options = decompilerOptions.toDto();
 
 		workQueue.submit(DecompileAction.class, params -> {
-			params.getDecompilerOptions().set(decompilerOptions.toDto());
+			params.getDecompilerOptions().set(new DecompilerOptions.Dto(options.className(), options.options(), Math.max(1, options.maxThreads() / shards)));
 
 			params.getInputJar().set(inputJar.toFile());
 			params.getOutputJar().set(outputJar.toFile());
@@ -542,25 +983,15 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 
 			params.getClassPath().setFrom(getMinecraftCompileLibraries());
 
-			if (existingClasses != null) {
-				params.getClassPath().from(existingClasses);
+			for (Path path : classpath) {
+				params.getClassPath().from(path);
 			}
 		});
-
-		try {
-			workQueue.await();
-		} finally {
-			if (ipcServer != null) {
-				boolean stopped = WorkerDaemonClientsManagerHelper.stopIdleJVM(getWorkerDaemonClientsManager(), jvmMarkerValue);
-
-				if (!stopped && ipcServer.hasReceivedMessage()) {
-					getLogger().info("Failed to stop decompile worker JVM, it may have already been stopped?");
-				}
-			}
-		}
 	}
 
-	private WorkQueue createWorkQueue(String jvmMarkerValue) {
+	private WorkQueue createWorkQueue(String jvmMarkerValue, int shards) {
+		final long memory = shards > 1 ? Math.max(MIN_SHARD_MEMORY, decompilerOptions.getMemory().get() / shards) : decompilerOptions.getMemory().get();
+
 		if (!useProcessIsolation()) {
 			return getWorkerExecutor().classLoaderIsolation(spec -> {
 				spec.getClasspath().from(getClasspath());
@@ -569,8 +1000,8 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 
 		return getWorkerExecutor().processIsolation(spec -> {
 			spec.forkOptions(forkOptions -> {
-				forkOptions.setMinHeapSize(String.format(Locale.ENGLISH, "%dm", Math.min(512, decompilerOptions.getMemory().get())));
-				forkOptions.setMaxHeapSize(String.format(Locale.ENGLISH, "%dm", decompilerOptions.getMemory().get()));
+				forkOptions.setMinHeapSize(String.format(Locale.ENGLISH, "%dm", Math.min(512, memory)));
+				forkOptions.setMaxHeapSize(String.format(Locale.ENGLISH, "%dm", memory));
 				forkOptions.systemProperty(WorkerDaemonClientsManagerHelper.MARKER_PROP, jvmMarkerValue);
 			});
 			spec.getClasspath().from(getClasspath());
@@ -595,6 +1026,30 @@ public abstract class GenerateSourcesTask extends AbstractLoomTask {
 		ConfigurableFileCollection getClassPath();
 	}
 
+	public interface UnpickParams extends WorkParameters {
+		ListProperty<String> getArgs();
+	}
+
+	public abstract static class UnpickAction implements WorkAction<UnpickParams> {
+		private static final String MAIN_CLASS = "daomephsta.unpick.cli.Main";
+
+		@Override
+		public void execute() {
+			final String[] args = getParameters().getArgs().get().toArray(String[]::new);
+
+			try {
+				// Unpick is only on the worker classpath, its version depends on the mappings
+				final Class<?> mainClass = Class.forName(MAIN_CLASS, true, UnpickAction.class.getClassLoader());
+				final Method main = mainClass.getMethod("main", String[].class);
+				main.invoke(null, (Object) args);
+			} catch (InvocationTargetException e) {
+				throw ExceptionUtil.createDescriptiveWrapper(RuntimeException::new, "Failed to unpick", e.getCause());
+			} catch (ReflectiveOperationException e) {
+				throw new RuntimeException("Failed to run " + MAIN_CLASS, e);
+			}
+		}
+	}
+
 	public abstract static class DecompileAction implements WorkAction<DecompileParams> {
 		@Override
 		public void execute() {
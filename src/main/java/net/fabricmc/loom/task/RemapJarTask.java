@@ -27,9 +27,7 @@ package net.fabricmc.loom.task;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.Objects;
-import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
@@ -65,14 +63,13 @@ import net.fabricmc.loom.task.service.MixinRefmapService;
 import net.fabricmc.loom.task.service.TinyRemapperService;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.ExceptionUtil;
-import net.fabricmc.loom.util.Pair;
 import net.fabricmc.loom.util.SidedClassVisitor;
+import net.fabricmc.loom.util.ZipAssembler;
 import net.fabricmc.loom.util.ZipUtils;
 import net.fabricmc.loom.util.fmj.FabricModJsonFactory;
 import net.fabricmc.loom.util.fmj.FabricModJsonUtils;
 import net.fabricmc.loom.util.service.ScopedServiceFactory;
 import net.fabricmc.loom.util.service.ServiceFactory;
-import net.fabricmc.tinyremapper.OutputConsumerPath;
 import net.fabricmc.tinyremapper.TinyRemapper;
 
 public abstract class RemapJarTask extends AbstractRemapJarTask {
@@ -180,26 +177,29 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 
 				prepare();
 
-				if (tinyRemapperService != null) {
-					tinyRemapper = tinyRemapperService.getTinyRemapperForRemapping();
+				try (var jar = new ZipAssembler()) {
+					if (tinyRemapperService != null) {
+						tinyRemapper = tinyRemapperService.getTinyRemapperForRemapping();
 
-					remap();
-				} else {
-					Files.copy(inputFile, outputFile, StandardCopyOption.REPLACE_EXISTING);
-				}
+						remap(jar);
+					} else {
+						jar.putZipEntries(inputFile, name -> true);
+					}
 
-				if (getParameters().getClientOnlyEntries().isPresent()) {
-					markClientOnlyClasses();
-				}
+					if (getParameters().getClientOnlyEntries().isPresent()) {
+						markClientOnlyClasses(jar);
+					}
 
-				remapAccessWidener();
-				addRefmaps(serviceFactory);
-				addNestedJars();
-				modifyJarManifest();
-				rewriteJar();
+					remapAccessWidener(jar);
+					addRefmaps(jar, serviceFactory);
+					addNestedJars(jar);
+					modifyJarManifest(jar);
 
-				if (getParameters().getOptimizeFmj().get()) {
-					optimizeFMJ();
+					if (getParameters().getOptimizeFmj().get()) {
+						optimizeFMJ(jar);
+					}
+
+					writeJar(jar);
 				}
 
 				if (tinyRemapperService != null) {
@@ -226,26 +226,23 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 			}
 		}
 
-		private void remap() throws IOException {
+		private void remap(ZipAssembler jar) throws IOException {
 			Objects.requireNonNull(tinyRemapperService, "tinyRemapperService");
 			Objects.requireNonNull(tinyRemapper, "tinyRemapper");
 
-			try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(outputFile).build()) {
-				outputConsumer.addNonClassFiles(inputFile);
-				tinyRemapper.apply(outputConsumer, tinyRemapperService.getOrCreateTag(inputFile));
-			}
+			jar.putZipEntries(inputFile, name -> !name.endsWith(".class"));
+			tinyRemapper.apply((className, bytes) -> jar.put(className + ".class", bytes), tinyRemapperService.getOrCreateTag(inputFile));
 		}
 
-		private void markClientOnlyClasses() throws IOException {
-			final Stream<Pair<String, ZipUtils.UnsafeUnaryOperator<byte[]>>> tranformers = getParameters().getClientOnlyEntries().get().stream()
-					.map(s -> new Pair<>(s,
-							(ZipUtils.AsmClassOperator) classVisitor -> SidedClassVisitor.CLIENT.insertApplyVisitor(null, classVisitor)
-					));
+		private void markClientOnlyClasses(ZipAssembler jar) {
+			final ZipUtils.AsmClassOperator transformer = classVisitor -> SidedClassVisitor.CLIENT.insertApplyVisitor(null, classVisitor);
 
-			ZipUtils.transform(outputFile, tranformers);
+			for (String entry : getParameters().getClientOnlyEntries().get()) {
+				jar.transform(entry, transformer);
+			}
 		}
 
-		private void remapAccessWidener() throws IOException {
+		private void remapAccessWidener(ZipAssembler jar) {
 			if (getParameters().namespacesMatch()) {
 				return;
 			}
@@ -259,7 +256,7 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 			byte[] remapped = remapAccessWidener(accessWidenerFile.content());
 
 			// Finally, replace the output with the remaped aw
-			ZipUtils.replace(outputFile, accessWidenerFile.path(), remapped);
+			jar.put(accessWidenerFile.path(), remapped);
 		}
 
 		private byte[] remapAccessWidener(byte[] input) {
@@ -280,7 +277,7 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 			return writer.write();
 		}
 
-		private void addNestedJars() {
+		private void addNestedJars(ZipAssembler jar) {
 			FileCollection nestedJars = getParameters().getNestedJars();
 
 			if (nestedJars.isEmpty()) {
@@ -288,26 +285,22 @@ public abstract class RemapJarTask extends AbstractRemapJarTask {
 				return;
 			}
 
-			JarNester.nestJars(nestedJars.getFiles(), outputFile.toFile(), LOGGER);
+			JarNester.nestJars(nestedJars.getFiles(), jar, outputFile.getFileName().toString(), LOGGER);
 		}
 
-		private void addRefmaps(ServiceFactory serviceFactory) throws IOException {
+		private void addRefmaps(ZipAssembler jar, ServiceFactory serviceFactory) throws IOException {
 			if (getParameters().getUseMixinExtension().getOrElse(false)) {
 				return;
 			}
 
 			for (MixinRefmapService.Options options : getParameters().getMixinRefmapServiceOptions().get()) {
 				MixinRefmapService mixinRefmapService = serviceFactory.get(options);
-				mixinRefmapService.applyToJar(outputFile);
+				mixinRefmapService.applyTo(jar);
 			}
 		}
 
-		private void optimizeFMJ() throws IOException {
-			if (!ZipUtils.contains(outputFile, FabricModJsonFactory.FABRIC_MOD_JSON)) {
-				return;
-			}
-
-			ZipUtils.transformJson(JsonObject.class, outputFile, FabricModJsonFactory.FABRIC_MOD_JSON, FabricModJsonUtils::optimizeFmj);
+		private void optimizeFMJ(ZipAssembler jar) {
+			jar.transformJson(JsonObject.class, FabricModJsonFactory.FABRIC_MOD_JSON, FabricModJsonUtils::optimizeFmj);
 		}
 	}
 
@@ -25,11 +25,10 @@
 package net.fabricmc.loom.task.service;
 
 import java.io.IOException;
-import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 import com.google.gson.JsonObject;
 import org.gradle.api.Project;
@@ -40,9 +39,10 @@ import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.SourceSet;
 
 import net.fabricmc.loom.LoomGradleExtension;
+import net.fabricmc.loom.LoomGradlePlugin;
 import net.fabricmc.loom.extension.MixinExtension;
 import net.fabricmc.loom.task.RemapJarTask;
-import net.fabricmc.loom.util.ZipUtils;
+import net.fabricmc.loom.util.ZipAssembler;
 import net.fabricmc.loom.util.fmj.FabricModJson;
 import net.fabricmc.loom.util.fmj.FabricModJsonFactory;
 import net.fabricmc.loom.util.service.Service;
@@ -105,27 +105,30 @@ public class MixinRefmapService extends Service<MixinRefmapService.Options> {
 		super(options, serviceFactory);
 	}
 
-	public void applyToJar(Path path) throws IOException {
-		final FabricModJson fabricModJson = FabricModJsonFactory.createFromZipNullable(path);
-
-		if (fabricModJson == null) {
+	public void applyTo(ZipAssembler jar) throws IOException {
+		if (!jar.contains(FabricModJsonFactory.FABRIC_MOD_JSON)) {
 			return;
 		}
 
+		final JsonObject jsonObject = LoomGradlePlugin.GSON.fromJson(new String(jar.read(FabricModJsonFactory.FABRIC_MOD_JSON), StandardCharsets.UTF_8), JsonObject.class);
+		final FabricModJson fabricModJson = FabricModJsonFactory.create(jsonObject, jar::read);
+
 		final List<String> allMixinConfigs = fabricModJson.getMixinConfigurations();
 		final List<String> mixinConfigs = getOptions().getMixinConfigs().get().stream()
 				.filter(allMixinConfigs::contains)
 				.toList();
 		final String refmapName = getOptions().getRefmapName().get();
 
-		if (ZipUtils.contains(path, refmapName)) {
-			int transformed = ZipUtils.transformJson(JsonObject.class, path, mixinConfigs.stream().collect(Collectors.toMap(s -> s, s -> json -> {
-				if (!json.has("refmap")) {
-					json.addProperty("refmap", refmapName);
-				}
+		if (jar.contains(refmapName)) {
+			for (String mixinConfig : mixinConfigs) {
+				jar.transformJson(JsonObject.class, mixinConfig, json -> {
+					if (!json.has("refmap")) {
+						json.addProperty("refmap", refmapName);
+					}
 
-				return json;
-			})));
+					return json;
+				});
+			}
 		}
 	}
 }
@@ -25,64 +25,54 @@
 package net.fabricmc.loom.util;
 
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
+import java.io.InputStream;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Enumeration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+/**
+ * Processes the entries of a zip in parallel. Each entry is processed and compressed on the executor,
+ * and the results are written to the output zip in the input's order by the calling thread.
+ *
+ * <p>The output entries are written with constant timestamps.
+ */
+@FunctionalInterface
 public interface AsyncZipProcessor {
 	static void processEntries(Path inputZip, Path outputZip, AsyncZipProcessor processor) throws IOException {
-		try (FileSystemUtil.Delegate inFs = FileSystemUtil.getJarFileSystem(inputZip, false);
-				FileSystemUtil.Delegate outFs = FileSystemUtil.getJarFileSystem(outputZip, true)) {
-			final Path inRoot = inFs.get().getPath("/");
-			final Path outRoot = outFs.get().getPath("/");
-
-			List<CompletableFuture<Void>> futures = new ArrayList<>();
-			final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		processEntries(inputZip, outputZip, ForkJoinPool.commonPool(), processor);
+	}
 
-			Files.walkFileTree(inRoot, new SimpleFileVisitor<>() {
-				@Override
-				public FileVisitResult visitFile(Path inputFile, BasicFileAttributes attrs) throws IOException {
-					final CompletableFuture<Void> future = CompletableFuture.supplyAsync(() -> {
-						try {
-							final String rel = inRoot.relativize(inputFile).toString();
-							final Path outputFile = outRoot.resolve(rel);
-							processor.processEntryAsync(inputFile, outputFile);
-						} catch (IOException e) {
-							throw new CompletionException(e);
-						}
+	static void processEntries(Path inputZip, Path outputZip, Executor executor, AsyncZipProcessor processor) throws IOException {
+		try (var zipFile = new ZipFile(inputZip.toFile());
+				var writer = new ReproducibleZipWriter(outputZip, executor)) {
+			final Enumeration<? extends ZipEntry> entries = zipFile.entries();
 
-						return null;
-					}, executor);
+			while (entries.hasMoreElements()) {
+				final ZipEntry entry = entries.nextElement();
 
-					futures.add(future);
-					return FileVisitResult.CONTINUE;
+				if (entry.isDirectory()) {
+					writer.putEntry(entry.getName(), false, 0, () -> new byte[0]);
+					continue;
 				}
-			});
 
-			// Wait for all futures to complete
-			for (CompletableFuture<Void> future : futures) {
-				try {
-					future.join();
-				} catch (CompletionException e) {
-					if (e.getCause() instanceof IOException ioe) {
-						throw ioe;
+				writer.putEntry(entry.getName(), false, entry.getSize(), () -> {
+					try (InputStream inputStream = zipFile.getInputStream(entry)) {
+						return processor.processEntryAsync(entry.getName(), inputStream.readAllBytes());
 					}
-
-					throw new RuntimeException("Failed to process zip", e.getCause());
-				}
+				});
 			}
-
-			executor.shutdown();
 		}
 	}
 
-	void processEntryAsync(Path inputEntry, Path outputEntry) throws IOException;
+	/**
+	 * Called on the executor for each file entry of the input zip.
+	 *
+	 * @param name The name of the entry
+	 * @param bytes The contents of the entry
+	 * @return The contents of the output entry
+	 */
+	byte[] processEntryAsync(String name, byte[] bytes) throws IOException;
 }
@@ -134,6 +134,16 @@ public class Constants {
 		public static final String LIBRARY_PROCESSORS = "fabric.loom.libraryProcessors";
 		@ApiStatus.Experimental
 		public static final String SANDBOX = "fabric.loom.experimental.sandbox";
+		/**
+		 * When enabled, classes transformed by jar processors are cached per class, so only the classes affected by a change need to be transformed again.
+		 */
+		@ApiStatus.Experimental
+		public static final String INCREMENTAL_JAR_PROCESSING = "fabric.loom.experimental.incrementalJarProcessing";
+		/**
+		 * When enabled, remapped mods are stored in a cache shared by all projects, keyed by the content of the inputs.
+		 */
+		@ApiStatus.Experimental
+		public static final String GLOBAL_MOD_CACHE = "fabric.loom.experimental.globalModCache";
 		/**
 		 * When set the version of java that will be assumed that the game will run on, this defaults to the current java version.
 		 * Only set this when you have a good reason to do so, the default should be fine for almost all cases.
@@ -0,0 +1,279 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.ZipException;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A minimal zip reader that gives access to the raw, still compressed, data of each entry.
+ * Used together with {@link RawZipWriter} to copy entries between archives without inflating and deflating them again.
+ *
+ * <p>Zip64 archives are not supported.
+ */
+public final class RawZipFile implements Closeable {
+	static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	static final int END_SIGNATURE = 0x06054b50;
+	static final int LOCAL_HEADER_SIZE = 30;
+	static final int CENTRAL_HEADER_SIZE = 46;
+	static final int END_SIZE = 22;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int ZIP64_LOCATOR_SIZE = 20;
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final Map<String, Entry> entries;
+	private long centralDirectoryOffset;
+	private byte[] comment;
+
+	private RawZipFile(Path path) throws IOException {
+		this.path = path;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+		try {
+			this.entries = readCentralDirectory();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public static RawZipFile open(Path path) throws IOException {
+		return new RawZipFile(path);
+	}
+
+	/**
+	 * @return The entries of the zip, in central directory order
+	 */
+	public Collection<Entry> entries() {
+		return Collections.unmodifiableCollection(entries.values());
+	}
+
+	@Nullable
+	public Entry getEntry(String name) {
+		return entries.get(name);
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * @return The offset of the central directory, which directly follows the data of the last entry
+	 */
+	long getCentralDirectoryOffset() {
+		return centralDirectoryOffset;
+	}
+
+	/**
+	 * @return The archive comment, stored after the end of the central directory
+	 */
+	byte[] getComment() {
+		return comment.clone();
+	}
+
+	private Map<String, Entry> readCentralDirectory() throws IOException {
+		final long size = channel.size();
+		final int tailSize = (int) Math.min(size, END_SIZE + MAX_COMMENT_SIZE);
+		final ByteBuffer tail = read(size - tailSize, tailSize);
+		int end = -1;
+
+		for (int i = tailSize - END_SIZE; i >= 0; i--) {
+			if (tail.getInt(i) == END_SIGNATURE) {
+				end = i;
+				break;
+			}
+		}
+
+		if (end == -1) {
+			throw new ZipException("Could not find the end of the central directory in " + path);
+		}
+
+		if (end >= ZIP64_LOCATOR_SIZE && tail.getInt(end - ZIP64_LOCATOR_SIZE) == ZIP64_LOCATOR_SIGNATURE) {
+			throw new ZipException("Zip64 archives are not supported: " + path);
+		}
+
+		final int entryCount = Short.toUnsignedInt(tail.getShort(end + 10));
+		final long directorySize = Integer.toUnsignedLong(tail.getInt(end + 12));
+		final long directoryOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+		final int archiveCommentLength = Math.min(Short.toUnsignedInt(tail.getShort(end + 20)), tailSize - end - END_SIZE);
+		final ByteBuffer directory = read(directoryOffset, Math.toIntExact(directorySize));
+		centralDirectoryOffset = directoryOffset;
+		comment = new byte[archiveCommentLength];
+		tail.get(end + END_SIZE, comment);
+		final Map<String, Entry> entries = new LinkedHashMap<>(entryCount);
+
+		for (int i = 0; i < entryCount; i++) {
+			final int pos = directory.position();
+
+			if (directory.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+				throw new ZipException("Invalid central directory header in " + path);
+			}
+
+			final int nameLength = Short.toUnsignedInt(directory.getShort(pos + 28));
+			final int extraLength = Short.toUnsignedInt(directory.getShort(pos + 30));
+			final int commentLength = Short.toUnsignedInt(directory.getShort(pos + 32));
+
+			final byte[] rawName = new byte[nameLength];
+			final byte[] extra = new byte[extraLength];
+			final byte[] comment = new byte[commentLength];
+			directory.position(pos + CENTRAL_HEADER_SIZE);
+			directory.get(rawName).get(extra).get(comment);
+
+			final var entry = new Entry(
+					new String(rawName, StandardCharsets.UTF_8),
+					rawName,
+					Short.toUnsignedInt(directory.getShort(pos + 4)),
+					Short.toUnsignedInt(directory.getShort(pos + 6)),
+					Short.toUnsignedInt(directory.getShort(pos + 8)),
+					Short.toUnsignedInt(directory.getShort(pos + 10)),
+					directory.getInt(pos + 12),
+					directory.getInt(pos + 16),
+					Integer.toUnsignedLong(directory.getInt(pos + 20)),
+					Integer.toUnsignedLong(directory.getInt(pos + 24)),
+					extra,
+					comment,
+					Short.toUnsignedInt(directory.getShort(pos + 36)),
+					directory.getInt(pos + 38),
+					Integer.toUnsignedLong(directory.getInt(pos + 42))
+			);
+
+			if (entry.compressedSize() == 0xFFFFFFFFL || entry.size() == 0xFFFFFFFFL || entry.localHeaderOffset() == 0xFFFFFFFFL) {
+				throw new ZipException("Zip64 archives are not supported: " + path);
+			}
+
+			entries.put(entry.name(), entry);
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Reads the local header of an entry, which may have a different extra field to the central directory.
+	 */
+	LocalHeader readLocalHeader(Entry entry) throws IOException {
+		final ByteBuffer header = read(entry.localHeaderOffset(), LOCAL_HEADER_SIZE);
+
+		if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("Invalid local header for %s in %s".formatted(entry.name(), path));
+		}
+
+		final int nameLength = Short.toUnsignedInt(header.getShort(26));
+		final int extraLength = Short.toUnsignedInt(header.getShort(28));
+		final long extraOffset = entry.localHeaderOffset() + LOCAL_HEADER_SIZE + nameLength;
+
+		final byte[] extra = new byte[extraLength];
+		read(extraOffset, extraLength).get(extra);
+		return new LocalHeader(extra, extraOffset + extraLength);
+	}
+
+	/**
+	 * Copies the compressed data of an entry to the target channel.
+	 */
+	void transferData(Entry entry, LocalHeader localHeader, WritableByteChannel target) throws IOException {
+		transfer(localHeader.dataOffset(), entry.compressedSize(), target, () -> "Unexpected end of %s while reading %s".formatted(path, entry.name()));
+	}
+
+	/**
+	 * Copies everything before the central directory, the local headers and data of all the entries, to the target channel.
+	 */
+	void transferEntries(WritableByteChannel target) throws IOException {
+		transfer(0, centralDirectoryOffset, target, () -> "Unexpected end of " + path);
+	}
+
+	private void transfer(long position, long remaining, WritableByteChannel target, Supplier<String> eofMessage) throws IOException {
+		while (remaining > 0) {
+			final long transferred = channel.transferTo(position, remaining, target);
+
+			if (transferred <= 0) {
+				throw new EOFException(eofMessage.get());
+			}
+
+			position += transferred;
+			remaining -= transferred;
+		}
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of " + path);
+			}
+		}
+
+		return buffer.flip();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * A central directory entry, the {@code dosTime} holds both the DOS time and date fields.
+	 */
+	public record Entry(String name,
+					byte[] rawName,
+					int versionMadeBy,
+					int versionNeeded,
+					int flags,
+					int method,
+					int dosTime,
+					int crc,
+					long compressedSize,
+					long size,
+					byte[] extra,
+					byte[] comment,
+					int internalAttributes,
+					int externalAttributes,
+					long localHeaderOffset) {
+		public boolean isDirectory() {
+			return name.endsWith("/");
+		}
+	}
+
+	record LocalHeader(byte[] extra, long dataOffset) {
+	}
+}
@@ -0,0 +1,329 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * A minimal zip writer that can copy entries from a {@link RawZipFile} as raw compressed bytes,
+ * so copying an entry between two archives is a plain I/O copy with no inflating or deflating.
+ *
+ * <p>Parent directory entries are created as needed. Zip64 archives are not supported.
+ */
+public final class RawZipWriter implements Closeable {
+	private static final int DATA_DESCRIPTOR_FLAG = 1 << 3;
+	private static final int UTF8_FLAG = 1 << 11;
+	private static final int STORED_VERSION = 10;
+	private static final int DEFLATED_VERSION = 20;
+
+	private final FileChannel channel;
+	private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+	private final Set<String> names = new HashSet<>();
+	private final int dosTime = toDosTime(LocalDateTime.now());
+	private byte[] comment = new byte[0];
+	private long offset;
+	private int entryCount = 0;
+
+	public RawZipWriter(Path output) throws IOException {
+		this(FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), 0);
+	}
+
+	private RawZipWriter(FileChannel channel, long offset) {
+		this.channel = channel;
+		this.offset = offset;
+	}
+
+	/**
+	 * Opens an existing zip to append entries to it, the result is written to the output and the existing zip is not modified.
+	 * The entries and archive comment of the existing zip are copied as they are, new entries are written after them.
+	 */
+	public static RawZipWriter append(Path file, Path output) throws IOException {
+		try (RawZipFile zipFile = RawZipFile.open(file)) {
+			if (zipFile.entries().size() >= 0xFFFF) {
+				throw new ZipException("Zip64 is not supported, too many entries: " + zipFile.entries().size());
+			}
+
+			final long directoryOffset = zipFile.getCentralDirectoryOffset();
+			final var writer = new RawZipWriter(FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), directoryOffset);
+
+			try {
+				for (RawZipFile.Entry entry : zipFile.entries()) {
+					writer.names.add(entry.name());
+					writer.addCentralHeader(entry.versionMadeBy(), entry.versionNeeded(), entry.flags(), entry.method(), entry.dosTime(), entry.crc(), entry.compressedSize(), entry.size(),
+							entry.rawName(), entry.extra(), entry.comment(), entry.internalAttributes(), entry.externalAttributes(), entry.localHeaderOffset());
+				}
+
+				writer.comment = zipFile.getComment();
+				zipFile.transferEntries(writer.channel);
+			} catch (IOException | RuntimeException e) {
+				writer.channel.close();
+				throw e;
+			}
+
+			return writer;
+		}
+	}
+
+	public boolean contains(String name) {
+		return names.contains(name);
+	}
+
+	/**
+	 * Copies all the entries of the source zip.
+	 */
+	public void copyEntries(RawZipFile source) throws IOException {
+		copyEntries(source, name -> true);
+	}
+
+	/**
+	 * Copies the entries of the source zip accepted by the filter, in the source's order.
+	 */
+	public void copyEntries(RawZipFile source, Predicate<String> filter) throws IOException {
+		for (RawZipFile.Entry entry : source.entries()) {
+			if (filter.test(entry.name())) {
+				copyEntry(source, entry);
+			}
+		}
+	}
+
+	/**
+	 * Copies an entry from the source zip without decompressing it.
+	 */
+	public void copyEntry(RawZipFile source, RawZipFile.Entry entry) throws IOException {
+		if (entry.isDirectory()) {
+			putDirectories(entry.name());
+			return;
+		}
+
+		addName(entry.name());
+
+		final RawZipFile.LocalHeader localHeader = source.readLocalHeader(entry);
+		final long headerOffset = offset;
+		// The sizes and CRC are always written to the local header, so a data descriptor is never needed
+		final int flags = entry.flags() & ~DATA_DESCRIPTOR_FLAG;
+
+		writeLocalHeader(entry.versionNeeded(), flags, entry.method(), entry.dosTime(), entry.crc(), entry.compressedSize(), entry.size(), entry.rawName(), localHeader.extra());
+		source.transferData(entry, localHeader, channel);
+		offset += entry.compressedSize();
+
+		addCentralHeader(entry.versionMadeBy(), entry.versionNeeded(), flags, entry.method(), entry.dosTime(), entry.crc(), entry.compressedSize(), entry.size(),
+				entry.rawName(), entry.extra(), entry.comment(), entry.internalAttributes(), entry.externalAttributes(), headerOffset);
+	}
+
+	/**
+	 * Writes a new deflated entry.
+	 */
+	public void putEntry(String name, byte[] data) throws IOException {
+		putEntry(name, data, dosTime);
+	}
+
+	/**
+	 * Writes a new deflated entry with the given time.
+	 */
+	public void putEntry(String name, byte[] data, LocalDateTime time) throws IOException {
+		putEntry(name, data, toDosTime(time));
+	}
+
+	private void putEntry(String name, byte[] data, int time) throws IOException {
+		addName(name);
+
+		final var crc = new CRC32();
+		crc.update(data);
+
+		final byte[] compressed = deflate(data);
+		final byte[] rawName = name.getBytes(StandardCharsets.UTF_8);
+		final long headerOffset = offset;
+
+		writeLocalHeader(DEFLATED_VERSION, UTF8_FLAG, ZipEntry.DEFLATED, time, (int) crc.getValue(), compressed.length, data.length, rawName, new byte[0]);
+		writeFully(ByteBuffer.wrap(compressed));
+		offset += compressed.length;
+
+		addCentralHeader(DEFLATED_VERSION, DEFLATED_VERSION, UTF8_FLAG, ZipEntry.DEFLATED, time, (int) crc.getValue(), compressed.length, data.length,
+				rawName, new byte[0], new byte[0], 0, 0, headerOffset);
+	}
+
+	private void addName(String name) throws IOException {
+		putDirectories(name);
+
+		if (!names.add(name)) {
+			throw new ZipException("duplicate entry: " + name);
+		}
+	}
+
+	/**
+	 * Writes a directory entry for every parent of the given name that has not been written yet, and the name itself if it is a directory.
+	 */
+	private void putDirectories(String name) throws IOException {
+		int index = name.indexOf('/');
+
+		while (index != -1) {
+			final String directory = name.substring(0, index + 1);
+
+			if (names.add(directory)) {
+				final byte[] rawName = directory.getBytes(StandardCharsets.UTF_8);
+				final long headerOffset = offset;
+
+				writeLocalHeader(STORED_VERSION, UTF8_FLAG, ZipEntry.STORED, dosTime, 0, 0, 0, rawName, new byte[0]);
+				addCentralHeader(STORED_VERSION, STORED_VERSION, UTF8_FLAG, ZipEntry.STORED, dosTime, 0, 0, 0,
+						rawName, new byte[0], new byte[0], 0, 0, headerOffset);
+			}
+
+			index = name.indexOf('/', index + 1);
+		}
+	}
+
+	private void writeLocalHeader(int versionNeeded, int flags, int method, int time, int crc, long compressedSize, long size, byte[] rawName, byte[] extra) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(RawZipFile.LOCAL_HEADER_SIZE + rawName.length + extra.length).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(RawZipFile.LOCAL_HEADER_SIGNATURE)
+				.putShort((short) versionNeeded)
+				.putShort((short) flags)
+				.putShort((short) method)
+				.putInt(time)
+				.putInt(crc)
+				.putInt(toUnsignedInt(compressedSize))
+				.putInt(toUnsignedInt(size))
+				.putShort((short) rawName.length)
+				.putShort((short) extra.length)
+				.put(rawName)
+				.put(extra);
+
+		writeFully(header.flip());
+		offset += header.limit();
+	}
+
+	private void addCentralHeader(int versionMadeBy, int versionNeeded, int flags, int method, int time, int crc, long compressedSize, long size,
+									byte[] rawName, byte[] extra, byte[] comment, int internalAttributes, int externalAttributes, long headerOffset) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(RawZipFile.CENTRAL_HEADER_SIZE + rawName.length + extra.length + comment.length).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(RawZipFile.CENTRAL_HEADER_SIGNATURE)
+				.putShort((short) versionMadeBy)
+				.putShort((short) versionNeeded)
+				.putShort((short) flags)
+				.putShort((short) method)
+				.putInt(time)
+				.putInt(crc)
+				.putInt(toUnsignedInt(compressedSize))
+				.putInt(toUnsignedInt(size))
+				.putShort((short) rawName.length)
+				.putShort((short) extra.length)
+				.putShort((short) comment.length)
+				.putShort((short) 0) // Disk number
+				.putShort((short) internalAttributes)
+				.putInt(externalAttributes)
+				.putInt(toUnsignedInt(headerOffset))
+				.put(rawName)
+				.put(extra)
+				.put(comment);
+
+		centralDirectory.write(header.array());
+		entryCount++;
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try (channel) {
+			if (entryCount > 0xFFFF) {
+				throw new ZipException("Zip64 is not supported, too many entries: " + entryCount);
+			}
+
+			final long directoryOffset = offset;
+			writeFully(ByteBuffer.wrap(centralDirectory.toByteArray()));
+
+			final ByteBuffer end = ByteBuffer.allocate(RawZipFile.END_SIZE + comment.length).order(ByteOrder.LITTLE_ENDIAN);
+			end.putInt(RawZipFile.END_SIGNATURE)
+					.putShort((short) 0) // Disk number
+					.putShort((short) 0) // Central directory disk number
+					.putShort((short) entryCount)
+					.putShort((short) entryCount)
+					.putInt(centralDirectory.size())
+					.putInt(toUnsignedInt(directoryOffset))
+					.putShort((short) comment.length)
+					.put(comment);
+			writeFully(end.flip());
+		}
+	}
+
+	private static byte[] deflate(byte[] data) {
+		final var deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+
+			final var out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+			final byte[] buffer = new byte[8192];
+
+			while (!deflater.finished()) {
+				out.write(buffer, 0, deflater.deflate(buffer));
+			}
+
+			return out.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static int toUnsignedInt(long value) throws ZipException {
+		if (value > 0xFFFFFFFFL) {
+			throw new ZipException("Zip64 is not supported, value too large: " + value);
+		}
+
+		return (int) value;
+	}
+
+	private static int toDosTime(LocalDateTime time) {
+		if (time.getYear() < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+
+		return (time.getYear() - 1980) << 25
+				| time.getMonthValue() << 21
+				| time.getDayOfMonth() << 16
+				| time.getHour() << 11
+				| time.getMinute() << 5
+				| time.getSecond() >> 1;
+	}
+}
@@ -0,0 +1,486 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes a zip with constant entry timestamps, deflating the entries in parallel.
+ *
+ * <p>Entries are written in the order they are added, while the following entries are read and compressed on the executor.
+ * The in flight entries are bounded by their size, large entries are never buffered in memory and are streamed into the
+ * output when they are written. The output is byte for byte the same as a {@link java.util.zip.ZipOutputStream}
+ * writing new entries with {@link ZipReprocessorUtil#setConstantFileTime(ZipEntry)}.
+ */
+final class ReproducibleZipWriter implements Closeable {
+	// Bounds the memory used by the entries that have been read or compressed but not yet written
+	private static final long MAX_PENDING_BYTES = 32L * 1024 * 1024;
+	private static final int MAX_PENDING = Math.max(64, Runtime.getRuntime().availableProcessors() * 16);
+	// Larger streamed entries are copied into the output when written, instead of being read into memory
+	private static final long MAX_BUFFERED_ENTRY_SIZE = 1024 * 1024;
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final short ZIP64_EXTRA_ID = 0x0001;
+	// Sizes, offsets and counts at or above these are stored in the Zip64 records, the same as a ZipOutputStream
+	private static final long ZIP64_MAGIC_VALUE = 0xFFFFFFFFL;
+	private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+	private static final int DATA_DESCRIPTOR_FLAG = 1 << 3;
+	private static final int UTF8_FLAG = 1 << 11;
+	private static final int STORED_VERSION = 10;
+	private static final int DEFLATED_VERSION = 20;
+	private static final int ZIP64_VERSION = 45;
+	// 1980-01-01 00:00:00, the time set by ZipReprocessorUtil.setConstantFileTime in any time zone
+	private static final int CONSTANT_DOS_TIME = (1 << 21) | (1 << 16);
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final OutputStream outputStream;
+	private final Executor executor;
+	private final ArrayDeque<PendingEntry> pending = new ArrayDeque<>();
+	private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+	private long pendingBytes = 0;
+	private long offset = 0;
+	private int entryCount = 0;
+
+	ReproducibleZipWriter(Path output) throws IOException {
+		this(output, ForkJoinPool.commonPool());
+	}
+
+	ReproducibleZipWriter(Path output, Executor executor) throws IOException {
+		this.outputStream = new BufferedOutputStream(Files.newOutputStream(output), BUFFER_SIZE);
+		// With a single CPU handing entries over to another thread is only overhead
+		this.executor = Runtime.getRuntime().availableProcessors() > 1 ? executor : Runnable::run;
+	}
+
+	/**
+	 * Adds an entry, the data is produced and compressed asynchronously.
+	 *
+	 * @param size the expected size of the data, used to bound the memory of the in flight entries
+	 */
+	void putEntry(String name, boolean stored, long size, DataSupplier data) throws IOException {
+		final CompletableFuture<EntryData> future = CompletableFuture.supplyAsync(() -> {
+			try {
+				return EntryData.create(data.get(), stored);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to read zip entry " + name, e);
+			}
+		}, executor);
+
+		add(new PendingEntry(name, stored, Math.max(size, 0), future));
+	}
+
+	/**
+	 * Adds an entry read from a stream, small entries are read and compressed asynchronously.
+	 *
+	 * <p>Larger entries or entries of an unknown size are streamed into the output when they are written. The CRC of a
+	 * stored entry is needed before its data, when it is not provided it is computed by reading the stream an extra time.
+	 *
+	 * @param size the size of the data, or -1 if unknown
+	 * @param crc the CRC-32 of the data, or -1 if unknown
+	 */
+	void putStreamedEntry(String name, boolean stored, long size, long crc, StreamSupplier data) throws IOException {
+		if (size >= 0 && size <= MAX_BUFFERED_ENTRY_SIZE) {
+			putEntry(name, stored, size, () -> {
+				try (InputStream inputStream = data.open()) {
+					return inputStream.readAllBytes();
+				}
+			});
+			return;
+		}
+
+		final CompletableFuture<EntryData> future;
+
+		if (stored && (size < 0 || crc < 0)) {
+			future = CompletableFuture.supplyAsync(() -> {
+				try {
+					return EntryData.checksum(data);
+				} catch (IOException e) {
+					throw new UncheckedIOException("Failed to read zip entry " + name, e);
+				}
+			}, executor);
+		} else {
+			future = CompletableFuture.completedFuture(new EntryData(null, data, (int) crc, size));
+		}
+
+		add(new PendingEntry(name, stored, 0, future));
+	}
+
+	private void add(PendingEntry entry) throws IOException {
+		pending.add(entry);
+		pendingBytes += entry.bytes();
+
+		while (pending.size() > MAX_PENDING || pendingBytes > MAX_PENDING_BYTES) {
+			writeNext();
+		}
+	}
+
+	private void writeNext() throws IOException {
+		final PendingEntry entry = pending.poll();
+		pendingBytes -= entry.bytes();
+		writeEntry(entry);
+	}
+
+	private void writeEntry(PendingEntry entry) throws IOException {
+		final EntryData data;
+
+		try {
+			data = entry.data().join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+				throw uncheckedIOException.getCause();
+			}
+
+			throw e;
+		}
+
+		final byte[] rawName = entry.name().getBytes(StandardCharsets.UTF_8);
+		final int version = entry.stored() ? STORED_VERSION : DEFLATED_VERSION;
+		// The same flags as a ZipOutputStream, which only knows the size of deflated entries once they have been written
+		final int flags = entry.stored() ? UTF8_FLAG : UTF8_FLAG | DATA_DESCRIPTOR_FLAG;
+		final int method = entry.stored() ? ZipEntry.STORED : ZipEntry.DEFLATED;
+		final long headerOffset = offset;
+		// Only the local header of a stored entry has its sizes, deflated entries have them in the data descriptor
+		final boolean localZip64 = entry.stored() && data.size() >= ZIP64_MAGIC_VALUE;
+
+		final ByteBuffer localHeader = buffer(30 + rawName.length + (localZip64 ? 20 : 0))
+				.putInt(LOCAL_HEADER_SIGNATURE)
+				.putShort((short) (localZip64 ? ZIP64_VERSION : version))
+				.putShort((short) flags)
+				.putShort((short) method)
+				.putInt(CONSTANT_DOS_TIME);
+
+		if (localZip64) {
+			localHeader.putInt(data.crc())
+					.putInt((int) ZIP64_MAGIC_VALUE)
+					.putInt((int) ZIP64_MAGIC_VALUE);
+		} else if (entry.stored()) {
+			localHeader.putInt(data.crc())
+					.putInt((int) data.size())
+					.putInt((int) data.size());
+		} else {
+			localHeader.putInt(0).putInt(0).putInt(0);
+		}
+
+		localHeader.putShort((short) rawName.length)
+				.putShort((short) (localZip64 ? 20 : 0))
+				.put(rawName);
+
+		if (localZip64) {
+			localHeader.putShort(ZIP64_EXTRA_ID)
+					.putShort((short) 16)
+					.putLong(data.size())
+					.putLong(data.size());
+		}
+
+		write(localHeader);
+
+		final int crc;
+		final long compressedSize;
+		final long size;
+
+		if (data.compressed() != null) {
+			write(data.compressed());
+			crc = data.crc();
+			compressedSize = data.compressed().length;
+			size = data.size();
+		} else if (entry.stored()) {
+			final var checksum = new CRC32();
+			size = copy(data.stream(), null, checksum);
+
+			if (size != data.size() || (int) checksum.getValue() != data.crc()) {
+				throw new ZipException("Zip entry %s changed while being written".formatted(entry.name()));
+			}
+
+			crc = data.crc();
+			compressedSize = size;
+		} else {
+			final var checksum = new CRC32();
+			final var deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+			try {
+				size = copy(data.stream(), deflater, checksum);
+				compressedSize = deflater.getBytesWritten();
+			} finally {
+				deflater.end();
+			}
+
+			crc = (int) checksum.getValue();
+		}
+
+		if (!entry.stored()) {
+			if (compressedSize >= ZIP64_MAGIC_VALUE || size >= ZIP64_MAGIC_VALUE) {
+				write(buffer(24)
+						.putInt(DATA_DESCRIPTOR_SIGNATURE)
+						.putInt(crc)
+						.putLong(compressedSize)
+						.putLong(size));
+			} else {
+				write(buffer(16)
+						.putInt(DATA_DESCRIPTOR_SIGNATURE)
+						.putInt(crc)
+						.putInt((int) compressedSize)
+						.putInt((int) size));
+			}
+		}
+
+		// The values too large for the central header are moved into a Zip64 extra field, in this order
+		final boolean zip64Size = size >= ZIP64_MAGIC_VALUE;
+		final boolean zip64CompressedSize = compressedSize >= ZIP64_MAGIC_VALUE;
+		final boolean zip64Offset = headerOffset >= ZIP64_MAGIC_VALUE;
+		final int zip64Length = (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0) + (zip64Offset ? 8 : 0);
+		final boolean zip64 = zip64Length > 0;
+
+		final ByteBuffer centralHeader = buffer(46 + rawName.length + (zip64 ? zip64Length + 4 : 0))
+				.putInt(CENTRAL_HEADER_SIGNATURE)
+				.putShort((short) (zip64 ? ZIP64_VERSION : version))
+				.putShort((short) (zip64 ? ZIP64_VERSION : version))
+				.putShort((short) flags)
+				.putShort((short) method)
+				.putInt(CONSTANT_DOS_TIME)
+				.putInt(crc)
+				.putInt((int) Math.min(compressedSize, ZIP64_MAGIC_VALUE))
+				.putInt((int) Math.min(size, ZIP64_MAGIC_VALUE))
+				.putShort((short) rawName.length)
+				.putShort((short) (zip64 ? zip64Length + 4 : 0)) // Extra length
+				.putShort((short) 0) // Comment length
+				.putShort((short) 0) // Disk number
+				.putShort((short) 0) // Internal attributes
+				.putInt(0) // External attributes
+				.putInt((int) Math.min(headerOffset, ZIP64_MAGIC_VALUE))
+				.put(rawName);
+
+		if (zip64) {
+			centralHeader.putShort(ZIP64_EXTRA_ID).putShort((short) zip64Length);
+
+			if (zip64Size) {
+				centralHeader.putLong(size);
+			}
+
+			if (zip64CompressedSize) {
+				centralHeader.putLong(compressedSize);
+			}
+
+			if (zip64Offset) {
+				centralHeader.putLong(headerOffset);
+			}
+		}
+
+		centralDirectory.write(centralHeader.array());
+		entryCount++;
+	}
+
+	/**
+	 * Copies the stream into the output, deflating it when a deflater is given.
+	 *
+	 * @return the uncompressed size
+	 */
+	private long copy(StreamSupplier stream, @Nullable Deflater deflater, CRC32 checksum) throws IOException {
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		final byte[] compressed = deflater != null ? new byte[BUFFER_SIZE] : null;
+		long size = 0;
+
+		try (InputStream inputStream = stream.open()) {
+			int length;
+
+			while ((length = inputStream.read(buffer)) >= 0) {
+				checksum.update(buffer, 0, length);
+				size += length;
+
+				if (deflater == null) {
+					outputStream.write(buffer, 0, length);
+					offset += length;
+					continue;
+				}
+
+				deflater.setInput(buffer, 0, length);
+
+				while (!deflater.needsInput()) {
+					writeDeflated(deflater, compressed);
+				}
+			}
+		}
+
+		if (deflater != null) {
+			deflater.finish();
+
+			while (!deflater.finished()) {
+				writeDeflated(deflater, compressed);
+			}
+		}
+
+		return size;
+	}
+
+	private void writeDeflated(Deflater deflater, byte[] buffer) throws IOException {
+		final int length = deflater.deflate(buffer);
+		outputStream.write(buffer, 0, length);
+		offset += length;
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		write(buffer.array());
+	}
+
+	private void write(byte[] bytes) throws IOException {
+		outputStream.write(bytes);
+		offset += bytes.length;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try (outputStream) {
+			while (!pending.isEmpty()) {
+				writeNext();
+			}
+
+			final long directoryOffset = offset;
+			final long directoryLength = centralDirectory.size();
+			write(centralDirectory.toByteArray());
+
+			final boolean zip64 = entryCount >= ZIP64_MAGIC_COUNT || directoryOffset >= ZIP64_MAGIC_VALUE || directoryLength >= ZIP64_MAGIC_VALUE;
+
+			if (zip64) {
+				final long zip64EndOffset = offset;
+				write(buffer(56)
+						.putInt(ZIP64_END_SIGNATURE)
+						.putLong(56 - 12) // Size of the remaining record
+						.putShort((short) ZIP64_VERSION)
+						.putShort((short) ZIP64_VERSION)
+						.putInt(0) // Disk number
+						.putInt(0) // Central directory disk number
+						.putLong(entryCount)
+						.putLong(entryCount)
+						.putLong(directoryLength)
+						.putLong(directoryOffset));
+				write(buffer(20)
+						.putInt(ZIP64_LOCATOR_SIGNATURE)
+						.putInt(0) // Zip64 end record disk number
+						.putLong(zip64EndOffset)
+						.putInt(1)); // Total number of disks
+			}
+
+			write(buffer(22)
+					.putInt(END_SIGNATURE)
+					.putShort((short) 0) // Disk number
+					.putShort((short) 0) // Central directory disk number
+					.putShort((short) Math.min(entryCount, ZIP64_MAGIC_COUNT))
+					.putShort((short) Math.min(entryCount, ZIP64_MAGIC_COUNT))
+					.putInt((int) Math.min(directoryLength, ZIP64_MAGIC_VALUE))
+					.putInt((int) Math.min(directoryOffset, ZIP64_MAGIC_VALUE))
+					.putShort((short) 0)); // Comment length
+		}
+	}
+
+	private static ByteBuffer buffer(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@FunctionalInterface
+	interface DataSupplier {
+		byte[] get() throws IOException;
+	}
+
+	@FunctionalInterface
+	interface StreamSupplier {
+		InputStream open() throws IOException;
+	}
+
+	private record PendingEntry(String name, boolean stored, long bytes, CompletableFuture<EntryData> data) {
+	}
+
+	/**
+	 * Either the compressed data of an entry, or a stream that is copied when the entry is written.
+	 */
+	private record EntryData(@Nullable byte[] compressed, @Nullable StreamSupplier stream, int crc, long size) {
+		static EntryData create(byte[] data, boolean stored) {
+			final var crc = new CRC32();
+			crc.update(data);
+			return new EntryData(stored ? data : deflate(data), null, (int) crc.getValue(), data.length);
+		}
+
+		static EntryData checksum(StreamSupplier stream) throws IOException {
+			final var crc = new CRC32();
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			long size = 0;
+
+			try (InputStream inputStream = stream.open()) {
+				int length;
+
+				while ((length = inputStream.read(buffer)) >= 0) {
+					crc.update(buffer, 0, length);
+					size += length;
+				}
+			}
+
+			return new EntryData(null, stream, (int) crc.getValue(), size);
+		}
+
+		private static byte[] deflate(byte[] data) {
+			// The same settings as a ZipOutputStream
+			final var deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+			try {
+				deflater.setInput(data);
+				deflater.finish();
+
+				final var out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+				final byte[] buffer = new byte[8192];
+
+				while (!deflater.finished()) {
+					out.write(buffer, 0, deflater.deflate(buffer));
+				}
+
+				return out.toByteArray();
+			} finally {
+				deflater.end();
+			}
+		}
+	}
+}
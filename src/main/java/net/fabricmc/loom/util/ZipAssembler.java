@@ -0,0 +1,433 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.gradle.api.tasks.bundling.ZipEntryCompression;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+
+/**
+ * Collects the entries of a zip file along with any transforms that should be applied to them, and then writes the
+ * final zip in a single pass.
+ *
+ * <p>Entries may be provided as bytes, as entries of an existing zip or as files on disk. Entries that are not
+ * transformed are streamed straight into the output, transformed entries are read into memory once and have all of
+ * their transforms applied in the order they were registered.
+ *
+ * <p>Parent directory entries are added for every file, matching the output of a zip file system.
+ */
+public final class ZipAssembler implements Closeable {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Map<String, Source> entries = new LinkedHashMap<>();
+	private final Map<String, List<ZipUtils.UnsafeUnaryOperator<byte[]>>> transforms = new HashMap<>();
+	private final Set<String> storedEntries = new HashSet<>();
+	private final List<ZipFile> openZips = new ArrayList<>();
+
+	/**
+	 * Adds or replaces an entry with the given contents.
+	 */
+	public synchronized void put(String name, byte[] data) {
+		entries.put(name, new BytesSource(data, -1));
+		transforms.remove(name);
+		storedEntries.remove(name);
+	}
+
+	/**
+	 * Adds or replaces an entry with the contents of the given file, the file is read when the zip is written.
+	 */
+	public synchronized void putFile(String name, Path file) {
+		entries.put(name, new FileSource(file));
+		transforms.remove(name);
+		storedEntries.remove(name);
+	}
+
+	/**
+	 * Adds or replaces an entry with the contents of the given file, the entry is always written without compression.
+	 *
+	 * <p>This should be used for files that are already compressed, such as nested jars. The file is streamed into the
+	 * output, the CRC is computed by reading the file before it is copied.
+	 */
+	public synchronized void putStoredFile(String name, Path file) {
+		putFile(name, file);
+		storedEntries.add(name);
+	}
+
+	/**
+	 * Adds all the file entries of an existing zip that match the filter, the zip is kept open until this assembler is closed.
+	 */
+	public synchronized void putZipEntries(Path zip, Predicate<String> filter) throws IOException {
+		final var zipFile = new ZipFile(zip.toFile());
+		openZips.add(zipFile);
+
+		for (ZipEntry entry : zipFile.stream().toList()) {
+			if (entry.isDirectory() || !filter.test(entry.getName())) {
+				continue;
+			}
+
+			entries.put(entry.getName(), new ZipEntrySource(zipFile, entry));
+			transforms.remove(entry.getName());
+			storedEntries.remove(entry.getName());
+		}
+	}
+
+	public synchronized boolean contains(String name) {
+		return entries.containsKey(name);
+	}
+
+	/**
+	 * Reads the current contents of an entry, with all transforms registered so far applied.
+	 */
+	public synchronized byte[] read(String name) throws IOException {
+		final Source source = entries.get(name);
+
+		if (source == null) {
+			throw new IOException("Zip entry not found: " + name);
+		}
+
+		final List<ZipUtils.UnsafeUnaryOperator<byte[]>> pending = transforms.remove(name);
+
+		if (pending == null) {
+			return source.readAllBytes();
+		}
+
+		final byte[] data = applyTransforms(source.readAllBytes(), pending);
+		entries.put(name, new BytesSource(data, source.time()));
+		return data;
+	}
+
+	/**
+	 * Registers a transform for the given entry, transforms are applied when the entry is read or written.
+	 *
+	 * @return true if the entry exists
+	 */
+	public synchronized boolean transform(String name, ZipUtils.UnsafeUnaryOperator<byte[]> transformer) {
+		if (!entries.containsKey(name)) {
+			return false;
+		}
+
+		transforms.computeIfAbsent(name, s -> new ArrayList<>()).add(transformer);
+		return true;
+	}
+
+	public <T> boolean transformJson(Class<T> typeOfT, String name, ZipUtils.UnsafeUnaryOperator<T> transformer) {
+		return transform(name, bytes -> {
+			T json = LoomGradlePlugin.GSON.fromJson(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8), typeOfT);
+			return LoomGradlePlugin.GSON.toJson(transformer.apply(json), typeOfT).getBytes(StandardCharsets.UTF_8);
+		});
+	}
+
+	/**
+	 * Writes all entries to the output path, replacing any existing file.
+	 *
+	 * <p>The source zips are closed once the output has been written, allowing the output to replace one of them.
+	 */
+	public synchronized void write(Path output, boolean reproducibleFileOrder, boolean preserveFileTimestamps, ZipEntryCompression compression) throws IOException {
+		final Path tempFile = output.resolveSibling(output.getFileName() + ".tmp");
+
+		if (!preserveFileTimestamps) {
+			// All entries have the same time, so they can be compressed in parallel
+			try {
+				writeParallel(tempFile, reproducibleFileOrder, compression);
+			} catch (IOException | RuntimeException e) {
+				Files.deleteIfExists(tempFile);
+				throw e;
+			}
+
+			close();
+			Files.move(tempFile, output, StandardCopyOption.REPLACE_EXISTING);
+			return;
+		}
+
+		try (var zipOutputStream = new ZipOutputStream(Files.newOutputStream(tempFile))) {
+			zipOutputStream.setMethod(ZipReprocessorUtil.zipOutputStreamCompressionMethod(compression));
+
+			for (String name : getEntryNames(reproducibleFileOrder)) {
+				final ZipEntry entry = new ZipEntry(name);
+				final Source source = entries.get(name);
+
+				if (source != null && source.time() != -1) {
+					entry.setTime(source.time());
+				}
+
+				final boolean stored = compression == ZipEntryCompression.STORED || storedEntries.contains(name);
+				entry.setMethod(stored ? ZipEntry.STORED : ZipEntry.DEFLATED);
+
+				if (source == null) {
+					// Directory
+					ZipReprocessorUtil.writeZipEntry(zipOutputStream, entry, new byte[0]);
+					continue;
+				}
+
+				final List<ZipUtils.UnsafeUnaryOperator<byte[]>> pending = transforms.get(name);
+
+				if (pending != null) {
+					ZipReprocessorUtil.writeZipEntry(zipOutputStream, entry, applyTransforms(source.readAllBytes(), pending));
+				} else if (source instanceof BytesSource bytesSource) {
+					ZipReprocessorUtil.writeZipEntry(zipOutputStream, entry, bytesSource.data());
+				} else if (stored) {
+					writeStoredEntry(zipOutputStream, entry, source);
+				} else {
+					try (InputStream inputStream = source.open()) {
+						ZipReprocessorUtil.copyZipEntry(zipOutputStream, entry, inputStream);
+					}
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tempFile);
+			throw e;
+		}
+
+		close();
+		Files.move(tempFile, output, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private void writeParallel(Path tempFile, boolean reproducibleFileOrder, ZipEntryCompression compression) throws IOException {
+		try (var writer = new ReproducibleZipWriter(tempFile)) {
+			for (String name : getEntryNames(reproducibleFileOrder)) {
+				final Source source = entries.get(name);
+				final boolean stored = compression == ZipEntryCompression.STORED || storedEntries.contains(name);
+
+				if (source == null) {
+					// Directory
+					writer.putEntry(name, stored, 0, () -> new byte[0]);
+					continue;
+				}
+
+				final List<ZipUtils.UnsafeUnaryOperator<byte[]>> pending = transforms.get(name);
+
+				if (pending != null) {
+					// Transforms are applied on this thread, only the compression is done in parallel
+					final byte[] data = applyTransforms(source.readAllBytes(), pending);
+					writer.putEntry(name, stored, data.length, () -> data);
+				} else if (source instanceof BytesSource bytesSource) {
+					writer.putEntry(name, stored, bytesSource.data().length, bytesSource::data);
+				} else {
+					// Files and entries of other zips are streamed, large ones such as nested jars are never fully read into memory
+					writer.putStreamedEntry(name, stored, source.size(), source.crc(), source::open);
+				}
+			}
+		}
+	}
+
+	private List<String> getEntryNames(boolean reproducibleFileOrder) {
+		final Set<String> directories = new HashSet<>();
+		final List<String> names = new ArrayList<>();
+
+		for (String name : entries.keySet()) {
+			// Add the parent directories before the first file that they contain
+			int index = 0;
+
+			while ((index = name.indexOf('/', index) + 1) > 0) {
+				String directory = name.substring(0, index);
+
+				if (directories.add(directory)) {
+					names.add(directory);
+				}
+			}
+
+			names.add(name);
+		}
+
+		if (reproducibleFileOrder) {
+			names.sort(Comparator.comparing(s -> s, ZipReprocessorUtil::specialOrdering));
+		}
+
+		return names;
+	}
+
+	private static void writeStoredEntry(ZipOutputStream zipOutputStream, ZipEntry entry, Source source) throws IOException {
+		long crc;
+		long size;
+
+		if (source instanceof ZipEntrySource zipEntrySource && zipEntrySource.entry().getCrc() != -1 && zipEntrySource.entry().getSize() != -1) {
+			// Already known from the central directory of the source zip
+			crc = zipEntrySource.entry().getCrc();
+			size = zipEntrySource.entry().getSize();
+		} else {
+			final var checksum = new CRC32();
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			size = 0;
+
+			try (InputStream inputStream = source.open()) {
+				int length;
+
+				while ((length = inputStream.read(buffer)) > 0) {
+					checksum.update(buffer, 0, length);
+					size += length;
+				}
+			}
+
+			crc = checksum.getValue();
+		}
+
+		entry.setCrc(crc);
+		entry.setSize(size);
+		entry.setCompressedSize(size);
+
+		try (InputStream inputStream = source.open()) {
+			zipOutputStream.putNextEntry(entry);
+			inputStream.transferTo(zipOutputStream);
+			zipOutputStream.closeEntry();
+		}
+	}
+
+	private static byte[] applyTransforms(byte[] data, List<ZipUtils.UnsafeUnaryOperator<byte[]>> transformers) throws IOException {
+		for (ZipUtils.UnsafeUnaryOperator<byte[]> transformer : transformers) {
+			data = transformer.apply(data);
+		}
+
+		return data;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		IOException exception = null;
+
+		for (ZipFile zipFile : openZips) {
+			try {
+				zipFile.close();
+			} catch (IOException e) {
+				if (exception == null) {
+					exception = e;
+				} else {
+					exception.addSuppressed(e);
+				}
+			}
+		}
+
+		openZips.clear();
+
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	private sealed interface Source {
+		InputStream open() throws IOException;
+
+		long time();
+
+		/**
+		 * @return the size of the data, or -1 if unknown
+		 */
+		long size();
+
+		/**
+		 * @return the CRC-32 of the data, or -1 if unknown
+		 */
+		default long crc() {
+			return -1;
+		}
+
+		default byte[] readAllBytes() throws IOException {
+			try (InputStream inputStream = open()) {
+				return inputStream.readAllBytes();
+			}
+		}
+	}
+
+	private record BytesSource(byte[] data, long time) implements Source {
+		@Override
+		public InputStream open() {
+			return new ByteArrayInputStream(data);
+		}
+
+		@Override
+		public long size() {
+			return data.length;
+		}
+	}
+
+	private record ZipEntrySource(ZipFile zipFile, ZipEntry entry) implements Source {
+		@Override
+		public InputStream open() throws IOException {
+			return zipFile.getInputStream(entry);
+		}
+
+		@Override
+		public long time() {
+			return entry.getTime();
+		}
+
+		@Override
+		public long size() {
+			return entry.getSize();
+		}
+
+		@Override
+		public long crc() {
+			return entry.getCrc();
+		}
+	}
+
+	private record FileSource(Path path) implements Source {
+		@Override
+		public InputStream open() throws IOException {
+			return Files.newInputStream(path);
+		}
+
+		@Override
+		public long time() {
+			try {
+				return Files.getLastModifiedTime(path).toMillis();
+			} catch (IOException e) {
+				return -1;
+			}
+		}
+
+		@Override
+		public long size() {
+			try {
+				return Files.size(path);
+			} catch (IOException e) {
+				return -1;
+			}
+		}
+	}
+}
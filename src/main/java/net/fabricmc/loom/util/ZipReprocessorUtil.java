@@ -29,11 +29,13 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
 import java.util.Calendar;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
 import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
@@ -64,7 +66,7 @@ public class ZipReprocessorUtil {
 				|| parts[1].endsWith(".EC");
 	}
 
-	private static int specialOrdering(String name1, String name2) {
+	static int specialOrdering(String name1, String name2) {
 		if (name1.equals(name2)) {
 			return 0;
 		} else if (name1.equals(Constants.Manifest.PATH)) {
@@ -98,36 +100,35 @@ public class ZipReprocessorUtil {
 
 		final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
 
+		if (!preserveFileTimestamps) {
+			// All entries get the same time, so they can be compressed in parallel without changing the output
+			final boolean stored = zipEntryCompression == ZipEntryCompression.STORED;
+
+			try (var zipFile = new ZipFile(file.toFile());
+					var writer = new ReproducibleZipWriter(tempFile)) {
+				for (ZipEntry entry : getEntries(zipFile, reproducibleFileOrder)) {
+					writer.putStreamedEntry(entry.getName(), stored, entry.getSize(), entry.getCrc(), () -> zipFile.getInputStream(entry));
+				}
+			}
+
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+			return;
+		}
+
 		try (var zipFile = new ZipFile(file.toFile());
 				var fileOutputStream = Files.newOutputStream(tempFile)) {
-			ZipEntry[] entries;
-
-			if (reproducibleFileOrder) {
-				entries = zipFile.stream()
-						.sorted(Comparator.comparing(ZipEntry::getName, ZipReprocessorUtil::specialOrdering))
-						.toArray(ZipEntry[]::new);
-			} else {
-				entries = zipFile.stream()
-						.toArray(ZipEntry[]::new);
-			}
+			final ZipEntry[] entries = getEntries(zipFile, reproducibleFileOrder);
 
 			try (var zipOutputStream = new ZipOutputStream(fileOutputStream)) {
 				zipOutputStream.setMethod(zipOutputStreamCompressionMethod(zipEntryCompression));
 
 				for (ZipEntry entry : entries) {
-					ZipEntry newEntry = entry;
-
-					if (!preserveFileTimestamps) {
-						newEntry = new ZipEntry(entry.getName());
-						setConstantFileTime(newEntry);
-					}
-
-					newEntry.setMethod(zipEntryCompressionMethod(zipEntryCompression));
+					entry.setMethod(zipEntryCompressionMethod(zipEntryCompression));
 
 					if (zipEntryCompression == ZipEntryCompression.STORED) {
-						copyUncompressedZipEntry(zipOutputStream, newEntry, zipFile.getInputStream(entry));
+						copyUncompressedZipEntry(zipOutputStream, entry, zipFile.getInputStream(entry));
 					} else {
-						copyZipEntry(zipOutputStream, newEntry, zipFile.getInputStream(entry));
+						copyZipEntry(zipOutputStream, entry, zipFile.getInputStream(entry));
 					}
 				}
 			}
@@ -136,19 +137,60 @@ public class ZipReprocessorUtil {
 		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
 	}
 
+	private static ZipEntry[] getEntries(ZipFile zipFile, boolean reproducibleFileOrder) {
+		if (reproducibleFileOrder) {
+			return zipFile.stream()
+					.sorted(Comparator.comparing(ZipEntry::getName, ZipReprocessorUtil::specialOrdering))
+					.toArray(ZipEntry[]::new);
+		}
+
+		return zipFile.stream()
+				.toArray(ZipEntry[]::new);
+	}
+
 	/**
 	 * Appends an entry to a zip file, persevering the existing entry order and time stamps.
 	 * The new entry is added with a constant time stamp to ensure reproducibility.
 	 * This method should only be used when a reproducible output is required, use {@link ZipUtils#add(Path, String, byte[])} normally.
+	 *
+	 * <p>The existing entries are copied as they are without being recompressed, only the new entry and a new central directory are written.
 	 */
 	public static void appendZipEntry(Path file, String path, byte[] data) throws IOException {
+		// The zip is written to a temp file and moved into place, so a failure never leaves a broken zip behind
 		final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
 
+		try {
+			try {
+				appendRawZipEntry(file, tempFile, path, data);
+			} catch (ZipException e) {
+				// Most likely a zip64 file, or one that would need to become one. Rewrite the whole zip instead.
+				rewriteWithZipEntry(file, tempFile, path, data);
+			}
+
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	private static void appendRawZipEntry(Path file, Path tempFile, String path, byte[] data) throws IOException {
+		try (RawZipWriter writer = RawZipWriter.append(file, tempFile)) {
+			if (writer.contains(path)) {
+				throw new IllegalArgumentException("Zip file (%s) already contains entry (%s)".formatted(file.getFileName().toString(), path));
+			}
+
+			writer.putEntry(path, data, LocalDateTime.of(1980, 1, 1, 0, 0));
+		}
+	}
+
+	private static void rewriteWithZipEntry(Path file, Path tempFile, String path, byte[] data) throws IOException {
 		try (var zipFile = new ZipFile(file.toFile());
 				var fileOutputStream = Files.newOutputStream(tempFile)) {
 			ZipEntry[] entries = zipFile.stream().toArray(ZipEntry[]::new);
 
 			try (var zipOutputStream = new ZipOutputStream(fileOutputStream)) {
+				zipOutputStream.setComment(zipFile.getComment());
+
 				// Copy existing entries
 				for (ZipEntry entry : entries) {
 					if (entry.getName().equals(path)) {
@@ -166,44 +208,40 @@ public class ZipReprocessorUtil {
 				zipOutputStream.closeEntry();
 			}
 		}
-
-		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
 	}
 
-	private static void copyZipEntry(ZipOutputStream zipOutputStream, ZipEntry entry, InputStream inputStream) throws IOException {
+	static void copyZipEntry(ZipOutputStream zipOutputStream, ZipEntry entry, InputStream inputStream) throws IOException {
 		zipOutputStream.putNextEntry(entry);
-		byte[] buf = new byte[1024];
-		int length;
-
-		while ((length = inputStream.read(buf)) > 0) {
-			zipOutputStream.write(buf, 0, length);
-		}
-
+		inputStream.transferTo(zipOutputStream);
 		zipOutputStream.closeEntry();
 	}
 
 	private static void copyUncompressedZipEntry(ZipOutputStream zipOutputStream, ZipEntry entry, InputStream inputStream) throws IOException {
 		// We need to read the entire input stream to calculate the CRC32 checksum and the size of the entry.
-		final byte[] data = inputStream.readAllBytes();
+		writeZipEntry(zipOutputStream, entry, inputStream.readAllBytes());
+	}
 
-		var crc = new CRC32();
-		crc.update(data);
-		entry.setCrc(crc.getValue());
-		entry.setSize(data.length);
-		entry.setCompressedSize(data.length);
+	static void writeZipEntry(ZipOutputStream zipOutputStream, ZipEntry entry, byte[] data) throws IOException {
+		if (entry.getMethod() == ZipEntry.STORED) {
+			var crc = new CRC32();
+			crc.update(data);
+			entry.setCrc(crc.getValue());
+			entry.setSize(data.length);
+			entry.setCompressedSize(data.length);
+		}
 
 		zipOutputStream.putNextEntry(entry);
 		zipOutputStream.write(data, 0, data.length);
 		zipOutputStream.closeEntry();
 	}
 
-	private static void setConstantFileTime(ZipEntry entry) {
+	static void setConstantFileTime(ZipEntry entry) {
 		// See https://github.com/openjdk/jdk/blob/master/test/jdk/java/util/zip/ZipFile/ZipEntryTimeBounds.java
 		entry.setTime(new GregorianCalendar(1980, Calendar.JANUARY, 1, 0, 0, 0).getTimeInMillis());
 	}
 
 	@MagicConstant(valuesFromClass = ZipOutputStream.class)
-	private static int zipOutputStreamCompressionMethod(ZipEntryCompression compression) {
+	static int zipOutputStreamCompressionMethod(ZipEntryCompression compression) {
 		return switch (compression) {
 		case STORED -> ZipOutputStream.STORED;
 		case DEFLATED -> ZipOutputStream.DEFLATED;
@@ -174,13 +174,23 @@ public class ZipUtils {
 
 	public static void replace(Path zip, String path, byte[] bytes) throws IOException {
 		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, true)) {
-			Path fsPath = fs.get().getPath(path);
+			replace(fs, path, bytes);
+		}
+	}
 
-			if (Files.exists(fsPath)) {
-				Files.write(fsPath, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-			} else {
-				throw new NoSuchFileException(fsPath.toString());
-			}
+	/**
+	 * Replaces an entry of an already open zip file system.
+	 *
+	 * <p>The zip file is only written when the last reference to the file system is closed, this allows an open
+	 * output to be edited before it is written.
+	 */
+	public static void replace(FileSystemUtil.Delegate fs, String path, byte[] bytes) throws IOException {
+		Path fsPath = fs.get().getPath(path);
+
+		if (Files.exists(fsPath)) {
+			Files.write(fsPath, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		} else {
+			throw new NoSuchFileException(fsPath.toString());
 		}
 	}
 
@@ -205,8 +215,14 @@ public class ZipUtils {
 	}
 
 	public static <T> int transformJson(Class<T> typeOfT, Path zip, Map<String, UnsafeUnaryOperator<T>> transforms) throws IOException {
-		return transformMapped(zip, transforms, bytes -> LoomGradlePlugin.GSON.fromJson(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8), typeOfT),
-				s -> LoomGradlePlugin.GSON.toJson(s, typeOfT).getBytes(StandardCharsets.UTF_8));
+		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, false)) {
+			return transformJson(typeOfT, fs, transforms);
+		}
+	}
+
+	public static <T> int transformJson(Class<T> typeOfT, FileSystemUtil.Delegate fs, Map<String, UnsafeUnaryOperator<T>> transforms) throws IOException {
+		return transform(fs, mapTransforms(transforms, bytes -> LoomGradlePlugin.GSON.fromJson(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8), typeOfT),
+				s -> LoomGradlePlugin.GSON.toJson(s, typeOfT).getBytes(StandardCharsets.UTF_8)));
 	}
 
 	public static <T> void transformJson(Class<T> typeOfT, Path zip, String path, UnsafeUnaryOperator<T> transformer) throws IOException {
@@ -226,6 +242,10 @@ public class ZipUtils {
 	}
 
 	public static <T> int transformMapped(Path zip, Map<String, UnsafeUnaryOperator<T>> transforms, Function<byte[], T> deserializer, Function<T, byte[]> serializer) throws IOException {
+		return transform(zip, mapTransforms(transforms, deserializer, serializer));
+	}
+
+	private static <T> Map<String, UnsafeUnaryOperator<byte[]>> mapTransforms(Map<String, UnsafeUnaryOperator<T>> transforms, Function<byte[], T> deserializer, Function<T, byte[]> serializer) {
 		Map<String, UnsafeUnaryOperator<byte[]>> newTransforms = new HashMap<>();
 
 		for (Map.Entry<String, UnsafeUnaryOperator<T>> entry : transforms.entrySet()) {
@@ -236,20 +256,27 @@ public class ZipUtils {
 			}
 		}
 
-		return transform(zip, newTransforms);
+		return newTransforms;
 	}
 
 	public static int transform(Path zip, Map<String, UnsafeUnaryOperator<byte[]>> transforms) throws IOException {
+		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, false)) {
+			return transform(fs, transforms);
+		}
+	}
+
+	/**
+	 * Transforms the entries of an already open zip file system, see {@link #replace(FileSystemUtil.Delegate, String, byte[])}.
+	 */
+	public static int transform(FileSystemUtil.Delegate fs, Map<String, UnsafeUnaryOperator<byte[]>> transforms) throws IOException {
 		int replacedCount = 0;
 
-		try (FileSystemUtil.Delegate fs = FileSystemUtil.getJarFileSystem(zip, false)) {
-			for (Map.Entry<String, UnsafeUnaryOperator<byte[]>> entry : transforms.entrySet()) {
-				Path fsPath = fs.get().getPath(entry.getKey());
+		for (Map.Entry<String, UnsafeUnaryOperator<byte[]>> entry : transforms.entrySet()) {
+			Path fsPath = fs.get().getPath(entry.getKey());
 
-				if (Files.exists(fsPath) && entry.getValue() != null) {
-					Files.write(fsPath, entry.getValue().apply(Files.readAllBytes(fsPath)), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-					replacedCount++;
-				}
+			if (Files.exists(fsPath) && entry.getValue() != null) {
+				Files.write(fsPath, entry.getValue().apply(Files.readAllBytes(fsPath)), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+				replacedCount++;
 			}
 		}
 
@@ -28,7 +28,6 @@ import static com.google.common.io.Files.createParentDirs;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.net.ProxySelector;
@@ -38,20 +37,26 @@ import java.net.http.HttpClient;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Locale;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
 import java.util.zip.GZIPInputStream;
 
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,6 +65,10 @@ import net.fabricmc.loom.util.Checksum;
 
 public final class Download {
 	private static final String E_TAG = "ETag";
+	private static final String HASH = "LoomHash";
+	private static final int BUFFER_SIZE = 1024 * 1024;
+	// Reused by each download thread, direct buffers avoid an extra copy when writing to the file channel
+	private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
 	private static final Logger LOGGER = LoggerFactory.getLogger(Download.class);
 	private static final Duration TIMEOUT = Duration.ofMinutes(1);
 	private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
@@ -192,7 +201,7 @@ public final class Download {
 		if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
 			try {
 				// Update the last modified time so we don't retry the request until the max age has passed again.
-				Files.setLastModifiedTime(output, FileTime.from(Instant.now()));
+				DownloadMetadataIndex.setLastModifiedTime(output, FileTime.from(Instant.now()));
 			} catch (IOException e) {
 				throw error(e, "Failed to update last modified time");
 			}
@@ -207,6 +216,11 @@ public final class Download {
 
 		downloadToPath(output, response);
 
+		if (expectedHash != null) {
+			// Index the hash, saves a lot of time trying to re-compute the hash when re-visiting this file.
+			writeHash(output, expectedHash);
+		}
+
 		if (useEtag) {
 			final HttpHeaders headers = response.headers();
 			final String responseETag = headers.firstValue(E_TAG.toLowerCase(Locale.ROOT)).orElse(null);
@@ -215,25 +229,6 @@ public final class Download {
 				writeEtag(output, responseETag);
 			}
 		}
-
-		if (expectedHash != null) {
-			// Ensure we downloaded the expected hash.
-			if (!isHashValid(output)) {
-				String downloadedHash;
-
-				try {
-					downloadedHash = Checksum.sha1Hex(output);
-					Files.deleteIfExists(output);
-				} catch (IOException e) {
-					downloadedHash = "unknown hash";
-				}
-
-				throw error("Failed to download (%s) with expected hash: %s got %s", url, expectedHash, downloadedHash);
-			}
-
-			// Write the hash to the file attribute, saves a lot of time trying to re-compute the hash when re-visiting this file.
-			writeHash(output, expectedHash);
-		}
 	}
 
 	private void downloadToPath(Path output, HttpResponse<InputStream> response) throws DownloadException {
@@ -248,52 +243,108 @@ public final class Download {
 		}
 
 		final long length = Long.parseLong(response.headers().firstValue("Content-Length").orElse("-1"));
-		AtomicLong totalBytes = new AtomicLong(0);
+		final MessageDigest digest = expectedHash != null ? createDigest() : null;
 
-		try (OutputStream outputStream = Files.newOutputStream(partFile, StandardOpenOption.CREATE_NEW)) {
-			copyWithCallback(decodeOutput(response), outputStream, value -> {
-				if (length < 0) {
-					return;
-				}
+		try {
+			final long actualLength;
 
-				progressListener.onProgress(totalBytes.addAndGet(value), length);
-			});
-		} catch (IOException e) {
-			throw error(e, "Failed to decode and write download output");
-		}
+			try {
+				actualLength = copyWithCallback(decodeOutput(response), partFile, digest, totalBytes -> {
+					if (length < 0) {
+						return;
+					}
 
-		if (Files.notExists(partFile)) {
-			throw error("No file was downloaded");
-		}
+					progressListener.onProgress(totalBytes, length);
+				});
+			} catch (IOException e) {
+				throw error(e, "Failed to decode and write download output");
+			}
 
-		if (length > 0) {
-			try {
-				final long actualLength = Files.size(partFile);
+			if (length > 0 && actualLength != length) {
+				throw error("Unexpected file length of %d bytes, expected %d bytes".formatted(actualLength, length));
+			}
 
-				if (actualLength != length) {
-					throw error("Unexpected file length of %d bytes, expected %d bytes".formatted(actualLength, length));
+			if (digest != null) {
+				// Ensure we downloaded the expected hash, the hash was computed while writing the file.
+				final String downloadedHash = Checksum.toHex(digest.digest());
+
+				if (!downloadedHash.equalsIgnoreCase(expectedHash.substring(expectedHash.indexOf(':') + 1))) {
+					throw error("Failed to download (%s) with expected hash: %s got %s", url, expectedHash, downloadedHash);
 				}
+			}
+
+			try {
+				// Once the file has been fully read, move it to the destination file.
+				// This ensures that the output file only exists in fully populated state.
+				Files.move(partFile, output);
 			} catch (IOException e) {
-				throw error(e);
+				throw error(e, "Failed to complete download");
+			}
+		} catch (DownloadException e) {
+			// Do not leave a partial or corrupt download behind
+			try {
+				Files.deleteIfExists(partFile);
+			} catch (IOException ex) {
+				e.addSuppressed(ex);
 			}
+
+			throw e;
 		}
+	}
 
-		try {
-			// Once the file has been fully read, move it to the destination file.
-			// This ensures that the output file only exists in fully populated state.
-			Files.move(partFile, output);
-		} catch (IOException e) {
-			throw error(e, "Failed to complete download");
+	/**
+	 * Copies the input stream to a new file, updating the digest in the same pass.
+	 *
+	 * @return the total number of bytes written
+	 */
+	private static long copyWithCallback(InputStream is, Path output, @Nullable MessageDigest digest, LongConsumer consumer) throws IOException {
+		final ByteBuffer buffer = BUFFER.get().clear();
+		long totalBytes = 0;
+
+		try (ReadableByteChannel input = Channels.newChannel(is);
+				FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			int length;
+
+			while ((length = input.read(buffer)) >= 0) {
+				totalBytes += length;
+				consumer.accept(totalBytes);
+
+				if (!buffer.hasRemaining()) {
+					flush(buffer, channel, digest);
+				}
+			}
+
+			flush(buffer, channel, digest);
+		}
+
+		return totalBytes;
+	}
+
+	private static void flush(ByteBuffer buffer, FileChannel channel, @Nullable MessageDigest digest) throws IOException {
+		buffer.flip();
+
+		if (digest != null) {
+			digest.update(buffer);
+			buffer.rewind();
 		}
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+
+		buffer.clear();
 	}
 
-	private void copyWithCallback(InputStream is, OutputStream os, IntConsumer consumer) throws IOException {
-		byte[] buffer = new byte[1024];
-		int length;
+	private MessageDigest createDigest() throws DownloadException {
+		final String algorithm = expectedHash.substring(0, expectedHash.indexOf(':'));
 
-		while ((length = is.read(buffer)) > 0) {
-			os.write(buffer, 0, length);
-			consumer.accept(length);
+		try {
+			return switch (algorithm) {
+			case "sha1" -> MessageDigest.getInstance("SHA-1");
+			default -> throw error("Unsupported hash algorithm (%s)", algorithm);
+			};
+		} catch (NoSuchAlgorithmException e) {
+			throw error(e, "Failed to create digest for (%s)", algorithm);
 		}
 	}
 
@@ -379,34 +430,47 @@ public final class Download {
 	}
 
 	private Optional<String> readEtag(Path output) {
-		try {
-			return AttributeHelper.readAttribute(output, E_TAG);
-		} catch (IOException e) {
-			return Optional.empty();
-		}
+		return readMetadata(output, E_TAG);
 	}
 
 	private void writeEtag(Path output, String eTag) throws DownloadException {
 		try {
-			AttributeHelper.writeAttribute(output, E_TAG, eTag);
+			DownloadMetadataIndex.write(output, E_TAG, eTag);
 		} catch (IOException e) {
 			throw error(e, "Failed to write etag to (%s)", output);
 		}
 	}
 
 	private Optional<String> readHash(Path output) {
+		return readMetadata(output, HASH);
+	}
+
+	private void writeHash(Path output, String value) throws DownloadException {
 		try {
-			return AttributeHelper.readAttribute(output, "LoomHash");
+			DownloadMetadataIndex.write(output, HASH, value);
 		} catch (IOException e) {
-			return Optional.empty();
+			throw error(e, "Failed to write hash to (%s)", output);
 		}
 	}
 
-	private void writeHash(Path output, String value) throws DownloadException {
+	private static Optional<String> readMetadata(Path output, String key) {
 		try {
-			AttributeHelper.writeAttribute(output, "LoomHash", value);
+			final Optional<String> value = DownloadMetadataIndex.read(output, key);
+
+			if (value.isPresent()) {
+				return value;
+			}
+
+			// Files downloaded by older versions store the metadata as file attributes, move it into the index.
+			final Optional<String> attribute = AttributeHelper.readAttribute(output, key);
+
+			if (attribute.isPresent()) {
+				DownloadMetadataIndex.write(output, key, attribute.get());
+			}
+
+			return attribute;
 		} catch (IOException e) {
-			throw error(e, "Failed to write hash to (%s)", output);
+			return Optional.empty();
 		}
 	}
 
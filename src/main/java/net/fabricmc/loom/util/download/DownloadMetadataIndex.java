@@ -0,0 +1,313 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.download;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A per-directory index of the metadata (ETag and hash) of downloaded files.
+ *
+ * <p>Looking up a value only requires a single stat of the file, instead of reading user-defined file attributes
+ * for every file. The index is an append-only file of tab separated lines ({@code name, stamp, key, value}),
+ * the stamp (size, last modified time and file key) ensures that values are dropped when the file is replaced or modified.
+ *
+ * <p>Appending to and compacting the index is done while holding a lock on a file next to it, as compacting replaces the index.
+ */
+final class DownloadMetadataIndex {
+	static final String FILE_NAME = ".loom-download-index";
+	static final String LOCK_FILE_NAME = FILE_NAME + ".lock";
+	private static final long LOCK_RETRY_MILLIS = 10;
+	private static final Map<Path, DownloadMetadataIndex> INDEXES = new ConcurrentHashMap<>();
+
+	private final Path indexFile;
+	private final Path lockFile;
+	private final Map<String, Entry> entries = new HashMap<>();
+	private long loadedLength = -1;
+
+	private DownloadMetadataIndex(Path indexFile) {
+		this.indexFile = indexFile;
+		this.lockFile = indexFile.resolveSibling(LOCK_FILE_NAME);
+	}
+
+	static Optional<String> read(Path file, String key) throws IOException {
+		final String stamp;
+
+		try {
+			stamp = stamp(file);
+		} catch (NoSuchFileException e) {
+			return Optional.empty();
+		}
+
+		return get(file).read(file.getFileName().toString(), stamp, key);
+	}
+
+	static void write(Path file, String key, String value) throws IOException {
+		get(file).write(file.getFileName().toString(), stamp(file), Map.of(key, value));
+	}
+
+	/**
+	 * Sets the last modified time of the file, keeping its indexed metadata valid.
+	 */
+	static void setLastModifiedTime(Path file, FileTime time) throws IOException {
+		final DownloadMetadataIndex index = get(file);
+		final String name = file.getFileName().toString();
+		final Map<String, String> values = index.readAll(name, stamp(file));
+		Files.setLastModifiedTime(file, time);
+
+		if (!values.isEmpty()) {
+			index.write(name, stamp(file), values);
+		}
+	}
+
+	private static DownloadMetadataIndex get(Path file) {
+		final Path indexFile = file.toAbsolutePath().normalize().resolveSibling(FILE_NAME);
+		return INDEXES.computeIfAbsent(indexFile, DownloadMetadataIndex::new);
+	}
+
+	private static String stamp(Path file) throws IOException {
+		final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		final Object fileKey = attributes.fileKey();
+		final String stamp = attributes.size() + "/" + attributes.lastModifiedTime().toMillis();
+		return fileKey != null ? stamp + "/" + fileKey : stamp;
+	}
+
+	private synchronized Optional<String> read(String name, String stamp, String key) throws IOException {
+		if (loadedLength < 0) {
+			load();
+		}
+
+		Optional<String> value = lookup(name, stamp, key);
+
+		if (value.isEmpty() && currentLength() != loadedLength) {
+			// The index has been written to by another process since it was loaded.
+			load();
+			value = lookup(name, stamp, key);
+		}
+
+		return value;
+	}
+
+	private synchronized Map<String, String> readAll(String name, String stamp) throws IOException {
+		if (loadedLength < 0) {
+			load();
+		}
+
+		final Entry entry = entries.get(name);
+		return entry != null && entry.stamp().equals(stamp) ? Map.copyOf(entry.values()) : Map.of();
+	}
+
+	private synchronized void write(String name, String stamp, Map<String, String> values) throws IOException {
+		if (loadedLength < 0) {
+			load();
+		}
+
+		final StringBuilder lines = new StringBuilder();
+
+		for (Map.Entry<String, String> value : values.entrySet()) {
+			if (!isValid(name) || !isValid(value.getKey()) || !isValid(value.getValue())) {
+				throw new IOException("Unable to index metadata of " + name);
+			}
+
+			appendLine(lines, name, stamp, value.getKey(), value.getValue());
+			put(name, stamp, value.getKey(), value.getValue());
+		}
+
+		final byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+
+		try (FileChannel lockChannel = openLockChannel(); FileLock lock = lock(lockChannel)) {
+			// A single append keeps concurrent writes from other processes intact
+			Files.write(indexFile, bytes, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		}
+
+		loadedLength += bytes.length;
+	}
+
+	private Optional<String> lookup(String name, String stamp, String key) {
+		final Entry entry = entries.get(name);
+
+		if (entry == null || !entry.stamp().equals(stamp)) {
+			return Optional.empty();
+		}
+
+		return Optional.ofNullable(entry.values().get(key));
+	}
+
+	private void load() throws IOException {
+		final int lines = parse();
+
+		if (lines > entries.size() * 4 + 64) {
+			try {
+				compact();
+			} catch (IOException ignored) {
+				// Compacting is best effort, the index remains valid without it
+			}
+		}
+	}
+
+	/**
+	 * @return The number of lines in the index
+	 */
+	private int parse() throws IOException {
+		entries.clear();
+
+		final List<String> lines;
+
+		try {
+			lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+		} catch (NoSuchFileException e) {
+			loadedLength = 0;
+			return 0;
+		}
+
+		for (String line : lines) {
+			final String[] parts = line.split("\t", -1);
+
+			if (parts.length != 4) {
+				// Skip lines that were only partially written
+				continue;
+			}
+
+			put(parts[0], parts[1], parts[2], parts[3]);
+		}
+
+		loadedLength = currentLength();
+		return lines.size();
+	}
+
+	private void put(String name, String stamp, String key, String value) {
+		Entry entry = entries.get(name);
+
+		if (entry == null || !entry.stamp().equals(stamp)) {
+			// The file has changed, older values no longer apply
+			entry = new Entry(stamp, new HashMap<>());
+			entries.put(name, entry);
+		}
+
+		entry.values().put(key, value);
+	}
+
+	// Rewrites the index without the superseded lines
+	private void compact() throws IOException {
+		try (FileChannel lockChannel = openLockChannel(); FileLock lock = tryLock(lockChannel)) {
+			if (lock == null) {
+				// Another process is writing to the index, compact it next time
+				return;
+			}
+
+			// Lines may have been appended by another process before the lock was acquired
+			parse();
+			writeCompacted();
+		}
+	}
+
+	private void writeCompacted() throws IOException {
+		final StringBuilder lines = new StringBuilder();
+
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			for (Map.Entry<String, String> value : entry.getValue().values().entrySet()) {
+				appendLine(lines, entry.getKey(), entry.getValue().stamp(), value.getKey(), value.getValue());
+			}
+		}
+
+		final Path tempFile = Files.createTempFile(indexFile.getParent(), FILE_NAME, ".tmp");
+
+		try {
+			Files.writeString(tempFile, lines, StandardCharsets.UTF_8);
+			Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+
+		loadedLength = currentLength();
+	}
+
+	private FileChannel openLockChannel() throws IOException {
+		return FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+	}
+
+	@Nullable
+	private FileLock lock(FileChannel channel) throws IOException {
+		while (true) {
+			try {
+				return channel.lock();
+			} catch (OverlappingFileLockException e) {
+				// Held by an index loaded by another class loader in this JVM, which is only held for a single append or compaction
+				try {
+					Thread.sleep(LOCK_RETRY_MILLIS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for the download metadata index lock: " + lockFile);
+				}
+			}
+		}
+	}
+
+	private static FileLock tryLock(FileChannel channel) throws IOException {
+		try {
+			return channel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			// Held by another class loader in this JVM
+			return null;
+		}
+	}
+
+	private static void appendLine(StringBuilder lines, String name, String stamp, String key, String value) {
+		lines.append(name).append('\t').append(stamp).append('\t').append(key).append('\t').append(value).append('\n');
+	}
+
+	private long currentLength() throws IOException {
+		try {
+			return Files.size(indexFile);
+		} catch (NoSuchFileException e) {
+			return 0;
+		}
+	}
+
+	private static boolean isValid(String value) {
+		return value.indexOf('\t') == -1 && value.indexOf('\n') == -1 && value.indexOf('\r') == -1;
+	}
+
+	private record Entry(String stamp, Map<String, String> values) {
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util.gradle;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * A thread pool that is shared by the tasks of a build, and shut down once the build has finished.
+ *
+ * <pre>{@code
+ * @ServiceReference(ExecutorBuildService.NAME)
+ * abstract Property<ExecutorBuildService> getExecutorService();
+ * }</pre>
+ */
+public abstract class ExecutorBuildService implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+	public static final String NAME = "loomExecutor";
+
+	private final ExecutorService executor;
+
+	public ExecutorBuildService() {
+		final var threadCount = new AtomicInteger();
+
+		executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+			final var thread = new Thread(runnable, "loom-executor-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public static Provider<ExecutorBuildService> register(Project project) {
+		return project.getGradle().getSharedServices().registerIfAbsent(NAME, ExecutorBuildService.class, spec -> { });
+	}
+
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.benchmark
+
+import java.nio.file.Path
+
+import com.google.common.hash.HashCode
+
+import net.fabricmc.loom.decompilers.cache.ClassEntry
+import net.fabricmc.loom.decompilers.cache.ClassHashing
+import net.fabricmc.loom.decompilers.cache.JarWalker
+import net.fabricmc.loom.util.FileSystemUtil
+
+/**
+ * Compares the decompile cache key hashing functions.
+ * Run this class, passing the path to a (Minecraft) jar as the first argument.
+ */
+class ClassHashingBenchmark {
+	static final int WARMUP = 3
+	static final int ITERATIONS = 10
+
+	static void main(String[] args) {
+		def jar = Path.of(args[0])
+		def entries = JarWalker.findClasses(jar)
+		println("Hashing ${entries.size()} classes")
+
+		FileSystemUtil.getJarFileSystem(jar).withCloseable { fs ->
+			for (ClassHashing hashing : ClassHashing.values()) {
+				WARMUP.times { hashAll(entries, fs.root, hashing) }
+
+				long start = System.nanoTime()
+				ITERATIONS.times { hashAll(entries, fs.root, hashing) }
+				long elapsed = System.nanoTime() - start
+
+				println("${hashing}: ${(elapsed / ITERATIONS / 1_000_000) as long}ms per run")
+			}
+		}
+
+		System.exit(0)
+	}
+
+	private static void hashAll(List<ClassEntry> entries, Path root, ClassHashing hashing) {
+		Map<String, HashCode> hashes = [:]
+
+		for (ClassEntry entry : entries) {
+			def hash = entry.hash(root, hashing)
+			hashes[entry.name()] = hash
+			entry.innerClasses().each { hashes[it] = hash }
+		}
+
+		for (ClassEntry entry : entries) {
+			hashing.cacheKey(entry.hashSuperHierarchy(hashes, hashing))
+		}
+	}
+}
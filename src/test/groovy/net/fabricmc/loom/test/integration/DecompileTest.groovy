@@ -106,4 +106,42 @@ class DecompileTest extends Specification implements GradleProjectTestTrait {
 		result2.task(":genSourcesWithVineflower").outcome == SUCCESS
 		result3.task(":genSourcesWithVineflower").outcome == SUCCESS
 	}
+
+	def "pipelined decompile"() {
+		setup:
+		def gradle = gradleProject(project: "minimalBase", version: PRE_RELEASE_GRADLE, gradleHomeDir: File.createTempDir())
+		gradle.buildGradle << '''
+                dependencies {
+                    minecraft "com.mojang:minecraft:1.20.4"
+                    mappings "net.fabricmc:yarn:1.20.4+build.3:v2"
+                }
+		'''
+
+		when:
+		def result = gradle.run(tasks: ["genSourcesWithVineflower"], args: ["--pipelined", "--no-use-cache", "--info"])
+		def result2 = gradle.run(tasks: ["genSourcesWithVineflower"], args: ["--pipelined", "--use-cache", "--info"])
+
+		then:
+		result.task(":genSourcesWithVineflower").outcome == SUCCESS
+		result.output.contains("Wait for decompile batch 3")
+		result2.task(":genSourcesWithVineflower").outcome == SUCCESS
+	}
+
+	def "sharded decompile"() {
+		setup:
+		def gradle = gradleProject(project: "minimalBase", version: PRE_RELEASE_GRADLE, gradleHomeDir: File.createTempDir())
+		gradle.buildGradle << '''
+                dependencies {
+                    minecraft "com.mojang:minecraft:1.20.4"
+                    mappings "net.fabricmc:yarn:1.20.4+build.3:v2"
+                }
+		'''
+
+		when:
+		def result = gradle.run(tasks: ["genSourcesWithVineflower"], args: ["--shards", "2", "--no-use-cache", "--info"])
+
+		then:
+		result.task(":genSourcesWithVineflower").outcome == SUCCESS
+		result.output.contains("Decompiling with 2 shards")
+	}
 }
@@ -0,0 +1,62 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.integration
+
+import spock.lang.Specification
+
+import net.fabricmc.loom.test.util.GradleProjectTestTrait
+
+import static net.fabricmc.loom.test.LoomTestConstants.*
+import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+
+class GlobalModCacheTest extends Specification implements GradleProjectTestTrait {
+	def "remapped mods are shared between projects"() {
+		setup:
+		def gradleHomeDir = File.createTempDir()
+		def projects = (1..2).collect {
+			def gradle = gradleProject(project: "minimalBase", version: PRE_RELEASE_GRADLE, gradleHomeDir: gradleHomeDir)
+			gradle.buildGradle << '''
+                dependencies {
+                    minecraft "com.mojang:minecraft:1.20.4"
+                    mappings "net.fabricmc:yarn:1.20.4+build.3:v2"
+                    modImplementation "net.fabricmc.fabric-api:fabric-api:0.96.4+1.20.4"
+                }
+			'''
+			return gradle
+		}
+
+		when:
+		def result = projects[0].run(task: "build", args: ["-Pfabric.loom.experimental.globalModCache=true"])
+		def cachedJars = new File(gradleHomeDir, "caches/fabric-loom/remapped_mods/v1").listFiles().findAll { it.directory }.collectMany { it.listFiles().toList() }
+		def result2 = projects[1].run(task: "build", args: ["-Pfabric.loom.experimental.globalModCache=true", "--info"])
+
+		then:
+		result.task(":build").outcome == SUCCESS
+		result2.task(":build").outcome == SUCCESS
+		!cachedJars.isEmpty()
+		result2.output.contains(":reused")
+		!result2.output.contains(":remapping")
+	}
+}
@@ -24,8 +24,10 @@
 
 package net.fabricmc.loom.test.unit
 
+import java.nio.charset.StandardCharsets
 import java.nio.file.Files
-import java.nio.file.Path
+import java.util.concurrent.Executors
+import java.util.zip.ZipFile
 
 import spock.lang.Specification
 
@@ -42,9 +44,8 @@ class AsyncZipProcessorTest extends Specification {
 
 		when:
 		// Process the input zip asynchronously, converting all entries to uppercase
-		AsyncZipProcessor.processEntries(inputZip, outputZip) { Path inputEntry, Path outputEntry ->
-			def str = Files.readString(inputEntry)
-			Files.writeString(outputEntry, str.toUpperCase())
+		AsyncZipProcessor.processEntries(inputZip, outputZip) { String name, byte[] bytes ->
+			new String(bytes, StandardCharsets.UTF_8).toUpperCase().getBytes(StandardCharsets.UTF_8)
 		}
 
 		then:
@@ -53,6 +54,28 @@ class AsyncZipProcessorTest extends Specification {
 		ZipUtils.unpack(outputZip, "file800.txt") == "FILE800".bytes
 	}
 
+	def "process with executor"() {
+		given:
+		def inputZip = ZipTestUtils.createZip(createEntries(100))
+		def outputZip = ZipTestUtils.createZip(Collections.emptyMap())
+		Files.delete(outputZip)
+		def executor = Executors.newFixedThreadPool(2)
+
+		when:
+		AsyncZipProcessor.processEntries(inputZip, outputZip, executor) { String name, byte[] bytes ->
+			name.getBytes(StandardCharsets.UTF_8)
+		}
+		def names = new ZipFile(outputZip.toFile()).withCloseable { zipFile -> zipFile.entries().collect { it.name } }
+
+		then:
+		// Entries are written in the same order as the input
+		names == new ZipFile(inputZip.toFile()).withCloseable { zipFile -> zipFile.entries().collect { it.name } }
+		ZipUtils.unpack(outputZip, "file42.txt") == "file42.txt".bytes
+
+		cleanup:
+		executor.shutdown()
+	}
+
 	def "re throws"() {
 		given:
 		def inputZip = ZipTestUtils.createZip(createEntries())
@@ -60,7 +83,7 @@ class AsyncZipProcessorTest extends Specification {
 		Files.delete(outputZip)
 
 		when:
-		AsyncZipProcessor.processEntries(inputZip, outputZip) { Path inputEntry, Path outputEntry ->
+		AsyncZipProcessor.processEntries(inputZip, outputZip) { String name, byte[] bytes ->
 			throw new IOException("Test exception")
 		}
 
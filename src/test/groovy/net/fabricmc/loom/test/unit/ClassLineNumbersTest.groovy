@@ -46,6 +46,24 @@ class ClassLineNumbersTest extends Specification {
 		lineMap["net/minecraft/server/dedicated/ServerPropertiesLoader"].maxLineDest() == 30
 	}
 
+	def "line map"() {
+		when:
+		def lineMap = new ClassLineNumbers.LineMap.Builder()
+				.put(5, 1)
+				.put(3, 2)
+				.put(5, 9)
+				.build()
+
+		then:
+		// Sorted by key, the last put wins
+		lineMap == [3: 2, 5: 9]
+		lineMap.getInt(3, -1) == 2
+		lineMap.getInt(4, -1) == -1
+		lineMap.getAtOrAfter(4, 10, -1) == 9
+		lineMap.getAtOrAfter(4, 4, -1) == -1
+		lineMap.getAtOrAfter(6, 10, -1) == -1
+	}
+
 	private static final String LINE_MAP = """
 net/minecraft/server/dedicated/ServerPropertiesHandler\t203\t187
 \t48\t187
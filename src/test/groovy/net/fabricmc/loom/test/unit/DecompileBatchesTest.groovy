@@ -0,0 +1,104 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+
+import net.fabricmc.loom.decompilers.DecompileBatches
+import net.fabricmc.loom.test.util.ZipTestUtils
+import net.fabricmc.loom.util.ZipUtils
+
+class DecompileBatchesTest extends Specification {
+	def "split classes into batches"() {
+		given:
+		def jar = ZipTestUtils.createZipFromBytes([
+			"net/fabricmc/A.class": newClass("net/fabricmc/A"),
+			"net/fabricmc/B.class": newClass("net/fabricmc/B"),
+			"net/fabricmc/C.class": newClass("net/fabricmc/C"),
+			"net/fabricmc/C\$Inner.class": newInnerClass("net/fabricmc/C\$Inner", "net/fabricmc/C", "Inner"),
+			"net/fabricmc/D.class": newClass("net/fabricmc/D"),
+		])
+
+		when:
+		def batches = DecompileBatches.split(jar, 2)
+		def classes = batches.batches().collect { batch -> batch.classes()*.name() }
+		def jarContents = batches.batches().collect { batch ->
+			["net/fabricmc/A.class", "net/fabricmc/B.class", "net/fabricmc/C.class", "net/fabricmc/C\$Inner.class", "net/fabricmc/D.class"]
+					.findAll { ZipUtils.contains(batch.jar(), it) }
+		}
+
+		then:
+		batches.batches().size() == 2
+		classes.flatten().sort() == [
+			"net/fabricmc/A.class",
+			"net/fabricmc/B.class",
+			"net/fabricmc/C.class",
+			"net/fabricmc/D.class"
+		]
+		classes[0].size() == 2
+		classes[1].size() == 2
+
+		// The inner class is always in the same batch as its outer class
+		jarContents.find { it.contains("net/fabricmc/C.class") }.contains("net/fabricmc/C\$Inner.class")
+		jarContents.flatten().size() == 5
+
+		batches.otherJars(batches.batches()[0]) == [batches.batches()[1].jar()]
+
+		cleanup:
+		batches?.close()
+	}
+
+	def "more batches than classes"() {
+		given:
+		def jar = ZipTestUtils.createZipFromBytes([
+			"net/fabricmc/A.class": newClass("net/fabricmc/A"),
+		])
+
+		when:
+		def batches = DecompileBatches.split(jar, 4)
+
+		then:
+		batches.batches().size() == 1
+		batches.otherJars(batches.batches()[0]).isEmpty()
+
+		cleanup:
+		batches?.close()
+	}
+
+	private static byte[] newClass(String name) {
+		def writer = new ClassWriter(0)
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null)
+		return writer.toByteArray()
+	}
+
+	private static byte[] newInnerClass(String name, String outerClass, String innerName) {
+		def writer = new ClassWriter(0)
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null)
+		writer.visitInnerClass(name, outerClass, innerName, 0)
+		return writer.toByteArray()
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.zip.CRC32
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+
+import com.google.gson.JsonObject
+import org.slf4j.LoggerFactory
+import spock.lang.Specification
+
+import net.fabricmc.loom.build.nesting.JarNester
+import net.fabricmc.loom.util.ZipUtils
+
+class JarNesterTest extends Specification {
+	def "nest jars"() {
+		given:
+		def modJar = createModJar("mod")
+		def nestedJar = createModJar("nested")
+
+		when:
+		JarNester.nestJars([nestedJar.toFile()], modJar.toFile(), LoggerFactory.getLogger(JarNesterTest))
+
+		def json = ZipUtils.unpackGson(modJar, "fabric.mod.json", JsonObject.class)
+		def nestedBytes = Files.readAllBytes(nestedJar)
+		def crc = new CRC32()
+		crc.update(nestedBytes)
+
+		then:
+		json.get("id").asString == "mod"
+		json.getAsJsonArray("jars").size() == 1
+		json.getAsJsonArray("jars").get(0).asJsonObject.get("file").asString == "META-INF/jars/nested.jar"
+		ZipUtils.unpack(modJar, "META-INF/jars/nested.jar") == nestedBytes
+		ZipUtils.unpack(modJar, "test.txt") == "mod".bytes
+
+		new ZipFile(modJar.toFile()).withCloseable {
+			def entry = it.getEntry("META-INF/jars/nested.jar")
+			entry.method == ZipEntry.STORED && entry.crc == crc.value
+		}
+	}
+
+	def "nest same jar twice"() {
+		given:
+		def modJar = createModJar("mod")
+		def nestedJar = createModJar("nested")
+		JarNester.nestJars([nestedJar.toFile()], modJar.toFile(), LoggerFactory.getLogger(JarNesterTest))
+
+		when:
+		JarNester.nestJars([nestedJar.toFile()], modJar.toFile(), LoggerFactory.getLogger(JarNesterTest))
+
+		then:
+		def e = thrown(IllegalStateException)
+		e.message == "Cannot nest 2 jars at the same path: META-INF/jars/nested.jar"
+	}
+
+	private static Path createModJar(String id) {
+		def dir = Files.createTempDirectory("loom-nest-test")
+		def jar = Files.createTempDirectory("loom-nest-test").resolve(id + ".jar")
+		Files.writeString(dir.resolve("fabric.mod.json"), """{"schemaVersion": 1, "id": "${id}"}""")
+		Files.writeString(dir.resolve("test.txt"), id)
+		ZipUtils.pack(dir, jar)
+		return jar
+	}
+}
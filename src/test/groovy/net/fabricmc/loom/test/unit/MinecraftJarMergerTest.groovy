@@ -0,0 +1,124 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import spock.lang.Specification
+
+import net.fabricmc.loom.configuration.providers.minecraft.MinecraftJarMerger
+import net.fabricmc.loom.util.ZipUtils
+
+class MinecraftJarMergerTest extends Specification {
+	def "merge jars"() {
+		given:
+		def client = createJar([
+			"META-INF/MANIFEST.MF": "Manifest-Version: 1.0\n".bytes,
+			"META-INF/MOJANGCS.SF": "signature".bytes,
+			"net/minecraft/Common.class": createClass("net/minecraft/Common", "clientMethod"),
+			"net/minecraft/Client.class": createClass("net/minecraft/Client"),
+			"Same.class": createClass("Same", "method"),
+			"assets/test.txt": "client".bytes
+		])
+		def server = createJar([
+			"META-INF/MANIFEST.MF": "Manifest-Version: 1.0\n".bytes,
+			"net/minecraft/Common.class": createClass("net/minecraft/Common", "serverMethod"),
+			"net/minecraft/Server.class": createClass("net/minecraft/Server"),
+			"com/example/Library.class": createClass("com/example/Library"),
+			"Same.class": createClass("Same", "method"),
+			"assets/test.txt": "server".bytes,
+			"data/test.json": "{}".bytes
+		])
+		def output = Files.createTempDirectory("loom-merger-test").resolve("merged.jar")
+
+		when:
+		new MinecraftJarMerger(client.toFile(), server.toFile(), output.toFile()).withCloseable {
+			it.merge()
+		}
+
+		def names = new ZipFile(output.toFile()).withCloseable { zipFile -> zipFile.entries().findAll { !it.directory }.collect { it.name } }
+		def common = readClass(output, "net/minecraft/Common.class")
+
+		then:
+		names == [
+			"META-INF/MANIFEST.MF",
+			"Same.class",
+			"assets/test.txt",
+			"data/test.json",
+			"net/minecraft/Client.class",
+			"net/minecraft/Common.class",
+			"net/minecraft/Server.class"
+		]
+		new String(ZipUtils.unpack(output, "META-INF/MANIFEST.MF"), StandardCharsets.UTF_8).contains("Main-Class: net.minecraft.client.Main")
+		ZipUtils.unpack(output, "assets/test.txt") == "client".bytes
+		common.methods*.name.containsAll(["clientMethod", "serverMethod"])
+		readClass(output, "net/minecraft/Client.class").visibleAnnotations*.desc == ["Lnet/fabricmc/api/Environment;"]
+	}
+
+	private static byte[] createClass(String name, String... methods) {
+		def writer = new ClassWriter(0)
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null)
+
+		for (String method : methods) {
+			def visitor = writer.visitMethod(Opcodes.ACC_PUBLIC, method, "()V", null, null)
+			visitor.visitCode()
+			visitor.visitInsn(Opcodes.RETURN)
+			visitor.visitMaxs(0, 1)
+			visitor.visitEnd()
+		}
+
+		writer.visitEnd()
+		return writer.toByteArray()
+	}
+
+	private static Path createJar(Map<String, byte[]> entries) {
+		def jar = Files.createTempFile("loom-merger-test", ".jar")
+
+		new ZipOutputStream(Files.newOutputStream(jar)).withCloseable { zos ->
+			entries.each { name, data ->
+				zos.putNextEntry(new ZipEntry(name))
+				zos.write(data)
+				zos.closeEntry()
+			}
+		}
+
+		return jar
+	}
+
+	private static ClassNode readClass(Path jar, String name) {
+		def node = new ClassNode()
+		new ClassReader(ZipUtils.unpack(jar, name)).accept(node, 0)
+		return node
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.nio.file.Files
+import java.util.zip.CRC32
+import java.util.zip.ZipEntry
+import java.util.zip.ZipException
+import java.util.zip.ZipFile
+import java.util.zip.ZipInputStream
+import java.util.zip.ZipOutputStream
+
+import spock.lang.Specification
+
+import net.fabricmc.loom.util.RawZipFile
+import net.fabricmc.loom.util.RawZipWriter
+import net.fabricmc.loom.util.ZipUtils
+
+class RawZipWriterTest extends Specification {
+	def "copy raw entries"() {
+		given:
+		def input = Files.createTempFile("loom-raw-zip", ".zip")
+		def output = Files.createTempFile("loom-raw-zip", ".zip")
+		def stored = "stored data".bytes
+
+		// ZipOutputStream writes deflated entries with a data descriptor
+		new ZipOutputStream(Files.newOutputStream(input)).withCloseable { zos ->
+			zos.putNextEntry(new ZipEntry("a/b/c.txt"))
+			zos.write(("hello world " * 100).bytes)
+			zos.closeEntry()
+
+			def crc = new CRC32()
+			crc.update(stored)
+			def entry = new ZipEntry("stored.bin")
+			entry.method = ZipEntry.STORED
+			entry.size = stored.length
+			entry.crc = crc.value
+			zos.putNextEntry(entry)
+			zos.write(stored)
+			zos.closeEntry()
+
+			zos.putNextEntry(new ZipEntry("skipped.txt"))
+			zos.write("skipped".bytes)
+			zos.closeEntry()
+		}
+
+		when:
+		RawZipFile.open(input).withCloseable { zipFile ->
+			new RawZipWriter(output).withCloseable { writer ->
+				writer.putEntry("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n".bytes)
+				writer.copyEntries(zipFile, { it != "skipped.txt" })
+			}
+		}
+
+		def entries = new ZipFile(output.toFile()).withCloseable { zipFile -> zipFile.entries().collectEntries { [it.name, it.method] } }
+		def streamed = new ZipInputStream(Files.newInputStream(output)).withCloseable { zis ->
+			def names = []
+			def entry
+
+			while ((entry = zis.nextEntry) != null) {
+				zis.readAllBytes()
+				names << entry.name
+			}
+
+			return names
+		}
+
+		then:
+		entries == [
+			"META-INF/": ZipEntry.STORED,
+			"META-INF/MANIFEST.MF": ZipEntry.DEFLATED,
+			"a/": ZipEntry.STORED,
+			"a/b/": ZipEntry.STORED,
+			"a/b/c.txt": ZipEntry.DEFLATED,
+			"stored.bin": ZipEntry.STORED
+		]
+		streamed == entries.keySet() as List
+		ZipUtils.unpack(output, "a/b/c.txt") == ("hello world " * 100).bytes
+		ZipUtils.unpack(output, "stored.bin") == stored
+		ZipUtils.unpack(output, "META-INF/MANIFEST.MF") == "Manifest-Version: 1.0\n".bytes
+	}
+
+	def "append to a copy"() {
+		given:
+		def input = Files.createTempFile("loom-raw-zip", ".zip")
+		def output = Files.createTempFile("loom-raw-zip", ".zip")
+
+		new ZipOutputStream(Files.newOutputStream(input)).withCloseable { zos ->
+			zos.setComment("archive comment")
+			zos.putNextEntry(new ZipEntry("a.txt"))
+			zos.write("hello world".bytes)
+			zos.closeEntry()
+		}
+
+		def original = Files.readAllBytes(input)
+
+		when:
+		RawZipWriter.append(input, output).withCloseable { writer ->
+			writer.putEntry("b/c.txt", "appended".bytes)
+		}
+
+		def names = new ZipFile(output.toFile()).withCloseable { zipFile -> zipFile.entries().collect { it.name } }
+		def comment = new ZipFile(output.toFile()).withCloseable { it.comment }
+
+		then:
+		Files.readAllBytes(input) == original
+		names == ["a.txt", "b/", "b/c.txt"]
+		comment == "archive comment"
+		ZipUtils.unpack(output, "a.txt") == "hello world".bytes
+		ZipUtils.unpack(output, "b/c.txt") == "appended".bytes
+	}
+
+	def "duplicate entry"() {
+		given:
+		def output = Files.createTempFile("loom-raw-zip", ".zip")
+
+		when:
+		new RawZipWriter(output).withCloseable { writer ->
+			writer.putEntry("test.txt", "a".bytes)
+			writer.putEntry("test.txt", "b".bytes)
+		}
+
+		then:
+		def e = thrown(ZipException)
+		e.message == "duplicate entry: test.txt"
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.util.zip.ZipFile
+
+import com.google.gson.JsonObject
+import org.gradle.api.tasks.bundling.ZipEntryCompression
+import spock.lang.Specification
+
+import net.fabricmc.loom.util.ZipAssembler
+import net.fabricmc.loom.util.ZipReprocessorUtil
+import net.fabricmc.loom.util.ZipUtils
+
+class ZipAssemblerTest extends Specification {
+	def "assemble"() {
+		given:
+		def dir = Files.createTempDirectory("loom-zip-test")
+		def zip = Files.createTempFile("loom-zip-test", ".zip")
+		def output = Files.createTempFile("loom-zip-test", ".zip")
+		def nested = Files.createTempFile("loom-zip-test", ".jar")
+		Files.createDirectories(dir.resolve("a/b"))
+		Files.writeString(dir.resolve("a/b/c.txt"), "hello world")
+		Files.writeString(dir.resolve("test.json"), '{"test": 1}')
+		Files.writeString(nested, "nested")
+		ZipUtils.pack(dir, zip)
+
+		when:
+		def assembler = new ZipAssembler()
+		assembler.putZipEntries(zip, { true })
+		assembler.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n".bytes)
+		assembler.putFile("META-INF/jars/nested.jar", nested)
+
+		def transformed = assembler.transform("a/b/c.txt", { new String(it, StandardCharsets.UTF_8).toUpperCase().bytes })
+		assembler.transform("a/b/c.txt", { (new String(it, StandardCharsets.UTF_8) + "!").bytes })
+		def missing = assembler.transform("missing.txt", { it })
+		assembler.transformJson(JsonObject.class, "test.json", {
+			it.addProperty("added", true)
+			return it
+		})
+
+		def read = new String(assembler.read("a/b/c.txt"), StandardCharsets.UTF_8)
+		assembler.write(output, true, false, ZipEntryCompression.DEFLATED)
+		assembler.close()
+
+		def names = new ZipFile(output.toFile()).withCloseable { zipFile -> zipFile.entries().collect { it.name } }
+
+		then:
+		transformed
+		!missing
+		read == "HELLO WORLD!"
+		ZipUtils.unpack(output, "a/b/c.txt") == "HELLO WORLD!".bytes
+		ZipUtils.unpackGson(output, "test.json", JsonObject.class).get("added").asBoolean
+		ZipUtils.unpack(output, "META-INF/jars/nested.jar") == "nested".bytes
+		names == [
+			"META-INF/MANIFEST.MF",
+			"META-INF/",
+			"META-INF/jars/",
+			"META-INF/jars/nested.jar",
+			"a/",
+			"a/b/",
+			"a/b/c.txt",
+			"test.json"
+		]
+	}
+
+	def "matches reprocessed zip"() {
+		given:
+		def dir = Files.createTempDirectory("loom-zip-test")
+		def zip = Files.createTempFile("loom-zip-test", ".zip")
+		def output = Files.createTempFile("loom-zip-test", ".zip")
+		Files.createDirectories(dir.resolve("META-INF"))
+		Files.createDirectories(dir.resolve("a/b"))
+		Files.writeString(dir.resolve("META-INF/MANIFEST.MF"), "Manifest-Version: 1.0\r\n")
+		Files.writeString(dir.resolve("a/b/c.txt"), "hello world")
+		Files.writeString(dir.resolve("z.txt"), "last")
+		ZipUtils.pack(dir, zip)
+
+		when:
+		new ZipAssembler().withCloseable {
+			it.putZipEntries(zip, { true })
+			it.write(output, true, false, compression)
+		}
+
+		ZipReprocessorUtil.reprocessZip(zip, true, false, compression)
+
+		then:
+		Files.readAllBytes(output) == Files.readAllBytes(zip)
+
+		where:
+		compression                  | _
+		ZipEntryCompression.DEFLATED | _
+		ZipEntryCompression.STORED   | _
+	}
+}
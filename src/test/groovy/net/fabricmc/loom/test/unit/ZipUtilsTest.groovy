@@ -27,6 +27,9 @@ package net.fabricmc.loom.test.unit
 import java.nio.charset.StandardCharsets
 import java.nio.file.Files
 import java.time.ZoneId
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
 
 import com.google.gson.JsonObject
 import org.gradle.api.tasks.bundling.ZipEntryCompression
@@ -180,7 +183,7 @@ class ZipUtilsTest extends Specification {
 		then:
 		ZipUtils.unpack(zip, "text.txt") == "hello world".bytes
 		ZipUtils.unpack(zip, "fabric.mod.json") == "Some text".bytes
-		Checksum.sha1Hex(zip) == "1b06cc0aaa65ab2b0d423fe33431ff5bd14bf9c8"
+		Checksum.sha1Hex(zip) == "e1ccfa1d1845055ae6a5541eb6193d6400bf851e"
 
 		where:
 		timezone 			| _
@@ -192,6 +195,121 @@ class ZipUtilsTest extends Specification {
 		"Etc/GMT+9" 		| _
 	}
 
+	def "append existing zip entry"() {
+		given:
+		def dir = Files.createTempDirectory("loom-zip-test")
+		def zip = Files.createTempFile("loom-zip-test", ".zip")
+		Files.writeString(dir.resolve("text.txt"), "hello world")
+		ZipUtils.pack(dir, zip)
+		def hash = Checksum.sha1Hex(zip)
+
+		when:
+		ZipReprocessorUtil.appendZipEntry(zip, "text.txt", "Some text".getBytes(StandardCharsets.UTF_8))
+
+		then:
+		thrown(IllegalArgumentException)
+		// The zip is left as it was
+		Checksum.sha1Hex(zip) == hash
+	}
+
+	def "reprocess matches zip output stream"() {
+		given:
+		def zip = Files.createTempFile("loom-zip-test", ".zip")
+		def expected = Files.createTempFile("loom-zip-test", ".zip")
+		def random = new Random(42)
+		def entries = (0..<50).collectEntries { i ->
+			// Some entries are large enough to be streamed instead of compressed in memory
+			def data = new byte[i % 10 == 0 ? 3_000_000 : random.nextInt(100_000)]
+
+			if (i % 2 == 0) {
+				random.nextBytes(data)
+			} else {
+				Arrays.fill(data, (byte) i)
+			}
+
+			["dir${i % 4}/file${i}.bin".toString(), data]
+		}
+
+		new ZipOutputStream(Files.newOutputStream(zip)).withCloseable { zos ->
+			entries.each { name, data ->
+				zos.putNextEntry(new ZipEntry(name))
+				zos.write(data)
+				zos.closeEntry()
+			}
+		}
+
+		// What a sequential ZipOutputStream writes for the sorted entries with constant timestamps
+		new ZipOutputStream(Files.newOutputStream(expected)).withCloseable { zos ->
+			entries.sort().each { name, data ->
+				def entry = new ZipEntry(name)
+				entry.setTime(new GregorianCalendar(1980, Calendar.JANUARY, 1, 0, 0, 0).getTimeInMillis())
+				zos.putNextEntry(entry)
+				zos.write(data)
+				zos.closeEntry()
+			}
+		}
+
+		when:
+		ZipReprocessorUtil.reprocessZip(zip, true, false)
+
+		then:
+		Checksum.sha1Hex(zip) == Checksum.sha1Hex(expected)
+	}
+
+	def "reprocess more than 65535 entries"() {
+		given:
+		def zip = Files.createTempFile("loom-zip-test", ".zip")
+		def expected = Files.createTempFile("loom-zip-test", ".zip")
+		def names = (0..<70_000).collect { String.format(Locale.ROOT, "file%05d.txt", it) }
+
+		new ZipOutputStream(Files.newOutputStream(zip)).withCloseable { zos ->
+			names.reverseEach { name ->
+				zos.putNextEntry(new ZipEntry(name))
+				zos.write(name.bytes)
+				zos.closeEntry()
+			}
+		}
+
+		// A ZipOutputStream writes the Zip64 end of central directory for this many entries
+		new ZipOutputStream(Files.newOutputStream(expected)).withCloseable { zos ->
+			names.each { name ->
+				def entry = new ZipEntry(name)
+				entry.setTime(new GregorianCalendar(1980, Calendar.JANUARY, 1, 0, 0, 0).getTimeInMillis())
+				zos.putNextEntry(entry)
+				zos.write(name.bytes)
+				zos.closeEntry()
+			}
+		}
+
+		when:
+		ZipReprocessorUtil.reprocessZip(zip, true, false)
+
+		then:
+		Checksum.sha1Hex(zip) == Checksum.sha1Hex(expected)
+		new ZipFile(zip.toFile()).withCloseable { it.size() } == 70_000
+		ZipUtils.unpack(zip, "file69999.txt") == "file69999.txt".bytes
+	}
+
+	def "append zip entry to zip64"() {
+		given:
+		def zip = Files.createTempFile("loom-zip-test", ".zip")
+
+		new ZipOutputStream(Files.newOutputStream(zip)).withCloseable { zos ->
+			(0..<70_000).each {
+				zos.putNextEntry(new ZipEntry("file${it}.txt"))
+				zos.closeEntry()
+			}
+		}
+
+		when:
+		ZipReprocessorUtil.appendZipEntry(zip, "fabric.mod.json", "Some text".getBytes(StandardCharsets.UTF_8))
+
+		then:
+		new ZipFile(zip.toFile()).withCloseable { it.size() } == 70_001
+		ZipUtils.unpack(zip, "fabric.mod.json") == "Some text".bytes
+		Files.notExists(zip.resolveSibling(zip.fileName.toString() + ".tmp"))
+	}
+
 	def "transform json"() {
 		given:
 		def dir = File.createTempDir()
@@ -216,6 +334,36 @@ class ZipUtilsTest extends Specification {
 		transformed.get("test").asString == "THIS IS A TEST OF TRANSFORMING"
 	}
 
+	def "transform shared file system"() {
+		given:
+		def dir = File.createTempDir()
+		def zip = File.createTempFile("loom-zip-test", ".zip").toPath()
+		new File(dir, "test.json").text = """{"jars": []}"""
+		new File(dir, "test.txt").text = "This has not been replaced"
+		ZipUtils.pack(dir.toPath(), zip)
+		def lastModified = Files.getLastModifiedTime(zip)
+
+		when:
+		def outer = FileSystemUtil.getJarFileSystem(zip, false)
+
+		// Edits made through a second reference are only written when the last reference is closed
+		FileSystemUtil.getJarFileSystem(zip, false).withCloseable { fs ->
+			ZipUtils.replace(fs, "test.txt", "This has been replaced".bytes)
+			ZipUtils.transformJson(JsonObject.class, fs, ["test.json": { JsonObject json ->
+					json.remove("jars")
+					json
+				} as ZipUtils.UnsafeUnaryOperator<JsonObject>])
+		}
+
+		def unchangedBeforeClose = Files.getLastModifiedTime(zip) == lastModified
+		outer.close()
+
+		then:
+		unchangedBeforeClose
+		new String(ZipUtils.unpack(zip, "test.txt"), StandardCharsets.UTF_8) == "This has been replaced"
+		!ZipUtils.unpackJson(zip, "test.json", JsonObject.class).has("jars")
+	}
+
 	// Also see: ClosedZipFSReproducer
 	def "unrecoverable error"() {
 		given:
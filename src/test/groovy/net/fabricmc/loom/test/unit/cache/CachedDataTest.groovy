@@ -59,4 +59,61 @@ class CachedDataTest extends Specification {
 		then:
 		cachedData == readCachedData
 	}
+
+	def "Read + Write compressed sources"() {
+		given:
+		def sources = "public class TestClass {\n" + "\tpublic void method() {\n\t}\n" * 100 + "}\n"
+		def cachedData = new CachedData("net/test/TestClass", sources, null)
+		def compressedPath = testPath.resolve("compressed.bin")
+		def uncompressedPath = testPath.resolve("uncompressed.bin")
+		when:
+		FileChannel.open(compressedPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE).withCloseable {
+			cachedData.write(it, true)
+		}
+		FileChannel.open(uncompressedPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE).withCloseable {
+			cachedData.write(it, false)
+		}
+
+		def readCompressed = Files.newInputStream(compressedPath).withCloseable {
+			return CachedData.read(it)
+		}
+		def readUncompressed = Files.newInputStream(uncompressedPath).withCloseable {
+			return CachedData.read(it)
+		}
+
+		then:
+		readCompressed == cachedData
+		readUncompressed == cachedData
+		Files.size(compressedPath) < Files.size(uncompressedPath)
+	}
+
+	def "Read legacy text line numbers"() {
+		given:
+		def lineNumberEntry = new ClassLineNumbers.Entry("net/test/TestClass", 1, 2, [1: 2, 4: 7])
+		def lineNumbersText = new StringWriter().withCloseable {
+			lineNumberEntry.write(it)
+			return it.toString().bytes
+		}
+
+		def chunks = new ByteArrayOutputStream()
+		def out = new DataOutputStream(chunks)
+		writeChunk(out, "NAME", "net/test/TestClass".bytes)
+		writeChunk(out, "SRC ", "Example sources".bytes)
+		writeChunk(out, "LNUM", lineNumbersText)
+
+		def data = new ByteArrayOutputStream()
+		writeChunk(new DataOutputStream(data), "LOOM", chunks.toByteArray())
+
+		when:
+		def readCachedData = CachedData.read(new ByteArrayInputStream(data.toByteArray()))
+
+		then:
+		readCachedData == new CachedData("net/test/TestClass", "Example sources", lineNumberEntry)
+	}
+
+	private static void writeChunk(DataOutputStream out, String id, byte[] data) {
+		out.write(id.bytes)
+		out.writeInt(data.length)
+		out.write(data)
+	}
 }
@@ -36,9 +36,11 @@ import spock.lang.TempDir
 import net.fabricmc.loom.decompilers.ClassLineNumbers
 import net.fabricmc.loom.decompilers.cache.CachedData
 import net.fabricmc.loom.decompilers.cache.CachedFileStore
-import net.fabricmc.loom.decompilers.cache.CachedFileStoreImpl
 import net.fabricmc.loom.decompilers.cache.CachedJarProcessor
+import net.fabricmc.loom.decompilers.cache.ClassHashing
+import net.fabricmc.loom.decompilers.cache.IndexedCachedFileStore
 import net.fabricmc.loom.test.util.ZipTestUtils
+import net.fabricmc.loom.util.CacheRules
 import net.fabricmc.loom.util.ZipUtils
 
 class CachedJarProcessorTest extends Specification {
@@ -49,8 +51,8 @@ class CachedJarProcessorTest extends Specification {
 		"net/fabricmc/other/Test\$1.class": newInnerClass("net/fabricmc/other/Test\$1", "net/fabricmc/other/Test"),
 	]
 
-	static String ExampleHash = "abc123/db5c3a2d04e0c6ea03aef0d217517aa0233f9b8198753d3c96574fe5825a13c4"
-	static String TestHash = "abc123/b49f74dc50847f8fefc0c6f850326bbe39ace0b381b827fe1a1f1ed1dea81330"
+	static String ExampleHash = "abc123/murmur3/a6d37d4ad3dce2d2c634b6416c621c82"
+	static String TestHash = "abc123/murmur3/aab2bed3a1fd83a1e4004e37e94dc2d0"
 
 	static CachedData ExampleCachedData = new CachedData("net/fabricmc/Example", "Example sources", lineNumber("net/fabricmc/Example"))
 	static CachedData TestCachedData = new CachedData("net/fabricmc/other/Test", "Test sources", lineNumber("net/fabricmc/other/Test"))
@@ -133,6 +135,25 @@ class CachedJarProcessorTest extends Specification {
 		0 * _ // Strict mock
 	}
 
+	def "prepare job with sha256 hashing"() {
+		given:
+		def jar = ZipTestUtils.createZipFromBytes(jarEntries)
+		def cache = Mock(CachedFileStore)
+		def processor = new CachedJarProcessor(cache, "abc123", ClassHashing.SHA256)
+
+		when:
+		def workRequest = processor.prepareJob(jar)
+
+		then:
+		workRequest.job() instanceof CachedJarProcessor.CompletedWorkJob
+
+		// The hashing id is part of the key, so entries from another hashing are never used
+		1 * cache.getEntry("abc123/sha256/db5c3a2d04e0c6ea03aef0d217517aa0233f9b8198753d3c96574fe5825a13c4") >> ExampleCachedData
+		1 * cache.getEntry("abc123/sha256/b49f74dc50847f8fefc0c6f850326bbe39ace0b381b827fe1a1f1ed1dea81330") >> TestCachedData
+
+		0 * _ // Strict mock
+	}
+
 	def "complete full work job"() {
 		given:
 		def jar = ZipTestUtils.createZipFromBytes(jarEntries)
@@ -261,7 +282,7 @@ class CachedJarProcessorTest extends Specification {
 				]
 				)
 
-		def cache = new CachedFileStoreImpl<>(testPath.resolve("cache"), CachedData.SERIALIZER, new CachedFileStoreImpl.CacheRules(50_000, Duration.ofDays(90)))
+		def cache = IndexedCachedFileStore.open(testPath.resolve("cache.bin"), CachedData.SERIALIZER, new CacheRules(50_000, Duration.ofDays(90)))
 		def processor = new CachedJarProcessor(cache, "abc123")
 
 		when:
@@ -285,6 +306,7 @@ class CachedJarProcessorTest extends Specification {
 
 		workRequest = processor.prepareJob(jar2)
 		def newWorkJob = workRequest.job()
+		cache.close()
 
 		then:
 		newWorkJob instanceof CachedJarProcessor.FullWorkJob
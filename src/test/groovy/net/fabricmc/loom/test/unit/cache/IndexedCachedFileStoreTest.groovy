@@ -0,0 +1,445 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit.cache
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+
+import org.slf4j.LoggerFactory
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import net.fabricmc.loom.decompilers.cache.CachedFileStore
+import net.fabricmc.loom.decompilers.cache.IndexedCachedFileStore
+import net.fabricmc.loom.util.CacheRules
+
+class IndexedCachedFileStoreTest extends Specification {
+	@TempDir
+	Path testPath
+
+	def "putEntry + getEntry"() {
+		given:
+		def cacheRules = new CacheRules(100, Duration.ofDays(7))
+		def store = IndexedCachedFileStore.open(testPath.resolve("cache.bin"), BYTE_ARRAY_SERIALIZER, cacheRules)
+		when:
+		store.putEntry("abc", "Hello world".bytes)
+		def entry = store.getEntry("abc")
+		def unknownEntry = store.getEntry("123")
+		store.close()
+		then:
+		entry == "Hello world".bytes
+		unknownEntry == null
+	}
+
+	def "replace entry"() {
+		given:
+		def cacheRules = new CacheRules(100, Duration.ofDays(7))
+		def store = IndexedCachedFileStore.open(testPath.resolve("cache.bin"), BYTE_ARRAY_SERIALIZER, cacheRules)
+		when:
+		store.putEntry("abc", "Hello world".bytes)
+		store.putEntry("abc", "Hello again".bytes)
+		def entry = store.getEntry("abc")
+		store.close()
+		then:
+		entry == "Hello again".bytes
+	}
+
+	def "reopen"() {
+		given:
+		def cacheRules = new CacheRules(100_000, Duration.ofDays(7))
+		def cacheFile = testPath.resolve("cache.bin")
+		when:
+		// Enough entries to require the index to grow
+		IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules).withCloseable { store ->
+			for (i in 0..<10_000) {
+				store.putEntry("test_" + i, ("Hello world " + i).bytes)
+			}
+		}
+
+		def store = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+		def first = store.getEntry("test_0")
+		def last = store.getEntry("test_9999")
+		def unknown = store.getEntry("test_10000")
+		store.close()
+		then:
+		first == "Hello world 0".bytes
+		last == "Hello world 9999".bytes
+		unknown == null
+	}
+
+	def "invalid index resets cache"() {
+		given:
+		def cacheRules = new CacheRules(100, Duration.ofDays(7))
+		def cacheFile = testPath.resolve("cache.bin")
+		IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules).withCloseable { store ->
+			store.putEntry("abc", "Hello world".bytes)
+		}
+		when:
+		Files.write(IndexedCachedFileStore.getIndexPath(cacheFile), "Not an index".bytes)
+		def store = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+		def entry = store.getEntry("abc")
+		store.close()
+		then:
+		entry == null
+		Files.size(cacheFile) == 0
+	}
+
+	def "pruneManyFiles"() {
+		given:
+		def cacheRules = new CacheRules(200, Duration.ofDays(7))
+		def cacheFile = testPath.resolve("cache.bin")
+		def store = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+		when:
+		for (i in 0..<500) {
+			store.putEntry("test_" + i, "Hello world".bytes)
+		}
+
+		// Access the first entries again, so they are the most recently used
+		Thread.sleep(10)
+
+		for (i in 0..<200) {
+			store.getEntry("test_" + i)
+		}
+
+		store.prune()
+
+		def results = [
+			store.getEntry("test_0"),
+			store.getEntry("test_100"),
+			store.getEntry("test_300"),
+			store.getEntry("test_499")
+		]
+		store.close()
+
+		then:
+		results[0] == "Hello world".bytes
+		results[1] == "Hello world".bytes
+		results[2] == null
+		results[3] == null
+	}
+
+	def "prune by size"() {
+		given:
+		// Each record is the key length, the key and the entry, 111 bytes for these entries
+		def cacheRules = new CacheRules(1000, 1200, Duration.ofDays(7))
+		def cacheFile = testPath.resolve("cache.bin")
+		def store = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+		def data = new byte[100]
+		when:
+		for (i in 10..<100) {
+			store.putEntry("test_" + i, data)
+		}
+
+		Thread.sleep(10)
+
+		for (i in 90..<100) {
+			store.getEntry("test_" + i)
+		}
+
+		store.prune()
+
+		def retained = (10..<100).findAll { store.getEntry("test_" + it) != null }
+		store.close()
+
+		then:
+		retained == (90..<100).toList()
+		Files.size(cacheFile) == 1110
+	}
+
+	def "prune expired entries"() {
+		given:
+		def cacheRules = new CacheRules(1000, Duration.ofMillis(500))
+		def cacheFile = testPath.resolve("cache.bin")
+		def store = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+		when:
+		store.putEntry("old", "Hello world".bytes)
+		Thread.sleep(1000)
+		store.putEntry("new", "Hello again".bytes)
+		store.prune()
+
+		def old = store.getEntry("old")
+		def entry = store.getEntry("new")
+		store.close()
+
+		then:
+		old == null
+		entry == "Hello again".bytes
+	}
+
+	def "shared between stores"() {
+		given:
+		def cacheRules = new CacheRules(100_000, Duration.ofDays(7))
+		def cacheFile = testPath.resolve("cache.bin")
+		def store1 = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+		def store2 = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+		when:
+		// Write to both stores at the same time, with enough entries for the index to grow
+		def threads = [store1, store2].withIndex().collect { store, index ->
+			Thread.start {
+				for (i in 0..<5_000) {
+					store.putEntry("test_${index}_${i}", "Hello world ${i}".bytes)
+				}
+			}
+		}
+		threads*.join()
+
+		def fromOther = store1.getEntry("test_1_4999")
+		def fromSelf = store2.getEntry("test_1_0")
+		store1.close()
+		store2.close()
+		then:
+		fromOther == "Hello world 4999".bytes
+		fromSelf == "Hello world 0".bytes
+	}
+
+	def "lock-free reads while another store compacts"() {
+		given:
+		def cacheRules = new CacheRules(100_000, Duration.ofDays(7))
+		def cacheFile = testPath.resolve("cache.bin")
+		def writer = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+		def reader = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+
+		for (i in 0..<1_000) {
+			writer.putEntry("keep_" + i, "Hello world ${i}".bytes)
+		}
+
+		when:
+		// Replacing entries leaves stale records behind, so each prune moves the retained records while they are being read
+		def writerThread = Thread.start {
+			for (round in 0..<20) {
+				for (i in 0..<200) {
+					writer.putEntry("churn_" + i, "Round ${round}".bytes)
+				}
+
+				writer.prune()
+			}
+		}
+
+		def mismatches = 0
+
+		while (writerThread.alive) {
+			for (i in 0..<1_000) {
+				if (reader.getEntry("keep_" + i) != "Hello world ${i}".bytes) {
+					mismatches++
+				}
+			}
+		}
+
+		writerThread.join()
+		def churned = reader.getEntry("churn_199")
+		writer.close()
+		reader.close()
+
+		then:
+		mismatches == 0
+		churned == "Round 19".bytes
+	}
+
+	def "data file truncated by another process"() {
+		given:
+		def cacheRules = new CacheRules(100, Duration.ofDays(7))
+		def cacheFile = testPath.resolve("cache.bin")
+		def store = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+
+		for (i in 0..<10) {
+			store.putEntry("test_" + i, "Hello world".bytes)
+		}
+
+		when:
+		FileChannel.open(cacheFile, StandardOpenOption.WRITE).withCloseable {
+			it.truncate(16)
+		}
+
+		store.getEntry("test_9")
+
+		then:
+		// Fails cleanly rather than faulting on a mapped read
+		thrown IOException
+
+		when:
+		store.close()
+		store = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+		def entry = store.getEntry("test_9")
+		store.close()
+
+		then:
+		// The index no longer matches the data file, so the cache is reset
+		entry == null
+	}
+
+	def "shared with another process"() {
+		given:
+		def cacheRules = new CacheRules(100_000, Duration.ofDays(7))
+		def cacheFile = testPath.resolve("cache.bin")
+		def store = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+
+		for (i in 0..<1_000) {
+			store.putEntry("parent_" + i, "Hello world ${i}".bytes)
+		}
+
+		def classpath = [IndexedCachedFileStore, IndexedCachedFileStoreWriter, LoggerFactory].collect {
+			Path.of(it.protectionDomain.codeSource.location.toURI()).toString()
+		}.join(File.pathSeparator)
+
+		def command = [
+			Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+			"-cp",
+			classpath,
+			IndexedCachedFileStoreWriter.name,
+			cacheFile.toString(),
+			"child_",
+			"5000"
+		]
+
+		when:
+		def process = new ProcessBuilder(command).inheritIO().start()
+
+		// Both processes write under the file lock, while this one also reads without it
+		def mismatches = 0
+		def written = 0
+
+		while (written == 0 || process.alive) {
+			store.putEntry("concurrent_" + written, "Hello world ${written}".bytes)
+			written++
+
+			for (i in 0..<1_000) {
+				if (store.getEntry("parent_" + i) != "Hello world ${i}".bytes) {
+					mismatches++
+				}
+			}
+		}
+
+		def exited = process.waitFor(1, TimeUnit.MINUTES)
+		def fromChild = store.getEntry("child_4999")
+		def concurrent = store.getEntry("concurrent_" + (written - 1))
+		store.close()
+
+		then:
+		exited
+		process.exitValue() == 0
+		mismatches == 0
+		fromChild == "Hello world 4999".bytes
+		concurrent == "Hello world ${written - 1}".bytes
+	}
+
+	def "interrupted write resets cache"() {
+		given:
+		def cacheRules = new CacheRules(100, Duration.ofDays(7))
+		def cacheFile = testPath.resolve("cache.bin")
+		IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules).withCloseable { store ->
+			store.putEntry("abc", "Hello world".bytes)
+		}
+
+		when:
+		// Leave an odd generation behind, as a writer killed between starting and finishing a change would
+		FileChannel.open(IndexedCachedFileStore.getIndexPath(cacheFile), StandardOpenOption.WRITE).withCloseable {
+			it.write(ByteBuffer.allocate(Long.BYTES).putLong(7).flip(), 24)
+		}
+
+		def store = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+		def entry = store.getEntry("abc")
+		store.putEntry("def", "Hello again".bytes)
+		def newEntry = store.getEntry("def")
+		store.close()
+
+		then:
+		entry == null
+		newEntry == "Hello again".bytes
+	}
+
+	def "waits for a lock held by another class loader"() {
+		given:
+		def cacheRules = new CacheRules(100, Duration.ofDays(7))
+		def cacheFile = testPath.resolve("cache.bin")
+		def store = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+		// A separate channel in the same JVM, as a store loaded by another class loader would have
+		def otherChannel = FileChannel.open(cacheFile.resolveSibling("cache.bin.lock"), StandardOpenOption.WRITE)
+		def otherLock = otherChannel.lock()
+
+		when:
+		def releaseThread = Thread.start {
+			Thread.sleep(200)
+			otherLock.release()
+		}
+
+		store.putEntry("abc", "Hello world".bytes)
+		releaseThread.join()
+		def entry = store.getEntry("abc")
+		store.close()
+		otherChannel.close()
+
+		then:
+		entry == "Hello world".bytes
+	}
+
+	def "prune without changes does not rewrite"() {
+		given:
+		def cacheRules = new CacheRules(1000, Duration.ofDays(7))
+		def cacheFile = testPath.resolve("cache.bin")
+		def store = IndexedCachedFileStore.open(cacheFile, BYTE_ARRAY_SERIALIZER, cacheRules)
+		when:
+		for (i in 0..<500) {
+			store.putEntry("test_" + i, "Hello world".bytes)
+		}
+
+		def lastModified = Files.getLastModifiedTime(cacheFile)
+		Thread.sleep(10)
+		store.prune()
+		store.close()
+
+		then:
+		Files.getLastModifiedTime(cacheFile) == lastModified
+	}
+
+	private static CachedFileStore.BufferEntrySerializer<byte[]> BYTE_ARRAY_SERIALIZER = new CachedFileStore.BufferEntrySerializer<byte[]>() {
+		@Override
+		byte[] read(ByteBuffer buffer) throws IOException {
+			byte[] bytes = new byte[buffer.remaining()]
+			buffer.get(bytes)
+			return bytes
+		}
+
+		@Override
+		void write(byte[] entry, FileChannel fileChannel) throws IOException {
+			fileChannel.write(ByteBuffer.wrap(entry))
+		}
+
+		@Override
+		byte[] read(Path path) throws IOException {
+			return Files.readAllBytes(path)
+		}
+
+		@Override
+		void write(byte[] entry, Path path) throws IOException {
+			Files.write(path, entry)
+		}
+	}
+}
@@ -28,6 +28,7 @@ import org.objectweb.asm.ClassWriter
 import org.objectweb.asm.Opcodes
 import spock.lang.Specification
 
+import net.fabricmc.loom.decompilers.cache.ClassHashing
 import net.fabricmc.loom.decompilers.cache.JarWalker
 import net.fabricmc.loom.test.util.ZipTestUtils
 import net.fabricmc.loom.util.FileSystemUtil
@@ -68,23 +69,26 @@ class JarWalkerTest extends Specification {
 		when:
 		def entries = JarWalker.findClasses(jar)
 		def hash = FileSystemUtil.getJarFileSystem(jar).withCloseable { fs ->
-			return entries[0].hash(fs.root)
+			return entries[0].hash(fs.root, hashing).toString()
 		}
 		then:
 		entries.size() == 1
 		hash == expectedHash
 		where:
-		expectedHash | zipEntries
-		"b055df8d9503b60050f6d0db387c84c47fedb4d9ed82c4f8174b4e465a9c479b" | [
+		hashing                  | expectedHash | zipEntries
+		ClassHashing.SHA256      | "b055df8d9503b60050f6d0db387c84c47fedb4d9ed82c4f8174b4e465a9c479b" | [
 			"net/fabricmc/Test.class": newClass("net/fabricmc/Test"),
 		]
-		"b49f74dc50847f8fefc0c6f850326bbe39ace0b381b827fe1a1f1ed1dea81330" | [
+		ClassHashing.MURMUR3_128 | "f249315bec401632617f998d3c60e4ba" | [
+			"net/fabricmc/Test.class": newClass("net/fabricmc/Test"),
+		]
+		ClassHashing.SHA256      | "b49f74dc50847f8fefc0c6f850326bbe39ace0b381b827fe1a1f1ed1dea81330" | [
 			"net/fabricmc/other/Test.class": newClass("net/fabricmc/other/Test"),
 			"net/fabricmc/other/Test\$Inner.class": newInnerClass("net/fabricmc/other/Test\$Inner", "net/fabricmc/other/Test", "Inner"),
 			"net/fabricmc/other/Test\$Inner\$2.class": newInnerClass("net/fabricmc/other/Test\$Inner\$2", "net/fabricmc/other/Test\$Inner", "Inner"),
 			"net/fabricmc/other/Test\$1.class": newInnerClass("net/fabricmc/other/Test\$1", "net/fabricmc/other/Test"),
 		]
-		"b49f74dc50847f8fefc0c6f850326bbe39ace0b381b827fe1a1f1ed1dea81330" | [
+		ClassHashing.SHA256      | "b49f74dc50847f8fefc0c6f850326bbe39ace0b381b827fe1a1f1ed1dea81330" | [
 			"net/fabricmc/other/Test.class": newClass("net/fabricmc/other/Test"),
 			"net/fabricmc/other/Test\$Inner.class": newInnerClass("net/fabricmc/other/Test\$Inner", "net/fabricmc/other/Test", "Inner"),
 			"net/fabricmc/other/Test\$Inner\$2.class": newInnerClass("net/fabricmc/other/Test\$Inner\$2", "net/fabricmc/other/Test\$Inner", "Inner"),
@@ -24,8 +24,10 @@
 
 package net.fabricmc.loom.test.unit.download
 
+import java.nio.channels.FileChannel
 import java.nio.file.Files
 import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
 import java.nio.file.attribute.FileTime
 import java.time.Duration
 import java.time.Instant
@@ -33,6 +35,7 @@ import java.time.Instant
 import io.javalin.http.HttpStatus
 import spock.lang.IgnoreIf
 
+import net.fabricmc.loom.util.AttributeHelper
 import net.fabricmc.loom.util.Checksum
 import net.fabricmc.loom.util.download.Download
 import net.fabricmc.loom.util.download.DownloadException
@@ -127,6 +130,87 @@ class DownloadFileTest extends DownloadTest {
 		requestCount == 1
 	}
 
+	def "Cache: Sha1 index"() {
+		setup:
+		int requestCount = 0
+
+		server.get("/sha1Index.txt") {
+			it.result("Hello World")
+			requestCount ++
+		}
+
+		def output = new File(File.createTempDir(), "file.txt").toPath()
+
+		when:
+		Download.create("$PATH/sha1Index.txt")
+				.sha1("0a4d55a8d778e5022fab701977c5d840bbc486d0")
+				.downloadPath(output)
+
+		// Replacing the file invalidates the indexed hash
+		Files.writeString(output, "Hello World!")
+
+		Download.create("$PATH/sha1Index.txt")
+				.sha1("0a4d55a8d778e5022fab701977c5d840bbc486d0")
+				.downloadPath(output)
+
+		then:
+		requestCount == 2
+		Files.readString(output) == "Hello World"
+		Files.readString(output.resolveSibling(".loom-download-index")).contains("sha1:0a4d55a8d778e5022fab701977c5d840bbc486d0")
+	}
+
+	def "Cache: Sha1 index locked in this JVM"() {
+		setup:
+		server.get("/sha1Locked.txt") {
+			it.result("Hello World")
+		}
+
+		def output = new File(File.createTempDir(), "file.txt").toPath()
+
+		// As if the index lock was held by Loom loaded by another class loader
+		def lockChannel = FileChannel.open(output.resolveSibling(".loom-download-index.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE)
+		def lock = lockChannel.lock()
+		def release = Thread.start {
+			Thread.sleep(200)
+			lock.release()
+		}
+
+		when:
+		Download.create("$PATH/sha1Locked.txt")
+				.sha1("0a4d55a8d778e5022fab701977c5d840bbc486d0")
+				.downloadPath(output)
+		release.join()
+		lockChannel.close()
+
+		then:
+		Files.readString(output) == "Hello World"
+		Files.readString(output.resolveSibling(".loom-download-index")).contains("sha1:0a4d55a8d778e5022fab701977c5d840bbc486d0")
+	}
+
+	def "Cache: Sha1 attribute"() {
+		setup:
+		int requestCount = 0
+
+		server.get("/sha1Attribute.txt") {
+			it.result("Hello World")
+			requestCount ++
+		}
+
+		// A file downloaded by an older version, with the hash stored as a file attribute
+		def output = new File(File.createTempDir(), "file.txt").toPath()
+		Files.writeString(output, "Hello World")
+		AttributeHelper.writeAttribute(output, "LoomHash", "sha1:0a4d55a8d778e5022fab701977c5d840bbc486d0")
+
+		when:
+		Download.create("$PATH/sha1Attribute.txt")
+				.sha1("0a4d55a8d778e5022fab701977c5d840bbc486d0")
+				.downloadPath(output)
+
+		then:
+		requestCount == 0
+		Files.readString(output.resolveSibling(".loom-download-index")).contains("sha1:0a4d55a8d778e5022fab701977c5d840bbc486d0")
+	}
+
 	def "Invalid Sha1"() {
 		setup:
 		server.get("/sha1.invalid") {
@@ -143,6 +227,7 @@ class DownloadFileTest extends DownloadTest {
 		then:
 		// Ensure the file we downloaded with the wrong hash was deleted
 		Files.notExists(output)
+		Files.notExists(output.resolveSibling("file.txt.part"))
 		thrown DownloadException
 	}
 
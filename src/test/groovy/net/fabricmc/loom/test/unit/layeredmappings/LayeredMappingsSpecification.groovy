@@ -101,6 +101,11 @@ abstract class LayeredMappingsSpecification extends Specification implements Lay
 		return processor.getMappings(processor.resolveLayers(mappingContext))
 	}
 
+	MemoryMappingTree getLayeredMappings(Path cacheDir, MappingsSpec<? extends MappingLayer>... specs) {
+		LayeredMappingsProcessor processor = createLayeredMappingsProcessor(specs)
+		return processor.getMappings(processor.resolveLayers(mappingContext), cacheDir)
+	}
+
 	UnpickLayer.UnpickData getUnpickData(MappingsSpec<? extends MappingLayer>... specs) {
 		LayeredMappingsProcessor processor = createLayeredMappingsProcessor(specs)
 		return processor.getUnpickData(processor.resolveLayers(mappingContext))
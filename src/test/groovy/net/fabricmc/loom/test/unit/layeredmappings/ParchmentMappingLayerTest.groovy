@@ -24,10 +24,20 @@
 
 package net.fabricmc.loom.test.unit.layeredmappings
 
+import java.nio.file.Files
+import java.nio.file.attribute.FileTime
+import java.time.Duration
+import java.time.Instant
+
+import net.fabricmc.loom.api.mappings.layered.MappingContext
+import net.fabricmc.loom.api.mappings.layered.MappingLayer
+import net.fabricmc.loom.api.mappings.layered.MappingsNamespace
 import net.fabricmc.loom.api.mappings.layered.spec.FileSpec
+import net.fabricmc.loom.api.mappings.layered.spec.MappingsSpec
 import net.fabricmc.loom.configuration.providers.mappings.intermediary.IntermediaryMappingsSpec
 import net.fabricmc.loom.configuration.providers.mappings.mojmap.MojangMappingsSpec
 import net.fabricmc.loom.configuration.providers.mappings.parchment.ParchmentMappingsSpec
+import net.fabricmc.mappingio.MappingVisitor
 
 class ParchmentMappingLayerTest extends LayeredMappingsSpecification {
 	def "Read parchment mappings" () {
@@ -55,6 +65,46 @@ class ParchmentMappingLayerTest extends LayeredMappingsSpecification {
 		reorderedMappings.getClass("net/minecraft/class_2573").getMethod("<init>", "()V") != null
 	}
 
+	def "Read parchment mappings with cached layers" () {
+		setup:
+		intermediaryUrl = INTERMEDIARY_1_16_5_URL
+		mockMinecraftProvider.getVersionInfo() >> VERSION_META_1_16_5
+		mockMinecraftProvider.minecraftVersion() >> "1.16.5"
+		def cacheDir = new File(tempDir, "layers").toPath()
+		cacheDir.deleteDir()
+		when:
+		withMavenFile(PARCHMENT_NOTATION, downloadFile(PARCHMENT_URL, "parchment.zip"))
+		def mojang = new CountingMappingsSpec(new MojangMappingsSpec(true))
+		def specs = [
+			new IntermediaryMappingsSpec(),
+			mojang,
+			new ParchmentMappingsSpec(FileSpec.create(PARCHMENT_NOTATION), false)
+		]
+		def uncached = getTiny(getLayeredMappings(new IntermediaryMappingsSpec(), new MojangMappingsSpec(true), specs[2]))
+		def firstRun = getTiny(getLayeredMappings(cacheDir, *specs))
+		def cachedLayers = cacheDir.toFile().list().length
+		// Only the parchment layer is applied to the cached mojang mappings
+		def prefixRemoved = getTiny(getLayeredMappings(cacheDir, specs[0], specs[1], new ParchmentMappingsSpec(FileSpec.create(PARCHMENT_NOTATION), true)))
+		// Layers cached for other specs of the same Minecraft version, only the unused one is removed
+		def otherLayer = cacheDir.resolve("2-00000000.tiny")
+		def unusedLayer = cacheDir.resolve("2-11111111.tiny")
+		Files.writeString(otherLayer, "")
+		Files.writeString(unusedLayer, "")
+		Files.setLastModifiedTime(unusedLayer, FileTime.from(Instant.now().minus(Duration.ofDays(60))))
+		def secondRun = getTiny(getLayeredMappings(cacheDir, *specs))
+		then:
+		// The final layer is not cached
+		cachedLayers == 2
+		// The mojang layer is only applied by the first run
+		mojang.visits == 1
+		cacheDir.toFile().list().length == 3
+		Files.exists(otherLayer)
+		Files.notExists(unusedLayer)
+		firstRun == uncached
+		secondRun == uncached
+		prefixRemoved != uncached
+	}
+
 	def "Read parchment mappings remove prefix" () {
 		setup:
 		intermediaryUrl = INTERMEDIARY_1_16_5_URL
@@ -78,4 +128,42 @@ class ParchmentMappingLayerTest extends LayeredMappingsSpecification {
 		mappings.classes[0].methods[0].args[0].srcName.hashCode() == 109757064
 		reorderedMappings.getClass("net/minecraft/class_2573").getMethod("method_10913", "(Lnet/minecraft/class_1799;Lnet/minecraft/class_1767;)V").args.size() > 0
 	}
+
+	// Counts how often its layer is applied, the hash code is the same as the wrapped spec so the cache keys do not change
+	static class CountingMappingsSpec implements MappingsSpec<MappingLayer> {
+		final MappingsSpec<? extends MappingLayer> delegate
+		int visits = 0
+
+		CountingMappingsSpec(MappingsSpec<? extends MappingLayer> delegate) {
+			this.delegate = delegate
+		}
+
+		@Override
+		MappingLayer createLayer(MappingContext context) {
+			def layer = delegate.createLayer(context)
+
+			return new MappingLayer() {
+				@Override
+				void visit(MappingVisitor mappingVisitor) throws IOException {
+					visits++
+					layer.visit(mappingVisitor)
+				}
+
+				@Override
+				MappingsNamespace getSourceNamespace() {
+					return layer.sourceNamespace
+				}
+
+				@Override
+				List<Class<? extends MappingLayer>> dependsOn() {
+					return layer.dependsOn()
+				}
+			}
+		}
+
+		@Override
+		int hashCode() {
+			return delegate.hashCode()
+		}
+	}
 }
@@ -24,11 +24,29 @@
 
 package net.fabricmc.loom.test.unit.processor
 
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.atomic.AtomicInteger
+
+import groovy.transform.Immutable
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassVisitor
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.FieldVisitor
+import org.objectweb.asm.Opcodes
 import spock.lang.Specification
 
+import net.fabricmc.loom.api.processor.MinecraftJarProcessor
+import net.fabricmc.loom.api.processor.ProcessorContext
 import net.fabricmc.loom.api.processor.SpecContext
+import net.fabricmc.loom.api.processor.SpecHasher
 import net.fabricmc.loom.configuration.processors.MinecraftJarProcessorManager
+import net.fabricmc.loom.configuration.processors.ProcessedClassCache
+import net.fabricmc.loom.test.util.ZipTestUtils
 import net.fabricmc.loom.test.util.processor.TestMinecraftJarProcessor
+import net.fabricmc.loom.util.Constants
+import net.fabricmc.loom.util.Pair
+import net.fabricmc.loom.util.ZipUtils
 
 class MinecraftJarProcessorManagerTest extends Specification {
 	def "Cache value matches"() {
@@ -42,7 +60,7 @@ class MinecraftJarProcessorManagerTest extends Specification {
 
 		then:
 		manager1.jarHash == manager2.jarHash
-		manager1.jarHash == "eb6faafa72"
+		manager1.jarHash == "ac20499c77"
 	}
 
 	def "Cache value does not match"() {
@@ -56,7 +74,205 @@ class MinecraftJarProcessorManagerTest extends Specification {
 
 		then:
 		manager1.jarHash != manager2.jarHash
-		manager1.jarHash == "a714eb2de6"
-		manager2.jarHash == "eb6faafa72"
+		manager1.jarHash == "26c9a34c80"
+		manager2.jarHash == "ac20499c77"
+	}
+
+	def "Report describes changed processors"() {
+		given:
+		def report = Files.createTempDirectory("loom-test").resolve("jarProcessors.txt")
+		def specContext = Mock(SpecContext)
+		def aw = new FieldProcessor("aw", [])
+		def javadoc = new FieldProcessor("javadoc", [])
+		def inject = new FieldProcessor("inject", [])
+
+		when:
+		def missing = MinecraftJarProcessorManager.create([aw, javadoc], specContext).describeChanges(report)
+		MinecraftJarProcessorManager.create([aw, javadoc], specContext).writeReport(report)
+		def unchanged = MinecraftJarProcessorManager.create([aw, javadoc], specContext).describeChanges(report)
+		def changed = MinecraftJarProcessorManager.create([new FieldProcessor("aw", [], true, "changed"), inject], specContext).describeChanges(report)
+
+		then:
+		missing.isEmpty()
+		unchanged.isEmpty()
+		changed.size() == 3
+		changed[0].startsWith("aw spec changed")
+		changed[1] == "javadoc was removed"
+		changed[2] == "inject was added"
+	}
+
+	def "Class transformers are fused"() {
+		given:
+		def jar = ZipTestUtils.createZipFromBytes([
+			"test/A.class": newClass("test/A"),
+			"test/B.class": newClass("test/B")
+		], ".jar")
+		def first = new FieldProcessor("first", ["test/A"])
+		def second = new FieldProcessor("second", [
+			"test/A",
+			"test/B",
+			"test/Missing"
+		])
+		def manager = MinecraftJarProcessorManager.create([first, second], Mock(SpecContext))
+
+		when:
+		manager.processJar(jar, Mock(ProcessorContext))
+
+		then:
+		fields(jar, "test/A") == ["first", "second"]
+		fields(jar, "test/B") == ["second"]
+		!first.processedJar
+		!second.processedJar
+	}
+
+	def "Whole jar processors run between fused transformers"() {
+		given:
+		def jar = ZipTestUtils.createZipFromBytes(["test/A.class": newClass("test/A")], ".jar")
+		def first = new FieldProcessor("first", ["test/A"])
+		def legacy = new FieldProcessor("legacy", ["test/A"], false)
+		def second = new FieldProcessor("second", ["test/A"])
+		def manager = MinecraftJarProcessorManager.create([first, legacy, second], Mock(SpecContext))
+
+		when:
+		manager.processJar(jar, Mock(ProcessorContext))
+
+		then:
+		fields(jar, "test/A") == ["first", "legacy", "second"]
+		legacy.processedJar
+	}
+
+	def "Processed classes are reused from the class cache"() {
+		given:
+		def cacheDir = Files.createTempDirectory("loom-test")
+		def input = [
+			"test/A.class": newClass("test/A"),
+			"test/B.class": newClass("test/B")
+		]
+		def first = new FieldProcessor("first", ["test/A", "test/B"])
+		def second = new FieldProcessor("second", ["test/A"])
+		def changed = new FieldProcessor("changed", ["test/A"])
+		def specContext = Mock(SpecContext)
+		def processorContext = Mock(ProcessorContext)
+
+		when:
+		def jar1 = ZipTestUtils.createZipFromBytes(input, ".jar")
+		def jar2 = ZipTestUtils.createZipFromBytes(input, ".jar")
+		def jar3 = ZipTestUtils.createZipFromBytes(input, ".jar")
+
+		ProcessedClassCache.open(cacheDir.resolve("cache.bin")).withCloseable { cache ->
+			MinecraftJarProcessorManager.create([first, second], specContext).processJar(jar1, processorContext, cache)
+			MinecraftJarProcessorManager.create([first, second], specContext).processJar(jar2, processorContext, cache)
+			// Only the transformers for test/A have changed
+			MinecraftJarProcessorManager.create([first, changed], specContext).processJar(jar3, processorContext, cache)
+		}
+
+		then:
+		// test/B is only transformed in the first run
+		first.transformedClasses.get() == 3
+		second.transformedClasses.get() == 1
+		changed.transformedClasses.get() == 1
+
+		fields(jar2, "test/A") == ["first", "second"]
+		fields(jar2, "test/B") == ["first"]
+		fields(jar3, "test/A") == ["first", "changed"]
+		fields(jar3, "test/B") == ["first"]
+	}
+
+	private static byte[] newClass(String name) {
+		def writer = new ClassWriter(0)
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null)
+		return writer.toByteArray()
+	}
+
+	private static List<String> fields(Path jar, String className) {
+		def fields = []
+		def reader = new ClassReader(ZipUtils.unpack(jar, className + ".class"))
+		reader.accept(new ClassVisitor(Constants.ASM_VERSION) {
+					@Override
+					FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+						fields.add(name)
+						return null
+					}
+				}, 0)
+		return fields
+	}
+
+	// Adds a field named after the processor to each of the target classes
+	static class FieldProcessor implements MinecraftJarProcessor<Spec> {
+		final String name
+		final List<String> targets
+		final boolean fusible
+		final String specValue
+		boolean processedJar = false
+		final AtomicInteger transformedClasses = new AtomicInteger()
+
+		FieldProcessor(String name, List<String> targets, boolean fusible = true, String specValue = name) {
+			this.name = name
+			this.targets = targets
+			this.fusible = fusible
+			this.specValue = specValue
+		}
+
+		@Override
+		Spec buildSpec(SpecContext context) {
+			return new Spec(specValue)
+		}
+
+		@Override
+		void processJar(Path jar, Spec spec, ProcessorContext context) throws IOException {
+			processedJar = true
+			ZipUtils.transform(jar, targets.collect { target ->
+				new Pair<String, ZipUtils.UnsafeUnaryOperator<byte[]>>(target + ".class", { byte[] input ->
+					def writer = new ClassWriter(0)
+					new ClassReader(input).accept(addField(writer), 0)
+					return writer.toByteArray()
+				} as ZipUtils.UnsafeUnaryOperator<byte[]>)
+			})
+		}
+
+		@Override
+		MinecraftJarProcessor.ClassTransformer createClassTransformer(Spec spec, ProcessorContext context) {
+			if (!fusible) {
+				return null
+			}
+
+			return new MinecraftJarProcessor.ClassTransformer() {
+						@Override
+						Set<String> getTargets() {
+							return targets.toSet()
+						}
+
+						@Override
+						ClassVisitor insertVisitor(String className, ClassVisitor classVisitor) {
+							transformedClasses.incrementAndGet()
+							return addField(classVisitor)
+						}
+
+						@Override
+						String getFingerprint(String className) {
+							return name
+						}
+					}
+		}
+
+		private ClassVisitor addField(ClassVisitor classVisitor) {
+			return new ClassVisitor(Constants.ASM_VERSION, classVisitor) {
+						@Override
+						void visitEnd() {
+							super.visitField(Opcodes.ACC_PUBLIC, name, "I", null, null)?.visitEnd()
+							super.visitEnd()
+						}
+					}
+		}
+
+		@Immutable
+		static class Spec implements MinecraftJarProcessor.Spec {
+			String value
+
+			@Override
+			void fingerprint(SpecHasher hasher) {
+				hasher.putString(value)
+			}
+		}
 	}
 }
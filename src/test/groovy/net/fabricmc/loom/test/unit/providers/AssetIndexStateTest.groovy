@@ -0,0 +1,87 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit.providers
+
+import java.nio.file.Files
+import java.nio.file.attribute.FileTime
+import java.time.Instant
+
+import spock.lang.Specification
+
+import net.fabricmc.loom.configuration.providers.minecraft.assets.AssetIndex
+import net.fabricmc.loom.configuration.providers.minecraft.assets.AssetIndexState
+
+class AssetIndexStateTest extends Specification {
+	def "verified object is valid"() {
+		given:
+		def dir = Files.createTempDirectory("loom-assets")
+		def file = dir.resolve("object")
+		Files.writeString(file, "Hello World")
+		def object = new AssetIndex.Object("minecraft/file.txt", "0a4d55a8d778e5022fab701977c5d840bbc486d0", 11)
+		def state = AssetIndexState.read(dir.resolve("state.json"))
+
+		when:
+		def before = state.isValid(file, object)
+		state.put(file, object)
+		state.write(dir.resolve("state.json"))
+		def read = AssetIndexState.read(dir.resolve("state.json"))
+
+		then:
+		!before
+		state.isValid(file, object)
+		read.isValid(file, object)
+		!read.isValid(file, new AssetIndex.Object("minecraft/file.txt", "d139cccf047a749691416ce385d3f168c1e28309", 11))
+	}
+
+	def "changed object is invalid"() {
+		given:
+		def dir = Files.createTempDirectory("loom-assets")
+		def file = dir.resolve("object")
+		Files.writeString(file, "Hello World")
+		def object = new AssetIndex.Object("minecraft/file.txt", "0a4d55a8d778e5022fab701977c5d840bbc486d0", 11)
+		def state = AssetIndexState.read(dir.resolve("state.json"))
+		state.put(file, object)
+
+		when:
+		Files.setLastModifiedTime(file, FileTime.from(Instant.now().minusSeconds(60)))
+
+		then:
+		!state.isValid(file, object)
+	}
+
+	def "missing or corrupt state"() {
+		given:
+		def dir = Files.createTempDirectory("loom-assets")
+		def file = dir.resolve("object")
+		Files.writeString(file, "Hello World")
+		Files.writeString(dir.resolve("corrupt.json"), "{ not json")
+		def object = new AssetIndex.Object("minecraft/file.txt", "0a4d55a8d778e5022fab701977c5d840bbc486d0", 11)
+
+		expect:
+		AssetIndexState.read(dir.resolve("missing.json")).objects().isEmpty()
+		AssetIndexState.read(dir.resolve("corrupt.json")).objects().isEmpty()
+		!AssetIndexState.read(dir.resolve("corrupt.json")).isValid(file, object)
+	}
+}
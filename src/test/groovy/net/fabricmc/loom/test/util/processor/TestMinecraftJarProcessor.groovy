@@ -31,6 +31,7 @@ import groovy.transform.Immutable
 import net.fabricmc.loom.api.processor.MinecraftJarProcessor
 import net.fabricmc.loom.api.processor.ProcessorContext
 import net.fabricmc.loom.api.processor.SpecContext
+import net.fabricmc.loom.api.processor.SpecHasher
 
 @Immutable
 class TestMinecraftJarProcessor implements MinecraftJarProcessor<Spec> {
@@ -50,6 +51,11 @@ class TestMinecraftJarProcessor implements MinecraftJarProcessor<Spec> {
 	@Immutable
 	class Spec implements MinecraftJarProcessor.Spec {
 		String input
+
+		@Override
+		void fingerprint(SpecHasher hasher) {
+			hasher.putString(input)
+		}
 	}
 
 	@Override
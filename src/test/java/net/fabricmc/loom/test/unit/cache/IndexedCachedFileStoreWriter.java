@@ -0,0 +1,80 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2024 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import net.fabricmc.loom.decompilers.cache.CachedFileStore;
+import net.fabricmc.loom.decompilers.cache.IndexedCachedFileStore;
+import net.fabricmc.loom.util.CacheRules;
+
+/**
+ * Writes entries to an {@link IndexedCachedFileStore} from another process, used by {@code IndexedCachedFileStoreTest}.
+ */
+public class IndexedCachedFileStoreWriter {
+	public static void main(String[] args) throws IOException {
+		final Path cacheFile = Path.of(args[0]);
+		final String prefix = args[1];
+		final int count = Integer.parseInt(args[2]);
+
+		try (var store = IndexedCachedFileStore.open(cacheFile, Serializer.INSTANCE, new CacheRules(100_000, Duration.ofDays(7)))) {
+			for (int i = 0; i < count; i++) {
+				store.putEntry(prefix + i, ("Hello world " + i).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	private enum Serializer implements CachedFileStore.BufferEntrySerializer<byte[]> {
+		INSTANCE;
+
+		@Override
+		public byte[] read(ByteBuffer buffer) {
+			final byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			return bytes;
+		}
+
+		@Override
+		public void write(byte[] entry, FileChannel fileChannel) throws IOException {
+			fileChannel.write(ByteBuffer.wrap(entry));
+		}
+
+		@Override
+		public byte[] read(Path path) throws IOException {
+			return Files.readAllBytes(path);
+		}
+
+		@Override
+		public void write(byte[] entry, Path path) throws IOException {
+			Files.write(path, entry);
+		}
+	}
+}